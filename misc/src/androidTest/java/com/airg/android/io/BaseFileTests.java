@@ -75,6 +75,29 @@ class BaseFileTests {
         os.close();
     }
 
+    /**
+     * Repeatedly append the named asset to the output file until it reaches at least the given length
+     */
+    void mkLargeFile(final String name, final File out, final long minLength) throws IOException {
+        final OutputStream os = new FileOutputStream(out, false);
+        final byte[] buffer = new byte[2048];
+
+        long written = 0;
+
+        while (written < minLength) {
+            final InputStream in = context.getResources().getAssets().open(name);
+
+            int read;
+
+            while ((read = in.read(buffer)) > 0) {
+                os.write(buffer, 0, read);
+                written += read;
+            }
+            in.close();
+        }
+        os.close();
+    }
+
     String toString(final byte[] bytes) throws UnsupportedEncodingException {
         return new String(bytes, Zipper.UTF8);
     }
@@ -0,0 +1,137 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@SuppressWarnings("ResultOfMethodCallIgnored")
+public class BatchHasherTest extends BaseFileTests {
+
+    @Test
+    public void testDirectory() throws Exception {
+        final File root = mkTree();
+        final BatchHasher.Result result = new BatchHasher(Hasher.SHA_1_ALGORITHM, 3).hashDirectory(root);
+
+        assertTrue(result.isSuccessful());
+        assertEquals(INPUT_FILE.length * 2, result.getHashes().size());
+
+        for (final File file : result.getHashes().keySet()) {
+            assertEquals(FILE_SHA1.get(file.getName()), result.getHashes().get(file));
+        }
+    }
+
+    @Test
+    public void testErrorsDoNotAbort() throws Exception {
+        final File root = mkTree();
+        final List<File> files = new ArrayList<>();
+        final File missing = new File(root, "missing");
+
+        files.add(missing);
+        Collections.addAll(files, root.listFiles());
+        files.remove(new File(root, "sub"));
+
+        final BatchHasher.Result result = Hasher.hashFiles(files, Hasher.MD5_ALGORITHM, 2);
+
+        assertFalse(result.isSuccessful());
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().containsKey(missing));
+        assertEquals(INPUT_FILE.length, result.getHashes().size());
+
+        for (final File file : result.getHashes().keySet()) {
+            assertEquals(FILE_MD5.get(file.getName()), result.getHashes().get(file));
+        }
+    }
+
+    @Test
+    public void testLargestFirst() throws Exception {
+        final File root = mkTree();
+        final List<File> order = Collections.synchronizedList(new ArrayList<File>());
+        final ExecutorService executor = Executors.newCachedThreadPool();
+
+        try {
+            new BatchHasher(Hasher.SHA_1_ALGORITHM, executor, 1).hashDirectory(root, new BatchHasher.Callback() {
+                @Override
+                public void onHashed(final File file, final String hash) {
+                    order.add(file);
+                }
+
+                @Override
+                public void onError(final File file, final IOException error) {
+                    throw new AssertionError(error);
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(INPUT_FILE.length * 2, order.size());
+
+        for (int i = 1; i < order.size(); i++) {
+            assertTrue(order.get(i - 1).length() >= order.get(i).length());
+        }
+    }
+
+    @Test(expected = OutOfMemoryError.class)
+    public void testErrorsPropagate() throws Exception {
+        new BatchHasher(Hasher.SHA_1_ALGORITHM, 3).hashDirectory(mkTree(), new BatchHasher.Callback() {
+            @Override
+            public void onHashed(final File file, final String hash) {
+                throw new OutOfMemoryError("simulated");
+            }
+
+            @Override
+            public void onError(final File file, final IOException error) {
+            }
+        });
+    }
+
+    @Test(expected = NoSuchAlgorithmException.class)
+    public void testUnknownAlgorithm() throws Exception {
+        new BatchHasher("NOPE", 2).hashDirectory(mkTree());
+    }
+
+    /**
+     * Creates a directory holding each input file, plus a sub directory holding another copy of each
+     */
+    private File mkTree() throws IOException {
+        final File root = new File(context.getFilesDir(), "batch");
+        final File sub = new File(root, "sub");
+        sub.mkdirs();
+
+        for (final String filename : INPUT_FILE) {
+            mkFile(filename, new File(root, filename));
+            mkFile(filename, new File(sub, filename));
+        }
+
+        return root;
+    }
+}
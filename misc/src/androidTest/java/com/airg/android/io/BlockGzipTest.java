@@ -0,0 +1,209 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@SuppressWarnings("ResultOfMethodCallIgnored")
+public class BlockGzipTest extends BaseFileTests {
+
+    private byte[] mkData(final int length) {
+        final byte[] data = new byte[length];
+        final Random random = new Random(5);
+
+        for (int i = 0; i < length; i++) {
+            // part text-like, part noise, so some blocks compress and some don't
+            data[i] = i % 200000 < 150000 ? (byte) ('a' + (i * 7 + i / 100) % 26) : (byte) random.nextInt();
+        }
+
+        return data;
+    }
+
+    @Test
+    public void testRandomAccess() throws Exception {
+        final byte[] data = mkData(1000000);
+        final File compressed = new File(context.getFilesDir(), "blocks.gz");
+
+        final BlockGzipOutputStream out = new BlockGzipOutputStream(new FileOutputStream(compressed));
+        out.write(data, 0, 12345);
+        out.write(data[12345]);
+        out.write(data, 12346, data.length - 12346);
+        assertEquals(data.length, out.getPosition());
+        out.close();
+
+        // still plain gzip
+        final File decompressed = new File(context.getFilesDir(), "blocks.out");
+        Zipper.gunzip(compressed, decompressed);
+        assertEquals(Hasher.sha1(new ByteArrayInputStream(data)), Hasher.sha1(decompressed));
+        decompressed.delete();
+
+        // the index written along is the one found by walking the file
+        final BlockGzipIndex written = out.getIndex();
+        final BlockGzipIndex built = BlockGzipIndex.build(compressed);
+        assertEquals(written.size(), built.size());
+        assertTrue(written.size() > data.length / GzipFormat.BGZF_MAX_INPUT_SIZE);
+
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals(written.getCompressedOffset(i), built.getCompressedOffset(i));
+            assertEquals(written.getUncompressedOffset(i), built.getUncompressedOffset(i));
+        }
+
+        // .gzi round trip
+        final ByteArrayOutputStream gzi = new ByteArrayOutputStream();
+        written.write(gzi);
+        assertEquals(8 + (written.size() - 1) * 16, gzi.size());
+        final BlockGzipIndex read = BlockGzipIndex.read(new ByteArrayInputStream(gzi.toByteArray()));
+
+        final BlockGzipReader reader = new BlockGzipReader(compressed, read);
+
+        try {
+            assertEquals(data.length, reader.length());
+
+            final Random random = new Random(9);
+
+            for (int i = 0; i < 200; i++) {
+                final int position = random.nextInt(data.length);
+                final int count = Math.min(random.nextInt(150000), data.length - position);
+
+                assertArrayEquals("at " + position, Arrays.copyOfRange(data, position, position + count),
+                        reader.read(position, count));
+            }
+
+            // block boundaries and the very end
+            final long boundary = written.getUncompressedOffset(3);
+            assertArrayEquals(Arrays.copyOfRange(data, (int) boundary - 2, (int) boundary + 2),
+                    reader.read(boundary - 2, 4));
+
+            final byte[] tail = new byte[10];
+            assertEquals(3, reader.read(data.length - 3, tail, 0, 10));
+            assertEquals(-1, reader.read(data.length, tail, 0, 10));
+
+            final InputStream stream = reader.openStream(data.length - 5000);
+            assertEquals(1000, stream.skip(1000));
+            assertEquals(data[data.length - 4000] & 0xff, stream.read());
+        } finally {
+            reader.close();
+        }
+
+        compressed.delete();
+    }
+
+    @Test
+    public void testFiles() throws IOException {
+        final File original = new File(context.getFilesDir(), "bgzip.original");
+        final File compressed = new File(context.getFilesDir(), "bgzip.gz");
+
+        mkLargeFile(INPUT_FILE[0], original, 300000);
+
+        final BlockGzipIndex index = Zipper.bgzip(original, compressed, GzipOptions.FAST);
+        final BlockGzipReader reader = new BlockGzipReader(compressed);
+
+        try {
+            assertEquals(index.size(), reader.getIndex().size());
+            assertEquals(original.length(), reader.length());
+
+            final RandomAccessFile raf = new RandomAccessFile(original, "r");
+            final byte[] expected = new byte[777];
+            raf.seek(200000);
+            raf.readFully(expected);
+            raf.close();
+
+            assertArrayEquals(expected, reader.read(200000, 777));
+        } finally {
+            reader.close();
+        }
+
+        // empty input: just the end of file marker
+        final FileOutputStream empty = new FileOutputStream(original);
+        empty.close();
+        assertEquals(0, Zipper.bgzip(original, compressed).size());
+        assertEquals(GzipFormat.BGZF_EOF.length, compressed.length());
+
+        final BlockGzipReader emptyReader = new BlockGzipReader(compressed);
+        assertEquals(0, emptyReader.length());
+        emptyReader.close();
+
+        original.delete();
+        compressed.delete();
+    }
+
+    @Test
+    public void testStaleIndex() throws IOException {
+        final File compressed = new File(context.getFilesDir(), "stale.gz");
+        final BlockGzipOutputStream out = new BlockGzipOutputStream(new FileOutputStream(compressed));
+        out.write(mkData(100));
+        out.flush();
+        out.write(mkData(100));
+        out.close();
+
+        // claim the second block starts at 150 rather than 100, as if the data had since been rewritten
+        final ByteArrayOutputStream gzi = new ByteArrayOutputStream();
+        out.getIndex().write(gzi);
+        final byte[] bytes = gzi.toByteArray();
+        assertEquals(100, bytes[16]);
+        bytes[16] = (byte) 150;
+
+        final BlockGzipReader reader = new BlockGzipReader(compressed,
+                BlockGzipIndex.read(new ByteArrayInputStream(bytes)));
+
+        try {
+            reader.read(120, 10);
+            fail("read past the end of a block");
+        } catch (ZipException e) {
+            // expected
+        } finally {
+            reader.close();
+            compressed.delete();
+        }
+    }
+
+    @Test
+    public void testNotBlockGzip() throws IOException {
+        final File compressed = new File(context.getFilesDir(), "plain.gz");
+        final FileOutputStream out = new FileOutputStream(compressed);
+        out.write(Zipper.gzip("plain gzip has no block sizes"));
+        out.close();
+
+        try {
+            BlockGzipIndex.build(compressed);
+            fail("plain gzip accepted");
+        } catch (ZipException e) {
+            // expected
+        } finally {
+            compressed.delete();
+        }
+    }
+}
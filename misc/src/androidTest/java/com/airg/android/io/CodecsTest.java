@@ -0,0 +1,181 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CodecsTest extends BaseFileTests {
+    private static final String TEXT = "lz4-java wrote this. lz4-java wrote this. lz4-java wrote this.";
+
+    /**
+     * {@link #TEXT} as written by lz4-java, with content size and block and content checksums
+     */
+    private static final byte[] LZ4_FRAME = {0x04, 0x22, 0x4d, 0x18, 0x7c, 0x40, 0x3e, 0, 0, 0, 0, 0, 0, 0,
+            (byte) 0xcf, 0x20, 0, 0, 0, (byte) 0xff, 0x06, 0x6c, 0x7a, 0x34, 0x2d, 0x6a, 0x61, 0x76, 0x61, 0x20, 0x77,
+            0x72, 0x6f, 0x74, 0x65, 0x20, 0x74, 0x68, 0x69, 0x73, 0x2e, 0x20, 0x15, 0x00, 0x11, 0x50, 0x74, 0x68, 0x69,
+            0x73, 0x2e, 0x5b, 0x4a, (byte) 0xfa, (byte) 0xa4, 0, 0, 0, 0, (byte) 0xab, (byte) 0x99, (byte) 0x83,
+            (byte) 0xc3};
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final byte[] compressible = new byte[300000];
+        final byte[] random = new byte[200000];
+
+        for (int i = 0; i < compressible.length; i++) {
+            compressible[i] = (byte) ("abcdefgh".charAt(i % 8) + i / 5000);
+        }
+
+        new Random(42).nextBytes(random);
+
+        for (final Codec codec : new Codec[]{Codecs.LZ4, Codecs.GZIP}) {
+            for (final byte[] original : new byte[][]{new byte[0], {1}, compressible, random}) {
+                final byte[] compressed = Codecs.compress(codec, original);
+
+                assertSame(codec, Codecs.detect(compressed, compressed.length));
+                assertArrayEquals(codec.getName(), original, Codecs.decompress(compressed));
+            }
+
+            assertTrue(Codecs.compress(codec, compressible).length < compressible.length / 10);
+            assertEquals(TEXT, Codecs.decompressToString(Codecs.compress(codec, TEXT)));
+        }
+    }
+
+    @Test
+    public void testSkip() throws IOException {
+        final byte[] original = new byte[300000];
+
+        for (int i = 0; i < original.length; i++) {
+            original[i] = (byte) (i % 251 ^ i / 1000);
+        }
+
+        final InputStream in = Codecs.decompress(new ByteArrayInputStream(Codecs.compress(Codecs.LZ4, original)));
+
+        try {
+            assertEquals(0, in.skip(-1));
+            assertEquals(0, in.skip(0));
+            assertEquals(100000, in.skip(100000));
+            assertEquals(original[100000] & 0xff, in.read());
+            assertEquals(original.length - 100001, in.skip(Long.MAX_VALUE));
+            assertEquals(-1, in.read());
+            assertEquals(0, in.skip(10));
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testFiles() throws Exception {
+        final File original = new File(context.getFilesDir(), INPUT_FILE[0]);
+        final File compressed = new File(context.getFilesDir(), "codec.lz4");
+        final File output = new File(context.getFilesDir(), "codec.out");
+
+        mkFile(INPUT_FILE[0], original);
+        Codecs.compress(Codecs.LZ4, original, compressed);
+        Codecs.decompress(compressed, output);
+
+        assertEquals(FILE_SHA1.get(INPUT_FILE[0]), Hasher.sha1(output));
+    }
+
+    @Test
+    public void testStreamsStayOpen() throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final OutputStream out = new OutputStream() {
+            @Override
+            public void write(final int b) {
+                bos.write(b);
+            }
+
+            @Override
+            public void close() {
+                fail("caller's stream closed");
+            }
+        };
+
+        Codecs.compress(Codecs.LZ4, new ByteArrayInputStream(TEXT.getBytes(Zipper.UTF8)), out);
+
+        final InputStream in = new ByteArrayInputStream(bos.toByteArray()) {
+            @Override
+            public void close() {
+                fail("caller's stream closed");
+            }
+        };
+        final ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+
+        Codecs.decompress(in, decompressed);
+        assertEquals(TEXT, new String(decompressed.toByteArray(), Zipper.UTF8));
+    }
+
+    @Test
+    public void testInterop() throws IOException {
+        assertSame(Codecs.LZ4, Codecs.detect(LZ4_FRAME, LZ4_FRAME.length));
+        assertEquals(TEXT, Codecs.decompressToString(LZ4_FRAME));
+    }
+
+    @Test
+    public void testCorrupt() throws IOException {
+        final byte[] corrupt = Arrays.copyOf(LZ4_FRAME, LZ4_FRAME.length);
+        corrupt[30] ^= 1;
+
+        try {
+            Codecs.decompress(corrupt);
+            fail("corrupt block decompressed");
+        } catch (ZipException expected) {
+            // block checksum mismatch
+        }
+
+        try {
+            Codecs.decompress(TEXT.getBytes(Zipper.UTF8));
+            fail("plain text decompressed");
+        } catch (ZipException expected) {
+            // no codec
+        }
+    }
+
+    @Test
+    public void testRegistry() {
+        assertSame(Codecs.GZIP, Codecs.forName("gzip"));
+        assertSame(Codecs.LZ4, Codecs.forName("LZ4"));
+        assertNull(Codecs.forName("snappy"));
+
+        try {
+            Codecs.register(Codecs.gzip(GzipOptions.FAST));
+            fail("duplicate codec registered");
+        } catch (IllegalArgumentException expected) {
+            // already registered
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompressionServiceTest extends BaseFileTests {
+
+    @Test
+    public void testFiles() throws Exception {
+        final File original = new File(context.getFilesDir(), INPUT_FILE[0]);
+        final File compressed = new File(context.getFilesDir(), "service.gz");
+        final File output = new File(context.getFilesDir(), "service.out");
+        final CompressionService service = new CompressionService(2, 4);
+
+        mkFile(INPUT_FILE[0], original);
+
+        try {
+            final Recorder recorder = new Recorder();
+            final CompressionService.Task task =
+                    service.submit(CompressionService.Job.compress(Codecs.GZIP, original, compressed), recorder);
+
+            final long compressedSize = task.get();
+
+            recorder.await();
+            assertEquals(compressed.length(), compressedSize);
+            assertEquals(original.length(), recorder.processed.get());
+            assertEquals(original.length(), task.getBytesProcessed());
+            assertEquals(original.length(), task.getBytesTotal());
+            assertEquals(compressed.length(), recorder.outputSize.get());
+
+            assertEquals(original.length(),
+                    (long) service.submit(CompressionService.Job.decompress(compressed, output), null).get());
+            assertEquals(FILE_SHA1.get(INPUT_FILE[0]), Hasher.sha1(output));
+        } finally {
+            service.close();
+        }
+
+        assertTrue(service.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStreams() throws Exception {
+        final byte[] original = new byte[300000];
+        new Random(7).nextBytes(original);
+
+        final CompressionService service = new CompressionService(1, 1);
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try {
+            service.submit(CompressionService.Job.compress(Codecs.LZ4, new ByteArrayInputStream(original),
+                    original.length, compressed), null).get();
+            service.submit(CompressionService.Job.decompress(new ByteArrayInputStream(compressed.toByteArray()), -1,
+                    output), null).get();
+        } finally {
+            service.close();
+        }
+
+        assertArrayEquals(original, output.toByteArray());
+    }
+
+    @Test
+    public void testBackPressure() throws Exception {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CompressionService service = new CompressionService(1, 1);
+
+        try {
+            final CompressionService.Task running = service.submit(blocked(gate), null);
+            final CompressionService.Task queued = service.submit(blocked(gate), null);
+
+            assertNotNull(running);
+            assertNotNull(queued);
+            assertNull(service.trySubmit(blocked(gate), null));
+            assertEquals(2, service.getTaskCount());
+
+            gate.countDown();
+            running.get();
+            queued.get();
+
+            final CompressionService.Task task = service.trySubmit(blocked(gate), null);
+            assertNotNull(task);
+            task.get();
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CompressionService service = new CompressionService(1, 1);
+        final File compressed = new File(context.getFilesDir(), "cancelled.gz");
+
+        try {
+            final Recorder recorder = new Recorder();
+            final CompressionService.Task running = service.submit(blocked(gate), recorder);
+            final CompressionService.Task queued =
+                    service.submit(CompressionService.Job.compress(Codecs.GZIP, blockedStream(gate), -1,
+                            new FileOutputStream(compressed)), null);
+
+            assertTrue(queued.cancel(true));
+            assertTrue(running.cancel(true));
+            recorder.await();
+            assertTrue(recorder.cancelled.get());
+            assertTrue(running.isCancelled());
+
+            try {
+                queued.get();
+                fail("cancelled task completed");
+            } catch (CancellationException expected) {
+                // cancelled
+            }
+
+            awaitIdle(service);
+            assertNotNull(service.trySubmit(CompressionService.Job.compress(Codecs.GZIP,
+                    new ByteArrayInputStream(new byte[1]), 1, new ByteArrayOutputStream()), null));
+        } finally {
+            service.shutdownNow();
+        }
+
+        assertTrue(service.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCancelKeepsSlotUntilJobStops() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CompressionService service = new CompressionService(1, 0);
+
+        try {
+            final CompressionService.Task task = service.submit(CompressionService.Job.compress(Codecs.LZ4,
+                    uninterruptibleStream(started, gate), 1, new ByteArrayOutputStream()), null);
+
+            started.await();
+            assertTrue(task.cancel(true));
+            assertTrue(task.isDone());
+
+            // the worker is still stuck in the job, so there is no room for another
+            assertEquals(1, service.getTaskCount());
+            assertNull(service.trySubmit(blocked(gate), null));
+
+            gate.countDown();
+            awaitIdle(service);
+            assertNotNull(service.trySubmit(blocked(gate), null));
+        } finally {
+            service.shutdownNow();
+        }
+
+        assertTrue(service.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testError() throws Exception {
+        final File output = new File(context.getFilesDir(), "error.out");
+        final File plain = new File(context.getFilesDir(), INPUT_FILE[0]);
+        final CompressionService service = new CompressionService(1, 0);
+
+        mkFile(INPUT_FILE[0], plain);
+
+        try {
+            final Recorder recorder = new Recorder();
+            final CompressionService.Task task =
+                    service.submit(CompressionService.Job.decompress(plain, output), recorder);
+
+            try {
+                task.get();
+                fail("plain file decompressed");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+
+            recorder.await();
+            assertNotNull(recorder.error.get());
+            assertFalse(output.exists());
+        } finally {
+            service.close();
+        }
+    }
+
+    private static CompressionService.Job blocked(final CountDownLatch gate) {
+        return CompressionService.Job.compress(Codecs.LZ4, blockedStream(gate), 1, new ByteArrayOutputStream());
+    }
+
+    /**
+     * A single byte stream that cannot be read until the gate opens
+     */
+    private static InputStream blockedStream(final CountDownLatch gate) {
+        return new InputStream() {
+            private boolean read;
+
+            @Override
+            public int read() throws IOException {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+
+                if (read) {
+                    return -1;
+                }
+
+                read = true;
+                return 42;
+            }
+        };
+    }
+
+    /**
+     * A single byte stream that ignores interrupts while waiting for the gate to open
+     */
+    private static InputStream uninterruptibleStream(final CountDownLatch started, final CountDownLatch gate) {
+        return new InputStream() {
+            private boolean read;
+
+            @Override
+            public int read() throws IOException {
+                started.countDown();
+
+                while (true) {
+                    try {
+                        gate.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        // keep waiting
+                    }
+                }
+
+                if (read) {
+                    return -1;
+                }
+
+                read = true;
+                return 42;
+            }
+        };
+    }
+
+    private static void awaitIdle(final CompressionService service) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+
+        while (service.getTaskCount() > 0) {
+            assertTrue("tasks still running", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static final class Recorder implements CompressionService.Callback {
+        final AtomicLong processed = new AtomicLong();
+        final AtomicLong outputSize = new AtomicLong(-1);
+        final AtomicReference<IOException> error = new AtomicReference<>();
+        final AtomicReference<Boolean> cancelled = new AtomicReference<>(false);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        @Override
+        public void onProgress(@NonNull final CompressionService.Task task, final long processed, final long total) {
+            assertTrue(processed > this.processed.get());
+            this.processed.set(processed);
+        }
+
+        @Override
+        public void onComplete(@NonNull final CompressionService.Task task, final long outputSize) {
+            this.outputSize.set(outputSize);
+            done.countDown();
+        }
+
+        @Override
+        public void onError(@NonNull final CompressionService.Task task, @NonNull final IOException error) {
+            this.error.set(error);
+            done.countDown();
+        }
+
+        @Override
+        public void onCancelled(@NonNull final CompressionService.Task task) {
+            cancelled.set(true);
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+    }
+}
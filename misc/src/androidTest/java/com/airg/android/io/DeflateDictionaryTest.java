@@ -0,0 +1,161 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DeflateDictionaryTest extends BaseFileTests {
+    private static final String[] NAMES = {"alice", "bob", "carol", "dave", "erin", "frank"};
+
+    private static String message(final Random random) {
+        return "{\"type\":\"chat_message\",\"sender\":{\"name\":\"" + NAMES[random.nextInt(NAMES.length)]
+                + "\",\"online\":" + random.nextBoolean() + "},\"timestamp\":" + (1400000000L + random.nextInt())
+                + ",\"body\":\"" + Long.toString(random.nextLong(), 36) + "\",\"flags\":[\"delivered\",\"unread\"]}";
+    }
+
+    @Test
+    public void testTrainedDictionary() throws IOException {
+        final Random random = new Random(11);
+        final List<String> samples = new ArrayList<>();
+
+        for (int i = 0; i < 300; i++) {
+            samples.add(message(random));
+        }
+
+        final DeflateDictionary dictionary = DeflateDictionary.trainText(samples, 2048);
+        assertTrue(dictionary.size() <= 2048);
+
+        int plain = 0;
+        int primed = 0;
+
+        for (int i = 0; i < 50; i++) {
+            final String message = message(random);
+            final byte[] compressed = Zipper.deflate(message, dictionary);
+
+            assertEquals(message, toString(Zipper.inflate(compressed, dictionary)));
+
+            plain += Zipper.gzip(message).length;
+            primed += compressed.length;
+        }
+
+        // the dictionary must pay off substantially on messages it has not seen
+        assertTrue("plain " + plain + ", primed " + primed, primed * 2 < plain);
+    }
+
+    @Test
+    public void testZlibCompatible() throws Exception {
+        final DeflateDictionary dictionary = DeflateDictionary.of("\"type\":\"chat_message\"".getBytes(Zipper.UTF8));
+        final byte[] message = "{\"type\":\"chat_message\"}".getBytes(Zipper.UTF8);
+
+        // stock zlib stream with a preset dictionary
+        final Deflater deflater = new Deflater();
+        deflater.setDictionary(dictionary.getBytes());
+        deflater.setInput(message);
+        deflater.finish();
+        final byte[] buffer = new byte[256];
+        final byte[] zlib = Arrays.copyOf(buffer, deflater.deflate(buffer));
+        deflater.end();
+
+        assertArrayEquals(message, Zipper.inflate(zlib, dictionary));
+
+        // and the other way round
+        final Inflater inflater = new Inflater();
+        inflater.setInput(Zipper.deflate(message, dictionary));
+        assertEquals(0, inflater.inflate(buffer));
+        assertTrue(inflater.needsDictionary());
+        assertEquals(dictionary.getId(), inflater.getAdler());
+        inflater.setDictionary(dictionary.getBytes());
+        assertEquals(message.length, inflater.inflate(buffer));
+        assertTrue(inflater.finished());
+        inflater.end();
+    }
+
+    @Test
+    public void testDictionarySelection() throws IOException {
+        final DeflateDictionary first = DeflateDictionary.of("first dictionary".getBytes(Zipper.UTF8));
+        final DeflateDictionary second = DeflateDictionary.of("second dictionary".getBytes(Zipper.UTF8));
+        final ZipperPool pool = new ZipperPool();
+
+        try {
+            final byte[] compressed = pool.deflate("second dictionary, used twice: second dictionary", second);
+
+            assertEquals("second dictionary, used twice: second dictionary",
+                    toString(pool.inflate(compressed, first, second)));
+
+            try {
+                pool.inflate(compressed, first);
+                fail("decompressed with the wrong dictionary");
+            } catch (ZipException e) {
+                // expected
+            }
+
+            compressed[compressed.length - 1]++;
+
+            try {
+                pool.inflate(compressed, second);
+                fail("checksum not verified");
+            } catch (ZipException e) {
+                // expected
+            }
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testOutputLimit() throws IOException {
+        final DeflateDictionary dictionary = DeflateDictionary.of("abc".getBytes(Zipper.UTF8));
+        final byte[] bomb = Zipper.deflate(new byte[1000000], dictionary);
+
+        assertEquals(1000000, Zipper.inflate(bomb, 1000000, dictionary).length);
+
+        try {
+            Zipper.inflate(bomb, 999999, dictionary);
+            fail("output limit ignored");
+        } catch (ZipException e) {
+            // expected
+        }
+
+        final ZipperPool pool = new ZipperPool();
+
+        try {
+            pool.inflate(bomb, 0, bomb.length, 100, dictionary);
+            fail("output limit ignored");
+        } catch (ZipException e) {
+            // expected
+        } finally {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@SuppressWarnings("ResultOfMethodCallIgnored")
+public class DigestCacheTest extends BaseFileTests {
+
+    @Test
+    public void testCachedUntilChanged() throws Exception {
+        final File index = File.createTempFile("digests", ".idx", context.getFilesDir());
+        index.delete();
+
+        final File file = new File(context.getFilesDir(), INPUT_FILE[0]);
+        mkFile(INPUT_FILE[0], file);
+        final long lastModified = file.lastModified();
+
+        final DigestCache cache = new DigestCache(index);
+        assertEquals(FILE_SHA1.get(INPUT_FILE[0]), cache.sha1(file));
+        assertEquals(FILE_MD5.get(INPUT_FILE[0]), cache.md5(file));
+
+        // same length and time stamp: considered unchanged, so the stale checksum proves it was not hashed again
+        scribble(file);
+        file.setLastModified(lastModified);
+        assertEquals(FILE_SHA1.get(INPUT_FILE[0]), cache.sha1(file));
+
+        // time stamp changed: hashed again
+        file.setLastModified(lastModified - 10000);
+        assertEquals(Hasher.sha1(file), cache.sha1(file));
+
+        cache.invalidate(file);
+        assertEquals(0, cache.size());
+
+        index.delete();
+    }
+
+    @Test
+    public void testPersistence() throws Exception {
+        final File index = new File(new File(context.getFilesDir(), "cache"), "digests.idx");
+        index.delete();
+
+        final File kept = new File(context.getFilesDir(), INPUT_FILE[0]);
+        final File deleted = new File(context.getFilesDir(), INPUT_FILE[1]);
+        mkFile(INPUT_FILE[0], kept);
+        mkFile(INPUT_FILE[1], deleted);
+
+        final DigestCache cache = new DigestCache(index);
+        cache.sha1(kept);
+        cache.sha1(deleted);
+        final String md5 = cache.md5(kept);
+        cache.flush();
+        assertTrue(index.exists());
+
+        // each algorithm name is written once, and digests as raw bytes
+        assertEquals(8 + (2 + "SHA-1".length() + 4) + (2 + "MD5".length() + 4) + recordSize(kept, 20)
+                + recordSize(deleted, 20) + recordSize(kept, 16), index.length());
+
+        final long lastModified = kept.lastModified();
+        scribble(kept);
+        kept.setLastModified(lastModified);
+        deleted.delete();
+
+        final DigestCache reloaded = new DigestCache(index);
+        assertEquals(2, reloaded.size());
+        assertEquals(FILE_SHA1.get(INPUT_FILE[0]), reloaded.sha1(kept));
+        assertEquals(md5, reloaded.md5(kept));
+
+        try {
+            reloaded.sha1(deleted);
+            fail("hashed a deleted file");
+        } catch (FileNotFoundException e) {
+            // expected
+        }
+
+        index.delete();
+    }
+
+    @Test
+    public void testCorruptIndex() throws Exception {
+        final File index = File.createTempFile("digests", ".idx", context.getFilesDir());
+        final File file = new File(context.getFilesDir(), INPUT_FILE[2]);
+        mkFile(INPUT_FILE[2], file);
+
+        scribble(index);
+
+        final DigestCache cache = new DigestCache(index);
+        assertEquals(0, cache.size());
+        assertEquals(FILE_SHA1.get(INPUT_FILE[2]), cache.sha1(file));
+        cache.flush();
+
+        assertEquals(1, new DigestCache(index).size());
+        index.delete();
+    }
+
+    /**
+     * Overwrite the first byte of a file without changing its length
+     */
+    private static void scribble(final File file) throws Exception {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        final int first = raf.length() > 0 ? raf.read() : 0;
+        raf.seek(0);
+        raf.write(~first);
+        raf.close();
+    }
+
+    private static long recordSize(final File file, final int digestLength) throws IOException {
+        return 4 + file.getAbsolutePath().getBytes(Zipper.UTF8).length + 8 + 8 + 4 + digestLength;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GzipSourceTest extends BaseFileTests {
+
+    @Test
+    public void testIncrementalRead() throws IOException {
+        final byte[] original = new byte[500000];
+
+        for (int i = 0; i < original.length; i++) {
+            original[i] = (byte) (i / 7 + i % 13);
+        }
+
+        final byte[] compressed = new ZipperPool().gzip(original);
+        final GzipSource source = new GzipSource(new ByteArrayInputStream(compressed));
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        try {
+            assertEquals(original[0] & 0xff, source.read());
+            bos.write(original[0]);
+
+            final byte[] buffer = new byte[1000];
+            int read;
+
+            while ((read = source.read(buffer, 0, buffer.length)) >= 0) {
+                bos.write(buffer, 0, read);
+            }
+
+            assertEquals(-1, source.read());
+            assertEquals(original.length, source.getBytesRead());
+            assertEquals(1, source.getMemberCount());
+        } finally {
+            source.close();
+        }
+
+        assertArrayEquals(original, bos.toByteArray());
+    }
+
+    @Test
+    public void testMembers() throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(Zipper.gzip("one, "));
+        bos.write(Zipper.gzip(""));
+        bos.write(Zipper.gzip("two, "));
+        bos.write(Zipper.gzip("three"));
+        bos.write(new byte[]{'j', 'u', 'n', 'k'});
+        final byte[] compressed = bos.toByteArray();
+
+        final GzipSource all = new GzipSource(compressed);
+        assertEquals("one, two, three", toString(all.readFully()));
+        assertEquals(4, all.getMemberCount());
+        all.close();
+
+        final GzipSource first = new GzipSource(compressed, 0, compressed.length, GzipSource.UNLIMITED, true);
+        assertEquals("one, ", toString(first.readFully()));
+        assertEquals(1, first.getMemberCount());
+        first.close();
+
+        assertEquals("one, two, three", toString(Zipper.gunzip(compressed)));
+    }
+
+    @Test
+    public void testPresized() throws IOException {
+        final byte[] original = new byte[12345];
+        Arrays.fill(original, (byte) 'x');
+
+        final byte[] compressed = new ZipperPool().gzip(original);
+
+        // exactly the right size without a trimming copy is not observable, the right content is
+        assertArrayEquals(original, Zipper.gunzip(compressed, original.length));
+
+        // a lying trailer must not cause a huge allocation nor a wrong result
+        final byte[] lying = compressed.clone();
+        lying[lying.length - 1] = 0x7f;
+
+        try {
+            Zipper.gunzip(lying);
+            fail("size mismatch not detected");
+        } catch (ZipException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLimit() throws IOException {
+        // 10 MB of zeros compress to about 10 KB
+        final byte[] bomb = new ZipperPool().gzip(new byte[10 * 1024 * 1024]);
+        assertTrue(bomb.length < 20 * 1024);
+
+        try {
+            Zipper.gunzip(bomb, 1024 * 1024);
+            fail("limit not enforced");
+        } catch (ZipException e) {
+            // expected
+        }
+
+        final GzipSource source = new GzipSource(new ByteArrayInputStream(bomb), 1000);
+        final byte[] buffer = new byte[600];
+
+        try {
+            assertEquals(600, source.read(buffer));
+            assertEquals(400, source.read(buffer));
+            source.read(buffer);
+            fail("limit not enforced");
+        } catch (ZipException e) {
+            assertEquals(1000, source.getBytesRead());
+        } finally {
+            source.close();
+        }
+
+        // exactly at the limit is fine
+        assertEquals(5, Zipper.gunzip(Zipper.gzip("12345"), 5).length);
+    }
+}
@@ -23,16 +23,23 @@ import android.content.res.AssetManager;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Locale;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
 /**
  * Created by mahramf.
  */
+@SuppressWarnings("ResultOfMethodCallIgnored")
 public class HasherTest extends BaseFileTests {
     private static final String[] INPUT_STRING = {
             "This is a test",
@@ -52,6 +59,24 @@ public class HasherTest extends BaseFileTests {
             "ed9f1cfc74edf96916948babba64cdfbb3d2c7ee"
     };
 
+    private static final String[] STRING_XXH64 = {
+            "a34c1af266067da9",
+            "079cf5ceb668638d",
+            "ba5209318ea683d4"
+    };
+
+    private static final String[] STRING_MURMUR3 = {
+            "55b640f0df546da5251bd5c35be490ee",
+            "39f7849e1081f018b87c437c9b4cd43f",
+            "363164f6bfc96a9878a1b223aa6483c5"
+    };
+
+    private static final String[] STRING_CRC32C = {
+            "d8ad940d",
+            "72c0dd8f",
+            "03c0cc44"
+    };
+
     @Test
     public void testStringSHA1 () throws UnsupportedEncodingException, NoSuchAlgorithmException {
         for (int i = 0; i < INPUT_STRING.length; i++) {
@@ -122,6 +147,277 @@ public class HasherTest extends BaseFileTests {
         }
     }
 
+    @Test
+    public void testLargeFile () throws IOException, NoSuchAlgorithmException {
+        final File base = context.getFilesDir ();
+
+        for (final String filename : INPUT_FILE) {
+            final File file = new File(base, filename + ".large");
+            mkLargeFile(filename, file, Hasher.MAPPED_HASH_THRESHOLD + 1);
+
+            assertHashEquals(Hasher.sha1(new FileInputStream(file)), Hasher.sha1(file), filename);
+            assertHashEquals(Hasher.md5(new FileInputStream(file)), Hasher.md5(file), filename);
+
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testMultipleAlgorithms () throws IOException, NoSuchAlgorithmException {
+        final File base = context.getFilesDir ();
+        final AssetManager assetManager = context.getResources ().getAssets ();
+
+        for (final String filename : INPUT_FILE) {
+            final File file = new File(base, filename);
+            mkFile(filename, file);
+
+            final Digests fromFile = Hasher.hashFileWithAlgorithms(file, Hasher.MD5_ALGORITHM, Hasher.SHA_1_ALGORITHM);
+            assertHashEquals(FILE_MD5.get(filename), fromFile.md5(), filename);
+            assertHashEquals(FILE_SHA1.get(filename), fromFile.get("sha-1"), filename);
+
+            final Digests fromStream = Hasher.hashStreamWithAlgorithms(
+                    assetManager.open(filename, AssetManager.ACCESS_STREAMING), "SHA-1", "MD5", "SHA-256");
+            assertHashEquals(FILE_MD5.get(filename), fromStream.md5(), filename);
+            assertHashEquals(FILE_SHA1.get(filename), fromStream.sha1(), filename);
+            assertEquals(64, fromStream.get("SHA-256").length());
+        }
+
+        final File large = new File(base, "multi.large");
+        mkLargeFile(INPUT_FILE[0], large, Hasher.MAPPED_HASH_THRESHOLD + 1);
+
+        final Digests digests = Hasher.hashFileWithAlgorithms(large, Hasher.MD5_ALGORITHM, Hasher.SHA_1_ALGORITHM);
+        assertHashEquals(Hasher.md5(large), digests.md5(), large.getName());
+        assertHashEquals(Hasher.sha1(large), digests.sha1(), large.getName());
+
+        large.delete();
+    }
+
+    @Test
+    public void testDigestIntoArray () throws UnsupportedEncodingException, NoSuchAlgorithmException {
+        final byte[] out = new byte[32];
+
+        for (int i = 0; i < INPUT_STRING.length; i++) {
+            final byte[] input = INPUT_STRING[i].getBytes("UTF-8");
+
+            final int sha1Length = Hasher.digestWithAlgorithm(input, 0, input.length, "SHA-1", out, 4);
+            assertEquals(Hasher.getDigestLength("SHA-1"), sha1Length);
+            assertHashEquals(STRING_SHA1[i], Hasher.encodeHexString(Arrays.copyOfRange(out, 4, 4 + sha1Length)),
+                    INPUT_STRING[i]);
+
+            // the same pooled engine must come back reset
+            final int md5Length = Hasher.digestWithAlgorithm(input, 0, input.length, "MD5", out, 0);
+            assertHashEquals(STRING_MD5[i], Hasher.encodeHexString(Arrays.copyOf(out, md5Length)), INPUT_STRING[i]);
+            assertHashEquals(STRING_MD5[i], Hasher.md5(INPUT_STRING[i]), INPUT_STRING[i]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDigestIntoShortArray () throws NoSuchAlgorithmException {
+        Hasher.digestWithAlgorithm(new byte[10], 0, 10, "SHA-1", new byte[20], 1);
+    }
+
+    @Test
+    public void testCharSequence () throws UnsupportedEncodingException, NoSuchAlgorithmException {
+        final char[] hex = new char[40];
+        final long[] longs = new long[2];
+        final byte[] raw = new byte[16];
+
+        for (int i = 0; i < INPUT_STRING.length; i++) {
+            final StringBuilder builder = new StringBuilder(INPUT_STRING[i]);
+
+            assertHashEquals(STRING_SHA1[i], Hasher.hashCharsWithAlgorithm(builder, "SHA-1", new StringBuilder())
+                    .toString(), INPUT_STRING[i]);
+
+            assertEquals(40, Hasher.hashCharsWithAlgorithm(builder, "SHA-1", hex, 0));
+            assertHashEquals(STRING_SHA1[i], new String(hex), INPUT_STRING[i]);
+
+            assertEquals(16, Hasher.digestWithAlgorithm(builder, "MD5", raw, 0));
+            assertHashEquals(STRING_MD5[i], Hasher.encodeHexString(raw), INPUT_STRING[i]);
+
+            assertEquals(2, Hasher.digestWithAlgorithm(builder, "MD5", longs));
+            assertHashEquals(STRING_MD5[i], String.format(Locale.ENGLISH, "%016x%016x", longs[0], longs[1]),
+                    INPUT_STRING[i]);
+        }
+    }
+
+    @Test
+    public void testCharSequenceEncoding () throws UnsupportedEncodingException, NoSuchAlgorithmException {
+        final Random random = new Random(42);
+        final StringBuilder builder = new StringBuilder();
+
+        // every encoding length, lone surrogates, and long enough to span several scratch buffers
+        for (int i = 0; i < 5000; i++) {
+            switch (random.nextInt(6)) {
+                case 0:
+                    builder.append((char) random.nextInt(0x80));
+                    break;
+                case 1:
+                    builder.append((char) (0x80 + random.nextInt(0x800 - 0x80)));
+                    break;
+                case 2:
+                    builder.append((char) (0x800 + random.nextInt(0xd800 - 0x800)));
+                    break;
+                case 3:
+                    builder.appendCodePoint(0x10000 + random.nextInt(0x10ffff - 0x10000));
+                    break;
+                case 4:
+                    builder.append((char) (0xd800 + random.nextInt(0x800)));
+                    break;
+                default:
+                    builder.append((char) (0xe000 + random.nextInt(0x2000)));
+            }
+
+            if (i % 250 == 0) {
+                final String string = builder.toString();
+                final String expected = Hasher.encodeHexString(
+                        MessageDigest.getInstance("SHA-1").digest(string.getBytes("UTF-8")));
+
+                assertHashEquals(expected, Hasher.sha1(string), "random " + i);
+            }
+        }
+    }
+
+    @Test
+    public void testIncremental () throws IOException, NoSuchAlgorithmException {
+        final IncrementalHasher sha1 = Hasher.newHasher("SHA-1");
+        final IncrementalHasher md5 = IncrementalHasher.md5();
+
+        for (int i = 0; i < INPUT_STRING.length; i++) {
+            final byte[] bytes = INPUT_STRING[i].getBytes("UTF-8");
+            final int half = bytes.length / 2;
+
+            sha1.update(bytes, 0, half).update(ByteBuffer.wrap(bytes, half, bytes.length - half));
+            assertEquals(bytes.length, sha1.getByteCount());
+            assertHashEquals(STRING_SHA1[i], sha1.finishHex(), INPUT_STRING[i]);
+            assertEquals(0, sha1.getByteCount());
+
+            md5.update((byte) 'x');
+            md5.reset();
+            md5.update(new StringBuilder(INPUT_STRING[i]));
+            assertHashEquals(STRING_MD5[i], md5.finishHex(), INPUT_STRING[i]);
+        }
+    }
+
+    @Test
+    public void testHashingStreams () throws IOException, NoSuchAlgorithmException {
+        final AssetManager assetManager = context.getResources ().getAssets ();
+        final File compressed = File.createTempFile("hashing", ".gz", context.getFilesDir ());
+
+        for (final String filename : INPUT_FILE) {
+            final HashingInputStream in =
+                    new HashingInputStream(assetManager.open(filename, AssetManager.ACCESS_STREAMING), "SHA-1");
+            final HashingOutputStream out = new HashingOutputStream(new FileOutputStream(compressed), "MD5");
+
+            Zipper.gzip(in, out);
+            in.close();
+
+            assertHashEquals(FILE_SHA1.get(filename), in.getHasher().finishHex(), filename);
+            assertEquals(compressed.length(), out.getHasher().getByteCount());
+            assertHashEquals(Hasher.md5(compressed), out.getHasher().finishHex(), filename);
+
+            final HashingInputStream skipping = new HashingInputStream(new FileInputStream(compressed), "MD5");
+            assertEquals(0, skipping.skip(-1));
+            assertEquals(0, skipping.skip(0));
+            assertEquals(compressed.length(), skipping.skip(Long.MAX_VALUE));
+            skipping.close();
+            assertHashEquals(Hasher.md5(compressed), skipping.getHasher().finishHex(), filename);
+        }
+
+        compressed.delete();
+    }
+
+    @Test
+    public void testStringFastHashes () {
+        for (int i = 0; i < INPUT_STRING.length; i++) {
+            assertHashEquals (STRING_XXH64[i], Hasher.xxHash64 (INPUT_STRING[i]), INPUT_STRING[i]);
+            assertHashEquals (STRING_MURMUR3[i], Hasher.murmur3 (INPUT_STRING[i]), INPUT_STRING[i]);
+            assertHashEquals (STRING_CRC32C[i], Hasher.crc32c (INPUT_STRING[i]), INPUT_STRING[i]);
+        }
+
+        assertHashEquals ("e3069283", Hasher.crc32c ("123456789"), "crc32c check value");
+        assertHashEquals ("ef46db3751d8e999", Hasher.xxHash64 (""), "empty xxh64");
+    }
+
+    @Test
+    public void testFileFastHashes () throws IOException, NoSuchAlgorithmException {
+        final File base = context.getFilesDir ();
+        final String[] algorithms = {
+                Hasher.XXHASH64_ALGORITHM, Hasher.MURMUR3_128_ALGORITHM, Hasher.CRC32C_ALGORITHM
+        };
+
+        for (final String filename : INPUT_FILE) {
+            final File small = new File(base, filename);
+            mkFile(filename, small);
+
+            final File large = new File(base, filename + ".large");
+            mkLargeFile(filename, large, Hasher.MAPPED_HASH_THRESHOLD + 1);
+
+            for (final File file : new File[]{small, large}) {
+                final Digests digests = Hasher.hashStreamWithAlgorithms(new FileInputStream(file), algorithms);
+
+                assertHashEquals(digests.get(Hasher.XXHASH64_ALGORITHM), Hasher.xxHash64(file), file.getName());
+                assertHashEquals(digests.get(Hasher.MURMUR3_128_ALGORITHM), Hasher.murmur3(file), file.getName());
+                assertHashEquals(digests.get(Hasher.CRC32C_ALGORITHM), Hasher.crc32c(file), file.getName());
+                assertHashEquals(Hasher.xxHash64(file), Hasher.xxHash64(new FileInputStream(file)), file.getName());
+            }
+
+            large.delete();
+        }
+    }
+
+    @Test
+    public void testHexRoundTrip () {
+        final byte[] all = new byte[256];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = (byte) i;
+        }
+
+        final String hex = Hasher.encodeHexString(all);
+        assertArrayEquals(all, Hasher.decodeHex(hex));
+        assertArrayEquals(all, Hasher.decodeHex(hex.toUpperCase(Locale.ENGLISH)));
+
+        final char[] chars = new char[6];
+        assertEquals(4, Hasher.encodeHex(all, 254, 2, chars, 1));
+        assertEquals("feff", new String(chars, 1, 4));
+        assertEquals(">0f10", Hasher.encodeHex(all, 15, 2, new StringBuilder(">")).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHexInvalid () {
+        Hasher.decodeHex("0g");
+    }
+
+    @Test
+    public void testBase64 () throws UnsupportedEncodingException {
+        // RFC 4648 test vectors
+        final String[] input = {"", "f", "fo", "foo", "foob", "fooba", "foobar"};
+        final String[] expected = {"", "Zg==", "Zm8=", "Zm9v", "Zm9vYg==", "Zm9vYmE=", "Zm9vYmFy"};
+
+        for (int i = 0; i < input.length; i++) {
+            final byte[] bytes = input[i].getBytes("UTF-8");
+            assertEquals(expected[i], Hasher.encodeBase64(bytes));
+            assertEquals(expected[i].replace("=", ""), Hasher.encodeBase64Url(bytes));
+        }
+
+        assertEquals("-_8", Hasher.encodeBase64Url(new byte[]{(byte) 0xfb, (byte) 0xff}));
+        assertEquals("+/8=", Hasher.encodeBase64(new byte[]{(byte) 0xfb, (byte) 0xff}));
+    }
+
+    @Test
+    public void testDigestEquals () {
+        final byte[] digest = Hasher.decodeHex(STRING_SHA1[0]);
+
+        assertTrue(Hasher.digestEquals(digest, Hasher.decodeHex(STRING_SHA1[0])));
+        assertFalse(Hasher.digestEquals(digest, Hasher.decodeHex(STRING_SHA1[1])));
+        assertFalse(Hasher.digestEquals(digest, new byte[digest.length - 1]));
+
+        assertTrue(Hasher.digestEquals(digest, STRING_SHA1[0]));
+        assertTrue(Hasher.digestEquals(digest, STRING_SHA1[0].toUpperCase(Locale.ENGLISH)));
+        assertFalse(Hasher.digestEquals(digest, STRING_SHA1[1]));
+        assertFalse(Hasher.digestEquals(digest, STRING_SHA1[0].substring(2)));
+        assertFalse(Hasher.digestEquals(digest, "z" + STRING_SHA1[0].substring(1)));
+    }
+
     private void assertHashEquals (final String expected, final String actual, final String id) {
         if (expected.equalsIgnoreCase (actual)) {
             return;
@@ -0,0 +1,98 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@SuppressWarnings("ResultOfMethodCallIgnored")
+public class ParallelGzipTest extends BaseFileTests {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final Random random = new Random(7);
+        final int[] sizes = {0, 1, 1000, ParallelGzip.BLOCK_SIZE - 1, ParallelGzip.BLOCK_SIZE,
+                ParallelGzip.BLOCK_SIZE + 1, 5 * ParallelGzip.BLOCK_SIZE + 12345};
+
+        for (final int size : sizes) {
+            final byte[] input = new byte[size];
+
+            // compressible but not trivially so
+            for (int i = 0; i < size; i++) {
+                input[i] = (byte) ('a' + random.nextInt(8));
+            }
+
+            for (final int threads : new int[]{1, 4}) {
+                final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                Zipper.gzipParallel(new ByteArrayInputStream(input), compressed, threads);
+
+                // stock GZIPInputStream must read it
+                assertArrayEquals("size " + size + " threads " + threads, input,
+                        Zipper.gunzip(compressed.toByteArray()));
+            }
+        }
+    }
+
+    @Test
+    public void testFiles() throws Exception {
+        final File original = new File(context.getFilesDir(), "parallel.original");
+        final File compressed = new File(context.getFilesDir(), "parallel.gz");
+        final File decompressed = new File(context.getFilesDir(), "parallel.decompressed");
+
+        for (final String filename : INPUT_FILE) {
+            mkLargeFile(filename, original, 3 * ParallelGzip.BLOCK_SIZE);
+
+            Zipper.gzipParallel(original, compressed, 3);
+            Zipper.gunzip(compressed, decompressed);
+
+            assertEquals(Hasher.sha1(original), Hasher.sha1(decompressed));
+        }
+
+        original.delete();
+        compressed.delete();
+        decompressed.delete();
+    }
+
+    @Test
+    public void testCrcCombine() {
+        final byte[] data = new byte[10000];
+        new Random(3).nextBytes(data);
+
+        final CRC32 whole = new CRC32();
+        whole.update(data);
+
+        for (final int split : new int[]{0, 1, 4321, data.length}) {
+            final CRC32 first = new CRC32();
+            final CRC32 second = new CRC32();
+            first.update(data, 0, split);
+            second.update(data, split, data.length - split);
+
+            assertEquals(whole.getValue(),
+                    GzipFormat.crc32Combine(first.getValue(), second.getValue(), data.length - split));
+        }
+    }
+}
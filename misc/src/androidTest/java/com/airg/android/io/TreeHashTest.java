@@ -0,0 +1,146 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+@SuppressWarnings("ResultOfMethodCallIgnored")
+public class TreeHashTest extends BaseFileTests {
+    private static final int[] CHUNK_SIZES = {1, 100, 4096, Hasher.TREE_HASH_CHUNK_SIZE};
+    private static final int[] THREADS = {1, 2, 3, 8};
+
+    @Test
+    public void testMatchesReference() throws IOException, NoSuchAlgorithmException {
+        final File base = context.getFilesDir();
+
+        for (final String filename : INPUT_FILE) {
+            final File file = new File(base, filename);
+            mkFile(filename, file);
+
+            for (final int chunkSize : CHUNK_SIZES) {
+                final String expected = referenceTreeHash(file, Hasher.SHA_1_ALGORITHM, chunkSize);
+
+                for (final int threads : THREADS) {
+                    assertEquals(filename + " chunk " + chunkSize + " threads " + threads, expected,
+                            Hasher.treeHash(file, Hasher.SHA_1_ALGORITHM, chunkSize, threads));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLargeFile() throws IOException, NoSuchAlgorithmException {
+        final File file = new File(context.getFilesDir(), "tree.large");
+        mkLargeFile(INPUT_FILE[0], file, 3 * Hasher.TREE_HASH_CHUNK_SIZE + 17);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            assertEquals(referenceTreeHash(file, Hasher.SHA_1_ALGORITHM, Hasher.TREE_HASH_CHUNK_SIZE),
+                    Hasher.treeSha1(file));
+            assertEquals(referenceTreeHash(file, Hasher.MD5_ALGORITHM, Hasher.TREE_HASH_CHUNK_SIZE),
+                    Hasher.treeHash(file, Hasher.MD5_ALGORITHM, Hasher.TREE_HASH_CHUNK_SIZE, executor));
+        } finally {
+            executor.shutdown();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException, NoSuchAlgorithmException {
+        final File file = File.createTempFile("tree", ".empty", context.getFilesDir());
+
+        assertEquals(referenceTreeHash(file, Hasher.SHA_1_ALGORITHM, 4096),
+                Hasher.treeHash(file, Hasher.SHA_1_ALGORITHM, 4096, 2));
+
+        file.delete();
+    }
+
+    @Test
+    public void testChunkSizeMatters() throws IOException, NoSuchAlgorithmException {
+        final File file = new File(context.getFilesDir(), INPUT_FILE[0]);
+        mkFile(INPUT_FILE[0], file);
+
+        assertNotEquals(Hasher.treeHash(file, Hasher.SHA_1_ALGORITHM, 100, 1),
+                Hasher.treeHash(file, Hasher.SHA_1_ALGORITHM, 101, 1));
+        assertNotEquals(Hasher.sha1(file), Hasher.treeSha1(file));
+    }
+
+    /**
+     * Straight forward serial implementation of the documented tree hash format
+     */
+    private static String referenceTreeHash(final File file, final String algorithm, final int chunkSize)
+            throws IOException, NoSuchAlgorithmException {
+        final InputStream in = new FileInputStream(file);
+        final ByteArrayOutputStream leaves = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[chunkSize];
+
+        int read;
+
+        while ((read = readFully(in, chunk)) > 0) {
+            final MessageDigest leaf = MessageDigest.getInstance(algorithm);
+            leaf.update((byte) 0);
+            leaf.update(chunk, 0, read);
+            leaves.write(leaf.digest());
+        }
+        in.close();
+
+        final MessageDigest root = MessageDigest.getInstance(algorithm);
+        root.update((byte) 1);
+        root.update(bigEndian(chunkSize));
+        root.update(bigEndian(file.length()));
+        root.update(leaves.toByteArray());
+
+        return Hasher.encodeHexString(root.digest());
+    }
+
+    private static int readFully(final InputStream in, final byte[] buffer) throws IOException {
+        int total = 0;
+        int read;
+
+        while (total < buffer.length && (read = in.read(buffer, total, buffer.length - total)) > 0) {
+            total += read;
+        }
+
+        return total;
+    }
+
+    private static byte[] bigEndian(final long value) {
+        final byte[] bytes = new byte[8];
+
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (value >>> (56 - 8 * i));
+        }
+
+        return bytes;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@SuppressWarnings("ResultOfMethodCallIgnored")
+public class ZipArchiveTest extends BaseFileTests {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final File source = new File(context.getFilesDir(), "zip_source");
+        final File media = new File(source, "media");
+        media.mkdirs();
+
+        for (final String filename : INPUT_FILE) {
+            mkFile(filename, new File(source, filename));
+        }
+
+        // pretend one of them is already compressed: it must be stored
+        mkFile(INPUT_FILE[0], new File(media, "photo.jpg"));
+
+        final File archive = new File(context.getFilesDir(), "test.zip");
+        Zipper.zip(source, archive);
+
+        final ZipArchive zip = new ZipArchive(archive);
+
+        try {
+            assertEquals(INPUT_FILE.length + 2, zip.size());
+            assertEquals(ZipEntry.STORED, zip.getEntry("media/photo.jpg").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry(INPUT_FILE[0]).getMethod());
+            assertTrue(zip.getEntry("media/").isDirectory());
+            assertNull(zip.getEntry("missing"));
+
+            // random access to a single entry
+            final byte[] single = zip.read("media/photo.jpg");
+            final File copy = new File(context.getFilesDir(), "photo.jpg");
+            final FileOutputStream out = new FileOutputStream(copy);
+            out.write(single);
+            out.close();
+            assertEquals(FILE_SHA1.get(INPUT_FILE[0]), hash(copy));
+            copy.delete();
+        } finally {
+            zip.close();
+        }
+
+        for (final int parallelism : new int[]{1, 3}) {
+            final File target = new File(context.getFilesDir(), "zip_target" + parallelism);
+            final List<File> files = Zipper.unzip(archive, target, parallelism);
+
+            assertEquals(INPUT_FILE.length + 2, files.size());
+
+            for (final String filename : INPUT_FILE) {
+                assertEquals(FILE_SHA1.get(filename), hash(new File(target, filename)));
+            }
+
+            assertEquals(FILE_SHA1.get(INPUT_FILE[0]), hash(new File(target, "media/photo.jpg")));
+        }
+
+        archive.delete();
+    }
+
+    @Test
+    public void testStreamedEntries() throws Exception {
+        final File archive = new File(context.getFilesDir(), "streamed.zip");
+        final ZipWriter writer = new ZipWriter(new FileOutputStream(archive), GzipOptions.FAST);
+
+        try {
+            writer.add("a.txt", context.getResources().getAssets().open(INPUT_FILE[1]))
+                    .add("b.bin", new byte[]{1, 2, 3}, true)
+                    .addDirectory("empty");
+        } finally {
+            writer.close();
+        }
+
+        final ZipArchive zip = new ZipArchive(archive);
+
+        try {
+            assertArrayEquals(new byte[]{1, 2, 3}, zip.read("b.bin"));
+            assertNotNull(zip.getEntry("empty/"));
+
+            final File target = new File(context.getFilesDir(), "streamed");
+            zip.extract("a.txt", target);
+            assertEquals(FILE_SHA1.get(INPUT_FILE[1]), hash(new File(target, "a.txt")));
+
+            try {
+                zip.open("nope");
+                fail("opened a missing entry");
+            } catch (FileNotFoundException e) {
+                // expected
+            }
+        } finally {
+            zip.close();
+            archive.delete();
+        }
+    }
+
+    @Test
+    public void testZipSlip() throws IOException {
+        final File archive = new File(context.getFilesDir(), "evil.zip");
+        final ZipWriter writer = new ZipWriter(new FileOutputStream(archive));
+
+        try {
+            writer.add("fine.txt", new byte[]{1}, false).add("../../evil.txt", new byte[]{2}, false);
+        } finally {
+            writer.close();
+        }
+
+        final File target = new File(context.getFilesDir(), "slip/target");
+
+        try {
+            Zipper.unzip(archive, target, 2);
+            fail("extracted outside of the target directory");
+        } catch (ZipException e) {
+            // expected
+        }
+
+        // nothing is written when any entry is rejected
+        assertFalse(new File(target, "fine.txt").exists());
+        assertFalse(new File(context.getFilesDir(), "evil.txt").exists());
+        archive.delete();
+    }
+
+    @Test
+    public void testCompressedExtensions() {
+        assertTrue(ZipWriter.isCompressed("a/b/Photo.JPG"));
+        assertTrue(ZipWriter.isCompressed("x.tar.gz"));
+        assertFalse(ZipWriter.isCompressed("notes.txt"));
+        assertFalse(ZipWriter.isCompressed("jpg"));
+    }
+}
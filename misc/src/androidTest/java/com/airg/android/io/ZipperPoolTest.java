@@ -0,0 +1,155 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ZipperPoolTest extends BaseFileTests {
+    private static final String MESSAGE = "{\"id\":12345,\"type\":\"message\",\"from\":\"someone\",\"text\":\"hello "
+            + "there, hello there, hello there\"}";
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final ZipperPool pool = new ZipperPool(GzipOptions.FAST, 2);
+
+        try {
+            for (int i = 0; i < 100; i++) {
+                final String message = MESSAGE + i;
+                final byte[] compressed = pool.gzip(message);
+
+                // interoperates with the stream based implementation both ways
+                assertEquals(message, toString(Zipper.gunzip(compressed)));
+                assertEquals(message, toString(pool.gunzip(compressed)));
+                assertEquals(message, toString(pool.gunzip(Zipper.gzip(message))));
+            }
+
+            // engines are reused rather than accumulated
+            assertEquals(2, pool.idleCount());
+
+            assertEquals(0, pool.gunzip(pool.gzip(new byte[0])).length);
+        } finally {
+            pool.close();
+        }
+
+        assertEquals(0, pool.idleCount());
+    }
+
+    @Test
+    public void testRanges() throws IOException {
+        final ZipperPool pool = new ZipperPool();
+
+        try {
+            final byte[] data = new byte[200000];
+
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) (i * 31 >>> 5);
+            }
+
+            final byte[] compressed = pool.gzip(data, 100, data.length - 200);
+            assertArrayEquals(Arrays.copyOfRange(data, 100, data.length - 100), pool.gunzip(compressed));
+
+            // concatenated members, surrounded by unrelated bytes
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            bos.write(new byte[]{1, 2, 3});
+            bos.write(pool.gzip("one "));
+            bos.write(pool.gzip("two"));
+            final byte[] both = bos.toByteArray();
+
+            assertEquals("one two", toString(pool.gunzip(both, 3, both.length - 3)));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testConcurrentUse() throws Exception {
+        final ZipperPool pool = new ZipperPool();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            final Future<?>[] futures = new Future<?>[8];
+
+            for (int t = 0; t < futures.length; t++) {
+                final int thread = t;
+
+                futures[t] = executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < 200; i++) {
+                            final String message = MESSAGE + thread + '/' + i;
+                            assertEquals(message, ZipperPoolTest.this.toString(pool.gunzip(pool.gzip(message))));
+                        }
+
+                        return null;
+                    }
+                });
+            }
+
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testClosed() throws IOException {
+        final ZipperPool pool = new ZipperPool();
+        pool.close();
+        pool.close(); // idempotent
+
+        try {
+            pool.gzip(MESSAGE);
+            fail("closed pool still compresses");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = ZipException.class)
+    public void testCorrupt() throws IOException {
+        final ZipperPool pool = new ZipperPool();
+
+        try {
+            final byte[] compressed = pool.gzip(MESSAGE);
+            compressed[compressed.length - 1]++; // ISIZE
+            pool.gunzip(compressed);
+        } finally {
+            assertTrue(pool.idleCount() <= 2);
+            pool.close();
+        }
+    }
+}
@@ -22,9 +22,18 @@ import junit.framework.Assert;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.zip.ZipException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -95,4 +104,117 @@ public class ZipperTest extends BaseFileTests {
         compressed.delete();
         decompressed.delete();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testOptions() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 5000; i++) {
+            sb.append("line ").append(i % 97).append(" of a fairly repetitive payload\n");
+        }
+
+        final String test = sb.toString();
+        final GzipOptions tiny = GzipOptions.builder().bufferSize(7).strategy(Deflater.FILTERED).build();
+        final GzipOptions[] options = {GzipOptions.DEFAULT, GzipOptions.FAST, GzipOptions.BEST, tiny,
+                GzipOptions.builder().level(Deflater.NO_COMPRESSION).build()};
+
+        for (final GzipOptions option : options) {
+            assertEquals(option.toString(), test, toString(Zipper.gunzip(Zipper.gzip(test, option), tiny)));
+        }
+
+        assertTrue(Zipper.gzip(test, GzipOptions.BEST).length < Zipper.gzip(test, GzipOptions.FAST).length);
+        assertTrue(Zipper.gzip(test, options[4]).length > test.length());
+    }
+
+    @Test
+    public void testSyncFlush() throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final GZIPOutputStream gos = Zipper.gzipStream(bos, GzipOptions.builder().syncFlush(true).build());
+        final byte[] message = "partial message".getBytes(Zipper.UTF8);
+
+        gos.write(message);
+        gos.flush();
+
+        // everything written so far must be readable before the stream is finished
+        final byte[] decompressed = new byte[message.length];
+        final int read = Zipper.gunzipStream(new ByteArrayInputStream(bos.toByteArray()), GzipOptions.DEFAULT)
+                .read(decompressed);
+
+        assertEquals(message.length, read);
+        assertArrayEquals(message, decompressed);
+        gos.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLevel() {
+        GzipOptions.builder().level(10);
+    }
+
+    @Test
+    public void testByteBuffers() throws IOException {
+        final byte[] original = new byte[300000];
+
+        for (int i = 0; i < original.length; i++) {
+            original[i] = (byte) (i % 251 ^ i / 1000);
+        }
+
+        final ByteBuffer direct = ByteBuffer.allocateDirect(original.length);
+        direct.put(original).flip();
+
+        final ByteBuffer compressed = Zipper.gzip(direct, GzipOptions.FAST);
+        assertEquals(direct.limit(), direct.position());
+
+        // readable by the stream based implementation
+        final byte[] bytes = new byte[compressed.remaining()];
+        compressed.duplicate().get(bytes);
+        assertArrayEquals(original, Zipper.gunzip(bytes));
+
+        final ByteBuffer compressedDirect = ByteBuffer.allocateDirect(compressed.remaining());
+        compressedDirect.put(compressed).flip();
+
+        final ByteBuffer decompressed = Zipper.gunzip(compressedDirect);
+        assertEquals(original.length, decompressed.remaining());
+        assertEquals(ByteBuffer.wrap(original), decompressed);
+        assertEquals(original.length, decompressed.capacity()); // sized from the trailer, not the input
+
+        assertEquals(0, Zipper.gunzip(Zipper.gzip(ByteBuffer.allocate(0))).remaining());
+    }
+
+    @Test
+    public void testChannels() throws IOException {
+        final byte[] first = Zipper.gzip("first member, ");
+        final byte[] second = Zipper.gzip("second member");
+
+        // concatenated members with a header carrying a file name and a comment
+        final ByteArrayOutputStream named = new ByteArrayOutputStream();
+        named.write(new byte[]{0x1f, (byte) 0x8b, 8, 8 | 16, 0, 0, 0, 0, 0, 3});
+        named.write("name.txt\0a comment\0".getBytes(Zipper.UTF8));
+        named.write(second, GzipFormat.HEADER_SIZE, second.length - GzipFormat.HEADER_SIZE);
+
+        final ByteArrayOutputStream input = new ByteArrayOutputStream();
+        input.write(first);
+        input.write(named.toByteArray());
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Zipper.gunzip(Channels.newChannel(new ByteArrayInputStream(input.toByteArray())),
+                Channels.newChannel(output), GzipOptions.builder().bufferSize(3).build());
+
+        assertEquals("first member, second member", toString(output.toByteArray()));
+        assertEquals("first member, second member", toString(Zipper.gunzip(input.toByteArray())));
+    }
+
+    @Test(expected = ZipException.class)
+    public void testCorruptChannelInput() throws IOException {
+        final byte[] compressed = Zipper.gzip("some text that will be corrupted");
+        compressed[compressed.length - 6] ^= 1; // CRC
+
+        Zipper.gunzip(ByteBuffer.wrap(compressed));
+    }
+
+    @Test(expected = ZipException.class)
+    public void testNotGzip() throws IOException {
+        final byte[] garbage = new byte[100];
+        Arrays.fill(garbage, (byte) 7);
+        Zipper.gunzip(ByteBuffer.wrap(garbage));
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.util;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ArrayHashCacheTest {
+
+    @Test
+    public void testLru() {
+        final List<String> evicted = new ArrayList<>();
+        final ArrayHashCache<String, Integer> cache = ArrayHashCache.<String, Integer>builder()
+                .maxSize(3)
+                .listener(new ArrayHashCache.EvictionListener<String, Integer>() {
+                    @Override
+                    public void onEvicted(@NonNull final String key, @NonNull final Integer value) {
+                        evicted.add(key + "=" + value);
+                    }
+                })
+                .build();
+
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        assertEquals(1, (int) cache.get("a")); // a is now the most recent
+        cache.put("d", 4);
+
+        assertEquals(Arrays.asList("b=2"), evicted);
+        assertEquals(Arrays.asList("c", "a", "d"), cache.keys());
+        assertNull(cache.get("b"));
+        assertEquals(3, (int) cache.peek("c")); // no promotion
+        cache.put("e", 5);
+
+        assertEquals(Arrays.asList("b=2", "c=3"), evicted);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getEvictionCount());
+        assertEquals(3, cache.size());
+
+        assertEquals(1, (int) cache.remove("a"));
+        assertEquals(2, evicted.size()); // removal is not eviction
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertFalse(cache.containsKey("d"));
+    }
+
+    @Test
+    public void testLfu() {
+        final ArrayHashCache<String, Integer> cache = ArrayHashCache.<String, Integer>builder()
+                .policy(ArrayHashCache.Policy.LFU)
+                .maxSize(3)
+                .build();
+
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        cache.get("c");
+
+        // b and c were used twice, c last; a three times
+        assertEquals(Arrays.asList("b", "c", "a"), cache.keys());
+
+        cache.put("d", 4); // evicts b
+        assertFalse(cache.containsKey("b"));
+        cache.put("e", 5); // d has the fewest uses
+        assertFalse(cache.containsKey("d"));
+        assertEquals(Arrays.asList("e", "c", "a"), cache.keys());
+
+        cache.remove("c");
+        cache.put("c", 3); // starts over
+        assertEquals(Arrays.asList("e", "c", "a"), cache.keys());
+    }
+
+    @Test
+    public void testWeight() {
+        final List<String> evicted = new ArrayList<>();
+        final ArrayHashCache<String, byte[]> cache = ArrayHashCache.<String, byte[]>builder()
+                .maxWeight(100, new ArrayHashCache.Weigher<String, byte[]>() {
+                    @Override
+                    public int weigh(@NonNull final String key, @NonNull final byte[] value) {
+                        return value.length;
+                    }
+                })
+                .listener(new ArrayHashCache.EvictionListener<String, byte[]>() {
+                    @Override
+                    public void onEvicted(@NonNull final String key, @NonNull final byte[] value) {
+                        evicted.add(key + "=" + value.length);
+                    }
+                })
+                .build();
+
+        cache.put("a", new byte[40]);
+        cache.put("b", new byte[40]);
+        assertEquals(80, cache.getWeight());
+
+        cache.put("a", new byte[10]);
+        assertEquals(50, cache.getWeight());
+
+        cache.put("c", new byte[60]); // evicts b, the least recently used
+        assertEquals(Arrays.asList("a", "c"), cache.keys());
+        assertEquals(70, cache.getWeight());
+
+        assertEquals(Arrays.asList("b=40"), evicted);
+
+        cache.put("d", new byte[101]); // too heavy on its own: not stored, and the rest stays
+        assertEquals(Arrays.asList("a", "c"), cache.keys());
+        assertEquals(70, cache.getWeight());
+        assertNull(cache.peek("d"));
+        assertEquals(Arrays.asList("b=40", "d=101"), evicted);
+
+        assertEquals(10, cache.put("a", new byte[101]).length); // drops the old value too
+        assertEquals(Arrays.asList("c"), cache.keys());
+        assertEquals(60, cache.getWeight());
+        assertEquals(Arrays.asList("b=40", "d=101", "a=101"), evicted);
+        assertEquals(3, cache.getEvictionCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnbounded() {
+        ArrayHashCache.builder().policy(ArrayHashCache.Policy.LFU).build();
+    }
+
+    @Test
+    public void testManyEntries() {
+        for (final ArrayHashCache.Policy policy : ArrayHashCache.Policy.values()) {
+            final ArrayHashCache<Integer, Integer> cache = ArrayHashCache.<Integer, Integer>builder()
+                    .policy(policy)
+                    .maxSize(1000)
+                    .build();
+
+            for (int i = 0; i < 100000; i++) {
+                cache.put(i, i);
+                cache.get(i / 2);
+                cache.get(i % 100); // hot keys
+            }
+
+            assertEquals(1000, cache.size());
+
+            for (int i = 0; i < 100; i++) {
+                assertTrue(cache.containsKey(i));
+            }
+        }
+    }
+}
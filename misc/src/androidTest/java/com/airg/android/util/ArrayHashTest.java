@@ -0,0 +1,369 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ArrayHashTest {
+
+    @Test
+    public void testOrder() {
+        final ArrayHash<String, Integer> hash = new ArrayHash<>();
+
+        hash.put("b", 2);
+        hash.put("c", 3);
+        hash.putHead("a", 1);
+        hash.put("d", 4);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), hash.getOrderedKeys());
+
+        hash.put("b", 22); // re-put moves to the end
+        hash.putAtIndex(1, "e", 5);
+        assertEquals(Arrays.asList("a", "e", "c", "d", "b"), hash.getOrderedKeys());
+        assertEquals(22, (int) hash.getAtIndex(4));
+        assertEquals(1, hash.indexOf("e"));
+        assertEquals(-1, hash.indexOf("z"));
+
+        assertEquals(1, (int) hash.removeHead());
+        assertEquals(3, (int) hash.remove("c"));
+        assertEquals(4, (int) hash.removeAtIndex(1));
+        assertNull(hash.remove("c"));
+        assertNull(hash.removeAtIndex(5));
+        assertNull(hash.getAtIndex(-1));
+        assertEquals(Arrays.asList("e", "b"), hash.getOrderedKeys());
+        assertEquals("b", hash.keyAtIndex(1));
+
+        hash.clear();
+        assertEquals(0, hash.size());
+        assertNull(hash.removeHead());
+    }
+
+    @Test
+    public void testNulls() {
+        final ArrayHash<String, String> hash = new ArrayHash<>();
+
+        try {
+            hash.put(null, "value");
+            fail("null key accepted");
+        } catch (NullPointerException expected) {
+            // no null keys
+        }
+
+        try {
+            hash.putHead("key", null);
+            fail("null value accepted");
+        } catch (NullPointerException expected) {
+            // no null values
+        }
+
+        try {
+            hash.putAtIndex(1, "key", "value");
+            fail("put beyond the end");
+        } catch (IndexOutOfBoundsException expected) {
+            // out of bounds
+        }
+
+        assertEquals(0, hash.size());
+    }
+
+    @Test
+    public void testRemoveValue() {
+        final ArrayHash<String, String> hash = new ArrayHash<>();
+        final String value = "value";
+
+        hash.put("a", "other");
+        hash.put("b", value);
+
+        assertTrue(hash.removeValue(value));
+        assertEquals(Arrays.asList("a"), hash.getOrderedKeys());
+        assertFalse(hash.removeValue(value));
+    }
+
+    @Test
+    public void testValueIndex() {
+        final ArrayHash<String, Object> hash = new ArrayHash<>();
+        final Object shared = new Object();
+        final Object single = new Object();
+
+        hash.put("a", shared);
+        hash.put("b", single);
+        hash.enableValueIndex();
+        hash.put("c", shared);
+
+        assertTrue(hash.isValueIndexed());
+        assertEquals("b", hash.keyOf(single));
+        assertEquals("a", hash.keyOf(shared));
+        assertNull(hash.keyOf(new Object()));
+
+        assertTrue(hash.removeValue(shared));
+        assertEquals("c", hash.keyOf(shared));
+        assertTrue(hash.removeValue(shared));
+        assertNull(hash.keyOf(shared));
+        assertFalse(hash.removeValue(shared));
+
+        // identity only: an equal value held by another instance is not found
+        final String text = "text";
+        hash.put("d", text);
+        assertFalse(hash.removeValue(new String(text)));
+        assertTrue(hash.removeValue(text));
+
+        hash.put("b", shared); // replaces single
+        assertNull(hash.keyOf(single));
+        assertEquals("b", hash.keyOf(shared));
+        assertEquals(Arrays.asList("b"), hash.getOrderedKeys());
+
+        final ArrayHash<String, Object> clone = hash.clone();
+        clone.removeHead();
+        assertEquals("b", hash.keyOf(shared));
+        assertNull(clone.keyOf(shared));
+    }
+
+    @Test
+    public void testValueIndexReplace() {
+        final ArrayHash<String, Object> hash = new ArrayHash<>();
+        final Object first = new Object();
+        final Object second = new Object();
+        final Object third = new Object();
+
+        hash.enableValueIndex();
+        hash.put("a", first);
+        hash.put("b", new Object());
+
+        assertEquals(first, hash.replace("a", second));
+        assertNull(hash.keyOf(first));
+        assertEquals("a", hash.keyOf(second));
+        assertFalse(hash.removeValue(first));
+        assertEquals(2, hash.size());
+
+        assertFalse(hash.replace("a", first, third));
+        assertTrue(hash.replace("a", second, third));
+        assertEquals("a", hash.keyOf(third));
+        assertNull(hash.replace("missing", first));
+        assertFalse(hash.containsKey("missing"));
+
+        for (final Map.Entry<String, Object> entry : hash.entrySet()) {
+            if (entry.getKey().equals("b")) {
+                entry.setValue(first);
+            }
+        }
+
+        assertEquals("b", hash.keyOf(first));
+        assertEquals(Arrays.asList("a", "b"), hash.getOrderedKeys());
+
+        hash.replaceAll(new BiFunction<String, Object, Object>() {
+            @Override
+            public Object apply(final String key, final Object value) {
+                return key.equals("a") ? second : value;
+            }
+        });
+
+        assertEquals("a", hash.keyOf(second));
+        assertNull(hash.keyOf(third));
+
+        assertEquals(third, hash.merge("c", third, null));
+        assertEquals(Arrays.asList("a", "b", "c"), hash.getOrderedKeys());
+        assertNull(hash.computeIfPresent("a", new BiFunction<String, Object, Object>() {
+            @Override
+            public Object apply(final String key, final Object value) {
+                return null;
+            }
+        }));
+
+        assertNull(hash.keyOf(second));
+        assertEquals(Arrays.asList("b", "c"), hash.getOrderedKeys());
+
+        assertTrue(hash.removeValue(first));
+        assertTrue(hash.removeValue(third));
+        assertTrue(hash.isEmpty());
+    }
+
+    @Test
+    public void testValueIndexRandomOperations() {
+        for (final ArrayHash<Integer, Integer> hash : Arrays.asList(new ArrayHash<Integer, Integer>(),
+                ArrayHash.<Integer, Integer>indexed())) {
+            hash.enableValueIndex();
+            random(hash, 20000);
+
+            for (final Integer key : hash.getOrderedKeys()) {
+                assertTrue(hash.get(hash.keyOf(hash.get(key))) == hash.get(key));
+            }
+
+            while (!hash.isEmpty()) {
+                assertTrue(hash.removeValue(hash.getAtIndex(0)));
+            }
+        }
+    }
+
+    @Test
+    public void testRandomOperations() {
+        random(new ArrayHash<Integer, Integer>(), 20000);
+    }
+
+    @Test
+    public void testIndexedRandomOperations() {
+        random(ArrayHash.<Integer, Integer>indexed(), 20000);
+    }
+
+    @Test
+    public void testIndexedPositions() {
+        final ArrayHash<Integer, String> hash = ArrayHash.indexed();
+        final List<Integer> keys = new ArrayList<>();
+
+        // always inserting in the middle: quadratic with array shifts
+        for (int i = 0; i < 100000; i++) {
+            hash.putAtIndex(i / 2, i, "value" + i);
+            keys.add(i / 2, i);
+        }
+
+        assertTrue(hash.isIndexed());
+
+        for (int i = 0; i < keys.size(); i += 997) {
+            assertEquals(keys.get(i), hash.keyAtIndex(i));
+            assertEquals(i, hash.indexOf(keys.get(i)));
+        }
+
+        assertEquals(keys, hash.getOrderedKeys());
+    }
+
+    @Test
+    public void testCopies() throws Exception {
+        copies(new ArrayHash<String, Integer>());
+        copies(ArrayHash.<String, Integer>indexed());
+
+        final ArrayHash<String, Integer> valueIndexed = new ArrayHash<>();
+        valueIndexed.enableValueIndex();
+        copies(valueIndexed);
+    }
+
+    private static void copies(final ArrayHash<String, Integer> hash) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            hash.putHead("key" + i, i);
+        }
+
+        final ArrayHash<String, Integer> copy = new ArrayHash<>(hash);
+        final ArrayHash<String, Integer> clone = hash.clone();
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bos);
+        out.writeObject(hash);
+        out.close();
+
+        @SuppressWarnings("unchecked")
+        final ArrayHash<String, Integer> read = (ArrayHash<String, Integer>)
+                new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray())).readObject();
+
+        hash.removeHead();
+        hash.put("new", -1);
+
+        for (final ArrayHash<String, Integer> other : Arrays.asList(copy, clone, read)) {
+            assertEquals(hash.isIndexed(), other.isIndexed());
+            assertEquals(hash.isValueIndexed(), other.isValueIndexed());
+            assertEquals("key50", other.keyOf(other.get("key50")));
+            assertEquals(100, other.size());
+            assertEquals("key99", other.keyAtIndex(0));
+            assertEquals("key0", other.keyAtIndex(99));
+            assertEquals(50, (int) other.get("key50"));
+            other.put("key99", 99);
+            assertEquals("key99", other.keyAtIndex(99));
+        }
+    }
+
+    /**
+     * Run random operations against both an ArrayHash and a plain list and map, comparing them after every step
+     */
+    static void random(final ArrayHash<Integer, Integer> hash, final int operations) {
+        final Random random = new Random(1);
+        final List<Integer> keys = new ArrayList<>();
+        final Map<Integer, Integer> values = new HashMap<>();
+
+        for (int i = 0; i < operations; i++) {
+            final Integer key = random.nextInt(500);
+            final Integer value = random.nextInt();
+            final int index = keys.isEmpty() ? 0 : random.nextInt(keys.size());
+
+            switch (random.nextInt(9)) {
+                case 0:
+                case 1:
+                    hash.put(key, value);
+                    keys.remove(key);
+                    keys.add(key);
+                    values.put(key, value);
+                    break;
+                case 2:
+                    hash.putHead(key, value);
+                    keys.remove(key);
+                    keys.add(0, key);
+                    values.put(key, value);
+                    break;
+                case 3:
+                    if (!values.containsKey(key) || index < keys.size() - 1) {
+                        hash.putAtIndex(index, key, value);
+                        keys.remove(key);
+                        keys.add(index, key);
+                        values.put(key, value);
+                    }
+                    break;
+                case 4:
+                    assertEquals(values.remove(key), hash.remove(key));
+                    keys.remove(key);
+                    break;
+                case 5:
+                    assertEquals(keys.isEmpty() ? null : values.remove(keys.remove(0)), hash.removeHead());
+                    break;
+                case 6:
+                    assertEquals(keys.isEmpty() ? null : values.remove(keys.remove(index)),
+                            hash.removeAtIndex(index));
+                    break;
+                case 7:
+                    assertEquals(keys.indexOf(key), hash.indexOf(key));
+                    break;
+                default:
+                    assertEquals(keys.isEmpty() ? null : values.get(keys.get(index)), hash.getAtIndex(index));
+                    break;
+            }
+
+            assertEquals(keys.size(), hash.size());
+        }
+
+        assertEquals(keys, hash.getOrderedKeys());
+
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(keys.get(i), hash.keyAtIndex(i));
+            assertEquals(values.get(keys.get(i)), hash.getAtIndex(i));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IntArrayHashTest {
+
+    @Test
+    public void testOrder() {
+        final IntArrayHash<String> hash = new IntArrayHash<>();
+
+        hash.put(2, "b");
+        hash.put(3, "c");
+        hash.putHead(1, "a");
+        hash.put(4, "d");
+        assertArrayEquals(new int[]{1, 2, 3, 4}, hash.getOrderedKeys());
+
+        hash.put(2, "bb");
+        hash.putAtIndex(1, 5, "e");
+        assertArrayEquals(new int[]{1, 5, 3, 4, 2}, hash.getOrderedKeys());
+        assertEquals("{1=a, 5=e, 3=c, 4=d, 2=bb}", hash.toString());
+        assertEquals("bb", hash.getAtIndex(4));
+        assertEquals(1, hash.indexOf(5));
+        assertEquals(-1, hash.indexOf(42));
+        assertNull(hash.get(42));
+
+        assertEquals("a", hash.removeHead());
+        assertEquals("c", hash.remove(3));
+        assertEquals("d", hash.removeAtIndex(1));
+        assertNull(hash.remove(3));
+        assertNull(hash.removeAtIndex(5));
+        assertTrue(hash.removeValue("e"));
+        assertFalse(hash.removeValue("e"));
+        assertArrayEquals(new int[]{2}, hash.getOrderedKeys());
+
+        try {
+            hash.put(7, null);
+            fail("null value accepted");
+        } catch (NullPointerException expected) {
+            // no null values
+        }
+
+        try {
+            hash.putAtIndex(1, 2, "b");
+            fail("put beyond the end once moved");
+        } catch (IndexOutOfBoundsException expected) {
+            // out of bounds
+        }
+
+        hash.clear();
+        assertTrue(hash.isEmpty());
+        assertNull(hash.removeHead());
+    }
+
+    @Test
+    public void testRandomOperations() {
+        final Random random = new Random(3);
+        final IntArrayHash<Integer> hash = new IntArrayHash<>(0);
+        final ArrayHash<Integer, Integer> reference = new ArrayHash<>();
+
+        for (int i = 0; i < 50000; i++) {
+            // multiples of 1024 collide in the low bits
+            final int key = random.nextInt(2000) * 1024;
+            final Integer value = random.nextInt();
+            final int index = reference.isEmpty() ? 0 : random.nextInt(reference.size());
+
+            switch (random.nextInt(8)) {
+                case 0:
+                case 1:
+                    assertEquals(reference.put(key, value), hash.put(key, value));
+                    break;
+                case 2:
+                    assertEquals(reference.putHead(key, value), hash.putHead(key, value));
+                    break;
+                case 3:
+                    if (!reference.containsKey(key) || index < reference.size() - 1) {
+                        reference.putAtIndex(index, key, value);
+                        hash.putAtIndex(index, key, value);
+                    }
+                    break;
+                case 4:
+                    assertEquals(reference.remove(key), hash.remove(key));
+                    break;
+                case 5:
+                    assertEquals(reference.removeHead(), hash.removeHead());
+                    break;
+                case 6:
+                    assertEquals(reference.removeAtIndex(index), hash.removeAtIndex(index));
+                    break;
+                default:
+                    assertEquals(reference.indexOf(key), hash.indexOf(key));
+                    assertEquals(reference.get(key), hash.get(key));
+                    assertEquals(reference.getAtIndex(index), hash.getAtIndex(index));
+                    break;
+            }
+
+            assertEquals(reference.size(), hash.size());
+        }
+
+        final List<Integer> keys = reference.getOrderedKeys();
+        final int[] ordered = hash.getOrderedKeys();
+        assertEquals(keys.size(), ordered.length);
+
+        for (int i = 0; i < ordered.length; i++) {
+            assertEquals((int) keys.get(i), ordered[i]);
+            assertEquals(reference.get(keys.get(i)), hash.get(ordered[i]));
+        }
+    }
+
+    @Test
+    public void testCopies() throws Exception {
+        final IntArrayHash<String> hash = new IntArrayHash<>();
+
+        for (int i = 0; i < 1000; i++) {
+            hash.putHead(i, "value" + i);
+        }
+
+        final IntArrayHash<String> copy = new IntArrayHash<>(hash);
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bos);
+        out.writeObject(hash);
+        out.close();
+
+        @SuppressWarnings("unchecked")
+        final IntArrayHash<String> read = (IntArrayHash<String>)
+                new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray())).readObject();
+
+        // order does not matter to equality
+        final IntArrayHash<String> reversed = new IntArrayHash<>();
+        final Map<Integer, String> map = new HashMap<>();
+
+        for (int i = 0; i < 1000; i++) {
+            reversed.put(i, "value" + i);
+            map.put(i, "value" + i);
+        }
+
+        assertEquals(hash, copy);
+        assertEquals(hash, read);
+        assertEquals(hash, reversed);
+        assertEquals(map.hashCode(), hash.hashCode());
+        assertEquals(hash.hashCode(), reversed.hashCode());
+
+        reversed.put(0, "changed");
+        assertFalse(hash.equals(reversed));
+
+        hash.clear();
+        assertFalse(hash.equals(copy));
+
+        for (final IntArrayHash<String> other : Arrays.asList(copy, read)) {
+            assertEquals(1000, other.size());
+            assertEquals(999, other.keyAtIndex(0));
+            assertEquals("value500", other.get(500));
+            assertEquals(499, other.indexOf(500));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class LongArrayHashTest {
+
+    @Test
+    public void testOrder() {
+        final LongArrayHash<String> hash = new LongArrayHash<>();
+
+        hash.put(2L << 40, "b");
+        hash.put(3L << 40, "c");
+        hash.putHead(1L << 40, "a");
+        hash.putAtIndex(1, Long.MIN_VALUE, "min");
+        assertArrayEquals(new long[]{1L << 40, Long.MIN_VALUE, 2L << 40, 3L << 40}, hash.getOrderedKeys());
+
+        assertEquals("b", hash.remove(2L << 40));
+        assertNull(hash.get(2L << 40));
+        assertEquals("min", hash.getAtIndex(1));
+        assertEquals(2, hash.indexOf(3L << 40));
+    }
+
+    @Test
+    public void testTimestamps() {
+        final LongArrayHash<Long> hash = new LongArrayHash<>();
+        final Random random = new Random(5);
+        final long[] keys = new long[20000];
+        long time = 1500000000000L;
+
+        for (int i = 0; i < keys.length; i++) {
+            time += 1 + random.nextInt(1000);
+            keys[i] = time;
+            hash.put(time, time);
+        }
+
+        for (int i = 0; i < keys.length; i += 2) {
+            assertEquals(keys[i], (long) hash.remove(keys[i]));
+        }
+
+        assertEquals(keys.length / 2, hash.size());
+
+        for (int i = 1; i < keys.length; i += 2) {
+            assertEquals(keys[i], (long) hash.get(keys[i]));
+            assertEquals(keys[i], hash.keyAtIndex(i / 2));
+        }
+    }
+
+    @Test
+    public void testEquals() {
+        final LongArrayHash<String> hash = new LongArrayHash<>();
+        final LongArrayHash<String> reversed = new LongArrayHash<>();
+        final Map<Long, String> map = new HashMap<>();
+
+        for (long key = -5; key <= 5; key++) {
+            hash.put(key << 40, "value" + key);
+            reversed.putHead(key << 40, "value" + key);
+            map.put(key << 40, "value" + key);
+        }
+
+        assertEquals(hash, reversed);
+        assertEquals(map.hashCode(), hash.hashCode());
+        assertEquals(hash.hashCode(), reversed.hashCode());
+
+        reversed.remove(0);
+        assertFalse(hash.equals(reversed));
+    }
+}
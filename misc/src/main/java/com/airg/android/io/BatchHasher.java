@@ -0,0 +1,263 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Hash many files concurrently. Files are hashed largest first by a fixed number of workers; see
+ * {@link LargestFirstQueue}. A file that cannot be read is reported on its own and does not abort the rest of the
+ * batch.
+ * <p>
+ * <pre>
+ * final BatchHasher.Result result = new BatchHasher("SHA-1", 4).hashDirectory(assetRoot);
+ * if (!result.isSuccessful()) { ... result.getErrors() ... }
+ * </pre>
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class BatchHasher {
+    private final String algorithm;
+    private final Executor executor;
+    private final int parallelism;
+
+    /**
+     * Receives the results of a batch as soon as each file is done. Methods are called from the worker threads,
+     * possibly concurrently.
+     */
+    public interface Callback {
+        /**
+         * A file was hashed
+         *
+         * @param file file
+         * @param hash hexadecimal checksum of file contents
+         */
+        void onHashed(@NonNull File file, @NonNull String hash);
+
+        /**
+         * A file could not be hashed
+         *
+         * @param file  file
+         * @param error cause
+         */
+        void onError(@NonNull File file, @NonNull IOException error);
+    }
+
+    /**
+     * Results of a batch
+     */
+    public static final class Result implements Callback {
+        private final Map<File, String> hashes = new ConcurrentHashMap<>();
+        private final Map<File, IOException> errors = new ConcurrentHashMap<>();
+
+        private Result() {
+        }
+
+        @Override
+        public void onHashed(@NonNull final File file, @NonNull final String hash) {
+            hashes.put(file, hash);
+        }
+
+        @Override
+        public void onError(@NonNull final File file, @NonNull final IOException error) {
+            errors.put(file, error);
+        }
+
+        /**
+         * @return hexadecimal checksums of all files hashed successfully
+         */
+        public Map<File, String> getHashes() {
+            return Collections.unmodifiableMap(hashes);
+        }
+
+        /**
+         * @return errors of all files that could not be hashed
+         */
+        public Map<File, IOException> getErrors() {
+            return Collections.unmodifiableMap(errors);
+        }
+
+        /**
+         * @return <code>true</code> if all files were hashed
+         */
+        public boolean isSuccessful() {
+            return errors.isEmpty();
+        }
+    }
+
+    /**
+     * Create a batch hasher that runs each batch on a temporary pool of <code>parallelism</code> threads
+     *
+     * @param algorithm   name of algorithm to use, e.g. <code>SHA-1</code>
+     * @param parallelism maximum number of files hashed at the same time
+     */
+    public BatchHasher(@NonNull final String algorithm, final int parallelism) {
+        this(algorithm, null, parallelism);
+    }
+
+    /**
+     * Create a batch hasher that runs on the given executor
+     *
+     * @param algorithm   name of algorithm to use, e.g. <code>SHA-1</code>
+     * @param executor    executor to run workers on. It must be able to run <code>parallelism</code> tasks at once
+     *                    for full concurrency.
+     * @param parallelism maximum number of files hashed at the same time, i.e. number of tasks submitted to the
+     *                    executor per batch
+     */
+    public BatchHasher(@NonNull final String algorithm, final Executor executor, final int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+
+        this.algorithm = algorithm;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Hash a collection of files and wait for all of them
+     *
+     * @param files files to hash
+     * @return hashes and errors
+     * @throws NoSuchAlgorithmException if the local implementation does not support the algorithm
+     * @throws InterruptedException     if interrupted while waiting. Files not yet started are skipped.
+     */
+    public Result hash(@NonNull final Collection<File> files) throws NoSuchAlgorithmException, InterruptedException {
+        final Result result = new Result();
+        hash(files, result);
+        return result;
+    }
+
+    /**
+     * Hash a collection of files, reporting each file to the callback as it is done, and wait for all of them
+     *
+     * @param files    files to hash
+     * @param callback receives each result
+     * @throws NoSuchAlgorithmException if the local implementation does not support the algorithm
+     * @throws InterruptedException     if interrupted while waiting. Files not yet started are skipped.
+     */
+    public void hash(@NonNull final Collection<File> files, @NonNull final Callback callback)
+            throws NoSuchAlgorithmException, InterruptedException {
+        // fail on the calling thread rather than once per file
+        Hasher.getDigestLength(algorithm);
+
+        final LargestFirstQueue<File> queue = new LargestFirstQueue<File>(files) {
+            @Override
+            long sizeOf(@NonNull final File file) {
+                return file.length();
+            }
+
+            @Override
+            void process(@NonNull final File file) {
+                hash(file, callback);
+            }
+        };
+
+        try {
+            queue.execute(executor, parallelism);
+        } catch (IOException e) {
+            // hash() reports I/O errors to the callback
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Hash all files under a directory, recursively, and wait for all of them
+     *
+     * @param root root directory
+     * @return hashes and errors
+     * @throws NoSuchAlgorithmException if the local implementation does not support the algorithm
+     * @throws InterruptedException     if interrupted while waiting. Files not yet started are skipped.
+     * @throws IOException              if the root directory cannot be listed
+     */
+    public Result hashDirectory(@NonNull final File root)
+            throws NoSuchAlgorithmException, InterruptedException, IOException {
+        return hash(listFiles(root));
+    }
+
+    /**
+     * Hash all files under a directory, recursively, reporting each file to the callback as it is done, and wait for
+     * all of them
+     *
+     * @param root     root directory
+     * @param callback receives each result
+     * @throws NoSuchAlgorithmException if the local implementation does not support the algorithm
+     * @throws InterruptedException     if interrupted while waiting. Files not yet started are skipped.
+     * @throws IOException              if the root directory cannot be listed
+     */
+    public void hashDirectory(@NonNull final File root, @NonNull final Callback callback)
+            throws NoSuchAlgorithmException, InterruptedException, IOException {
+        hash(listFiles(root), callback);
+    }
+
+    private static List<File> listFiles(final File root) throws IOException {
+        if (!root.isDirectory()) {
+            throw new IOException(root + " is not a directory");
+        }
+
+        final List<File> files = new ArrayList<>();
+        final List<File> directories = new ArrayList<>();
+        directories.add(root);
+
+        while (!directories.isEmpty()) {
+            final File directory = directories.remove(directories.size() - 1);
+            final File[] children = directory.listFiles();
+
+            if (null == children) {
+                continue; // unreadable or vanished
+            }
+
+            for (final File child : children) {
+                if (child.isDirectory()) {
+                    directories.add(child);
+                } else if (child.isFile()) {
+                    files.add(child);
+                }
+            }
+        }
+
+        return files;
+    }
+
+    private void hash(final File file, final Callback callback) {
+        final String hash;
+
+        try {
+            hash = Hasher.hashFileWithAlgorithm(file, algorithm);
+        } catch (IOException e) {
+            callback.onError(file, e);
+            return;
+        } catch (NoSuchAlgorithmException | RuntimeException e) {
+            callback.onError(file, new IOException(e));
+            return;
+        }
+
+        callback.onHashed(file, hash);
+    }
+}
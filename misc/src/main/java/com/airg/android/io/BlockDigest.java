@@ -0,0 +1,167 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+/**
+ * Base for the non-cryptographic digests that consume their input in fixed size blocks. Takes care of buffering
+ * partial blocks across updates so subclasses only ever see whole blocks plus the final tail.
+ */
+abstract class BlockDigest extends MessageDigest {
+    private final byte[] block;
+    private final int digestLength;
+    private int blockLength;
+    private long total;
+
+    BlockDigest(@NonNull final String algorithm, final int blockSize, final int digestLength) {
+        super(algorithm);
+        block = new byte[blockSize];
+        this.digestLength = digestLength;
+    }
+
+    /**
+     * Consume one whole block
+     *
+     * @param input  input bytes
+     * @param offset offset of the block in <code>input</code>
+     */
+    abstract void processBlock(@NonNull byte[] input, int offset);
+
+    /**
+     * Consume the final partial block and write the digest
+     *
+     * @param tail       buffer holding the remaining input
+     * @param tailLength number of bytes in <code>tail</code>, always less than a block
+     * @param total      total number of bytes consumed, including the tail
+     * @param out        output array
+     * @param outOffset  offset in <code>out</code> to write the digest at
+     */
+    abstract void finish(@NonNull byte[] tail, int tailLength, long total, @NonNull byte[] out, int outOffset);
+
+    /**
+     * Restore the initial state
+     */
+    abstract void resetState();
+
+    @Override
+    protected int engineGetDigestLength() {
+        return digestLength;
+    }
+
+    @Override
+    protected void engineUpdate(final byte input) {
+        block[blockLength++] = input;
+        total++;
+
+        if (blockLength == block.length) {
+            processBlock(block, 0);
+            blockLength = 0;
+        }
+    }
+
+    @Override
+    protected void engineUpdate(final byte[] input, int offset, int length) {
+        total += length;
+
+        if (blockLength > 0) {
+            final int fill = Math.min(length, block.length - blockLength);
+
+            System.arraycopy(input, offset, block, blockLength, fill);
+            blockLength += fill;
+            offset += fill;
+            length -= fill;
+
+            if (blockLength < block.length) {
+                return;
+            }
+
+            processBlock(block, 0);
+            blockLength = 0;
+        }
+
+        while (length >= block.length) {
+            processBlock(input, offset);
+            offset += block.length;
+            length -= block.length;
+        }
+
+        System.arraycopy(input, offset, block, 0, length);
+        blockLength = length;
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+        final byte[] digest = new byte[digestLength];
+        finish(block, blockLength, total, digest, 0);
+        engineReset();
+        return digest;
+    }
+
+    @Override
+    protected int engineDigest(final byte[] buf, final int offset, final int len) throws DigestException {
+        if (len < digestLength) {
+            throw new DigestException("partial digests not returned");
+        }
+
+        finish(block, blockLength, total, buf, offset);
+        engineReset();
+        return digestLength;
+    }
+
+    @Override
+    protected void engineReset() {
+        blockLength = 0;
+        total = 0;
+        resetState();
+    }
+
+    static long getLongLE(final byte[] bytes, final int offset) {
+        return (bytes[offset] & 0xffL)
+                | (bytes[offset + 1] & 0xffL) << 8
+                | (bytes[offset + 2] & 0xffL) << 16
+                | (bytes[offset + 3] & 0xffL) << 24
+                | (bytes[offset + 4] & 0xffL) << 32
+                | (bytes[offset + 5] & 0xffL) << 40
+                | (bytes[offset + 6] & 0xffL) << 48
+                | (bytes[offset + 7] & 0xffL) << 56;
+    }
+
+    static int getIntLE(final byte[] bytes, final int offset) {
+        return (bytes[offset] & 0xff)
+                | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16
+                | (bytes[offset + 3] & 0xff) << 24;
+    }
+
+    static void putLongLE(final long value, final byte[] out, final int offset) {
+        for (int i = 0; i < 8; i++) {
+            out[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    static void putLongBE(final long value, final byte[] out, final int offset) {
+        for (int i = 0; i < 8; i++) {
+            out[offset + i] = (byte) (value >>> (56 - 8 * i));
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.ZipException;
+
+/**
+ * Maps uncompressed offsets of a block gzip (BGZF) file to the blocks holding them. Each block costs 16 bytes, about
+ * 0.03% of the data it describes.
+ * <p>
+ * {@link #write(OutputStream)} and {@link #read(InputStream)} use the <code>.gzi</code> format of
+ * <code>bgzip -i</code>: a little endian 64 bit count followed by (compressed offset, uncompressed offset) pairs for
+ * every block but the first.
+ *
+ * @see BlockGzipOutputStream
+ * @see BlockGzipReader
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess", "TryFinallyCanBeTryWithResources"})
+public final class BlockGzipIndex {
+    private long[] compressed;
+    private long[] uncompressed;
+    private int count;
+
+    BlockGzipIndex() {
+        compressed = new long[16];
+        uncompressed = new long[16];
+    }
+
+    /**
+     * Record the start of a block. Blocks must be added in file order.
+     */
+    void add(final long compressedOffset, final long uncompressedOffset) {
+        if (count == compressed.length) {
+            compressed = Arrays.copyOf(compressed, count * 2);
+            uncompressed = Arrays.copyOf(uncompressed, count * 2);
+        }
+
+        compressed[count] = compressedOffset;
+        uncompressed[count] = uncompressedOffset;
+        count++;
+    }
+
+    /**
+     * Build the index of a block gzip file by walking its block headers and trailers. Nothing is decompressed.
+     *
+     * @param file block gzip file
+     * @return the file's index
+     * @throws ZipException if the file is not in block gzip format
+     * @throws IOException  if unable to read the file
+     */
+    @NonNull
+    public static BlockGzipIndex build(@NonNull final File file) throws IOException {
+        final FileInputStream in = new FileInputStream(file);
+
+        try {
+            final FileChannel channel = in.getChannel();
+            final long length = channel.size();
+            final BlockGzipIndex index = new BlockGzipIndex();
+            final ByteBuffer header = ByteBuffer.allocate(GzipFormat.BGZF_MAX_BLOCK_SIZE);
+            final ByteBuffer trailer = ByteBuffer.allocate(4);
+
+            long position = 0;
+            long offset = 0;
+
+            while (position < length) {
+                final int blockSize = blockSize(channel, position, header);
+
+                if (position + blockSize > length) {
+                    throw new EOFException("truncated block at " + position);
+                }
+
+                trailer.clear();
+                readFully(channel, trailer, position + blockSize - 4);
+                final long size = GzipFormat.readIntLE(trailer.array(), 0) & 0xffffffffL;
+
+                // empty blocks, like the end of file marker, hold no offsets
+                if (size > 0) {
+                    index.add(position, offset);
+                    offset += size;
+                }
+
+                position += blockSize;
+            }
+
+            return index;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Read an index in <code>.gzi</code> format
+     *
+     * @param in input stream. Not closed.
+     * @return the index
+     * @throws IOException if unable to read or if the input is not an index
+     */
+    @NonNull
+    public static BlockGzipIndex read(@NonNull final InputStream in) throws IOException {
+        final DataInputStream dis = new DataInputStream(in);
+        final long entries = Long.reverseBytes(dis.readLong());
+
+        if (entries < 0 || entries >= Integer.MAX_VALUE) {
+            throw new IOException("corrupt index: " + entries + " entries");
+        }
+
+        final BlockGzipIndex index = new BlockGzipIndex();
+        index.add(0, 0);
+
+        for (long i = 0; i < entries; i++) {
+            final long compressedOffset = Long.reverseBytes(dis.readLong());
+            final long uncompressedOffset = Long.reverseBytes(dis.readLong());
+
+            if (compressedOffset <= index.compressed[index.count - 1]
+                    || uncompressedOffset <= index.uncompressed[index.count - 1]) {
+                throw new IOException("corrupt index: offsets out of order");
+            }
+
+            index.add(compressedOffset, uncompressedOffset);
+        }
+
+        return index;
+    }
+
+    /**
+     * Write this index in <code>.gzi</code> format
+     *
+     * @param out output stream. Not closed.
+     * @throws IOException if unable to write
+     */
+    public void write(@NonNull final OutputStream out) throws IOException {
+        final int skip = count > 0 && compressed[0] == 0 ? 1 : 0;
+        final ByteBuffer buffer = ByteBuffer.allocate(8 + (count - skip) * 16);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(count - skip);
+
+        for (int i = skip; i < count; i++) {
+            buffer.putLong(compressed[i]).putLong(uncompressed[i]);
+        }
+
+        out.write(buffer.array());
+        out.flush();
+    }
+
+    /**
+     * @return number of (non empty) blocks
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param block block number
+     * @return offset of the block in the compressed file
+     */
+    public long getCompressedOffset(final int block) {
+        check(block);
+        return compressed[block];
+    }
+
+    /**
+     * @param block block number
+     * @return uncompressed offset of the block's first byte
+     */
+    public long getUncompressedOffset(final int block) {
+        check(block);
+        return uncompressed[block];
+    }
+
+    /**
+     * Find the block holding an uncompressed offset
+     *
+     * @param uncompressedOffset offset in the uncompressed data
+     * @return block number, or <code>-1</code> if the offset precedes the first block or there are no blocks
+     */
+    public int findBlock(final long uncompressedOffset) {
+        int low = 0;
+        int high = count - 1;
+
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+
+            if (uncompressed[mid] <= uncompressedOffset) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return high;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockGzipIndex{blocks=" + count + '}';
+    }
+
+    private void check(final int block) {
+        if (block < 0 || block >= count) {
+            throw new IndexOutOfBoundsException("block " + block + " of " + count);
+        }
+    }
+
+    /**
+     * Read the total size of the block at the given position
+     */
+    static int blockSize(final FileChannel channel, final long position, final ByteBuffer header)
+            throws IOException {
+        header.clear();
+        header.limit(GzipFormat.BGZF_HEADER_SIZE);
+        readFully(channel, header, position);
+
+        int size;
+
+        while ((size = GzipFormat.bgzfBlockSize(header.array(), header.position())) < 0) {
+            // extra subfields ahead of BC: read the whole extra field
+            final int extraLength = header.get(10) & 0xff | (header.get(11) & 0xff) << 8;
+            header.limit(12 + extraLength);
+            readFully(channel, header, position + header.position());
+        }
+
+        return size;
+    }
+
+    static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        final long start = position - buffer.position();
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new EOFException("unexpected end of file at " + (start + buffer.position()));
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes block gzip (BGZF): data is cut into blocks of at most 64 KiB that are compressed independently, each one a
+ * complete gzip member recording its own compressed size. The output is valid gzip that any tool can decompress, yet
+ * {@link BlockGzipReader} can jump straight to the block holding a given offset. The price is a slightly lower ratio
+ * than a single gzip member.
+ * <p>
+ * The {@link #getIndex() index} of the blocks written is available once the stream is closed. It can also be rebuilt
+ * from the file at any time by {@link BlockGzipIndex#build(java.io.File)}.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class BlockGzipOutputStream extends OutputStream {
+    private final OutputStream out;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final BlockGzipIndex index = new BlockGzipIndex();
+
+    private final byte[] input = new byte[GzipFormat.BGZF_MAX_INPUT_SIZE];
+    private final byte[] block = new byte[GzipFormat.BGZF_MAX_BLOCK_SIZE];
+    private int inputLength;
+
+    private long compressedOffset;
+    private long uncompressedOffset;
+    private boolean closed;
+
+    /**
+     * @param out destination. Closed by {@link #close()}.
+     */
+    public BlockGzipOutputStream(@NonNull final OutputStream out) {
+        this(out, GzipOptions.DEFAULT);
+    }
+
+    /**
+     * @param out     destination. Closed by {@link #close()}.
+     * @param options compression options. Level and strategy apply.
+     */
+    public BlockGzipOutputStream(@NonNull final OutputStream out, @NonNull final GzipOptions options) {
+        this.out = out;
+        deflater = options.newDeflater(true);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        ensureOpen();
+
+        if (inputLength == input.length) {
+            writeBlock();
+        }
+
+        input[inputLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(@NonNull final byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+
+        if (offset < 0 || length < 0 || offset > bytes.length - length) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        while (length > 0) {
+            if (inputLength == input.length) {
+                writeBlock();
+            }
+
+            final int n = Math.min(length, input.length - inputLength);
+            System.arraycopy(bytes, offset, input, inputLength, n);
+            inputLength += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Compress and write whatever is buffered as a (short) block, then flush the destination. Everything written so
+     * far becomes readable. Flushing often makes for many small blocks and a poor ratio.
+     *
+     * @throws IOException if unable to write
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+
+        if (inputLength > 0) {
+            writeBlock();
+        }
+
+        out.flush();
+    }
+
+    /**
+     * @return uncompressed offset of the next byte to be written
+     */
+    public long getPosition() {
+        return uncompressedOffset + inputLength;
+    }
+
+    /**
+     * @return the index of the blocks written so far. Complete once the stream is closed.
+     */
+    @NonNull
+    public BlockGzipIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Write the last block and the end of file marker, then close the destination
+     *
+     * @throws IOException if unable to write
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        try {
+            if (inputLength > 0) {
+                writeBlock();
+            }
+
+            out.write(GzipFormat.BGZF_EOF);
+            compressedOffset += GzipFormat.BGZF_EOF.length;
+        } finally {
+            closed = true;
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        crc.reset();
+        crc.update(input, 0, inputLength);
+
+        deflater.reset();
+        deflater.setInput(input, 0, inputLength);
+        deflater.finish();
+
+        final int space = block.length - GzipFormat.BGZF_HEADER_SIZE - GzipFormat.TRAILER_SIZE;
+        final int compressed = deflater.deflate(block, GzipFormat.BGZF_HEADER_SIZE, space);
+
+        if (!deflater.finished()) {
+            // cannot happen at sane levels: the block input size leaves room for stored deflate blocks
+            throw new IOException("block does not fit in " + GzipFormat.BGZF_MAX_BLOCK_SIZE + " bytes");
+        }
+
+        final int size = GzipFormat.BGZF_HEADER_SIZE + compressed + GzipFormat.TRAILER_SIZE;
+
+        System.arraycopy(GzipFormat.BGZF_HEADER, 0, block, 0, GzipFormat.BGZF_HEADER_SIZE);
+        block[16] = (byte) (size - 1);
+        block[17] = (byte) ((size - 1) >>> 8);
+        GzipFormat.writeTrailer(crc.getValue(), inputLength, block, GzipFormat.BGZF_HEADER_SIZE + compressed);
+
+        out.write(block, 0, size);
+
+        index.add(compressedOffset, uncompressedOffset);
+        compressedOffset += size;
+        uncompressedOffset += inputLength;
+        inputLength = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("stream is closed");
+        }
+    }
+}
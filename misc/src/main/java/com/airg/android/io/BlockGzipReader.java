@@ -0,0 +1,288 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Random access to the uncompressed contents of a block gzip (BGZF) file, as written by
+ * {@link BlockGzipOutputStream} or <code>bgzip</code>. Reading at an offset decompresses only the blocks that
+ * overlap the requested range; the most recently used block is kept, so nearby reads are cheap.
+ * <p>
+ * Readers are not thread safe. Close them to release the file and native zlib memory.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class BlockGzipReader implements Closeable {
+    private final FileInputStream file;
+    private final FileChannel channel;
+    private final BlockGzipIndex index;
+    private final long length;
+
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer compressed = ByteBuffer.allocate(GzipFormat.BGZF_MAX_BLOCK_SIZE);
+    private final byte[] block = new byte[GzipFormat.BGZF_MAX_BLOCK_SIZE];
+    private int blockNumber = -1;
+    private int blockLength;
+
+    /**
+     * Open a file, building its index by walking its blocks
+     *
+     * @param file block gzip file
+     * @throws ZipException if the file is not in block gzip format
+     * @throws IOException  if unable to read the file
+     */
+    public BlockGzipReader(@NonNull final File file) throws IOException {
+        this(file, BlockGzipIndex.build(file));
+    }
+
+    /**
+     * Open a file with a known index
+     *
+     * @param file  block gzip file
+     * @param index the file's index, e.g. as written alongside it by {@link BlockGzipIndex#write(java.io.OutputStream)}
+     * @throws ZipException if the file is not in block gzip format
+     * @throws IOException  if unable to read the file
+     */
+    public BlockGzipReader(@NonNull final File file, @NonNull final BlockGzipIndex index) throws IOException {
+        this.file = new FileInputStream(file);
+        channel = this.file.getChannel();
+        this.index = index;
+
+        try {
+            length = index.size() == 0 ? 0
+                    : index.getUncompressedOffset(index.size() - 1) + lastBlockLength(index.size() - 1);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the uncompressed length of the file
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * @return the block index
+     */
+    @NonNull
+    public BlockGzipIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Read uncompressed bytes at the given offset
+     *
+     * @param position uncompressed offset to read at
+     * @param buffer   output array
+     * @param offset   offset in <code>buffer</code> to write at
+     * @param count    maximum number of bytes to read
+     * @return number of bytes read, which is less than <code>count</code> only at the end of the data, or
+     * <code>-1</code> if <code>position</code> is at or past the end
+     * @throws IOException if unable to read the file or if it is corrupt
+     */
+    public int read(final long position, @NonNull final byte[] buffer, final int offset, final int count)
+            throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("negative position: " + position);
+        }
+
+        if (offset < 0 || count < 0 || offset > buffer.length - count) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (position >= length) {
+            return -1;
+        }
+
+        long current = position;
+        int total = 0;
+
+        while (total < count && current < length) {
+            final int number = index.findBlock(current);
+            load(number);
+
+            final long start = current - index.getUncompressedOffset(number);
+
+            if (start < 0 || start >= blockLength) {
+                // the index doesn't match the data, e.g. a stale .gzi file
+                throw new ZipException("block " + number + " holds " + blockLength
+                        + " bytes, expected at least " + (start + 1));
+            }
+
+            final int n = Math.min(count - total, blockLength - (int) start);
+
+            System.arraycopy(block, (int) start, buffer, offset + total, n);
+            total += n;
+            current += n;
+        }
+
+        return total;
+    }
+
+    /**
+     * Read exactly the given number of uncompressed bytes at an offset
+     *
+     * @param position uncompressed offset to read at
+     * @param count    number of bytes to read
+     * @return the bytes
+     * @throws EOFException if the data ends first
+     * @throws IOException  if unable to read the file or if it is corrupt
+     */
+    @NonNull
+    public byte[] read(final long position, final int count) throws IOException {
+        final byte[] bytes = new byte[count];
+
+        if (count > 0 && read(position, bytes, 0, count) != count) {
+            throw new EOFException("fewer than " + count + " bytes at " + position);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Open a sequential stream starting at an offset. The stream shares this reader and is only valid while the reader
+     * is open; closing the stream does not close the reader.
+     *
+     * @param position uncompressed offset to start at
+     * @return a stream of the uncompressed data from <code>position</code> on
+     */
+    @NonNull
+    public InputStream openStream(final long position) {
+        return new InputStream() {
+            private long current = position;
+
+            @Override
+            public int read() throws IOException {
+                final byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(@NonNull final byte[] buffer, final int offset, final int count) throws IOException {
+                if (count == 0) {
+                    return 0;
+                }
+
+                final int read = BlockGzipReader.this.read(current, buffer, offset, count);
+
+                if (read > 0) {
+                    current += read;
+                }
+
+                return read;
+            }
+
+            @Override
+            public long skip(final long n) {
+                final long skipped = Math.max(0, Math.min(n, length - current));
+                current += skipped;
+                return skipped;
+            }
+
+            @Override
+            public int available() {
+                return (int) Math.min(Integer.MAX_VALUE, Math.max(0, length - current));
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        file.close();
+    }
+
+    private long lastBlockLength(final int number) throws IOException {
+        final long position = index.getCompressedOffset(number);
+        final int size = BlockGzipIndex.blockSize(channel, position, compressed);
+        final ByteBuffer trailer = ByteBuffer.allocate(4);
+
+        BlockGzipIndex.readFully(channel, trailer, position + size - 4);
+        return GzipFormat.readIntLE(trailer.array(), 0) & 0xffffffffL;
+    }
+
+    /**
+     * Decompress a block into {@link #block}, unless it is already there
+     */
+    private void load(final int number) throws IOException {
+        if (number == blockNumber) {
+            return;
+        }
+
+        blockNumber = -1; // in case of failure
+
+        final long position = index.getCompressedOffset(number);
+        final int size = BlockGzipIndex.blockSize(channel, position, compressed);
+
+        if (size > compressed.capacity()) {
+            throw new ZipException("oversized block at " + position);
+        }
+
+        final int headerSize = compressed.position();
+        compressed.limit(size);
+        BlockGzipIndex.readFully(channel, compressed, position + headerSize);
+
+        final byte[] data = compressed.array();
+        final int expectedLength = GzipFormat.readIntLE(data, size - 4);
+
+        if (expectedLength < 0 || expectedLength > block.length) {
+            throw new ZipException("oversized block at " + position);
+        }
+
+        inflater.reset();
+        inflater.setInput(data, headerSize, size - headerSize - GzipFormat.TRAILER_SIZE);
+
+        final int inflated;
+
+        try {
+            inflated = inflater.inflate(block, 0, block.length);
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+
+        crc.reset();
+        crc.update(block, 0, inflated);
+
+        if (!inflater.finished() || inflated != expectedLength
+                || (int) crc.getValue() != GzipFormat.readIntLE(data, size - 8)) {
+            throw new ZipException("corrupt block at " + position);
+        }
+
+        blockNumber = number;
+        blockLength = inflated;
+    }
+}
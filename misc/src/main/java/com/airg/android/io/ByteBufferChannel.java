@@ -0,0 +1,110 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * In-memory channel over a {@link ByteBuffer}. Reads consume the buffer's remaining bytes; writes are put at its
+ * position and replace it with a larger heap buffer when it runs out of room. Works with direct buffers too.
+ */
+final class ByteBufferChannel implements ReadableByteChannel, WritableByteChannel {
+    private ByteBuffer buffer;
+    private boolean open = true;
+
+    ByteBufferChannel(@NonNull final ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * @return the backing buffer. After writes this may not be the buffer the channel was created with.
+     */
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    @Override
+    public int read(final ByteBuffer dst) throws IOException {
+        ensureOpen();
+
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+
+        final int count = Math.min(dst.remaining(), buffer.remaining());
+
+        if (count == buffer.remaining()) {
+            dst.put(buffer);
+        } else {
+            final int limit = buffer.limit();
+            buffer.limit(buffer.position() + count);
+            dst.put(buffer);
+            buffer.limit(limit);
+        }
+
+        return count;
+    }
+
+    @Override
+    public int write(final ByteBuffer src) throws IOException {
+        ensureOpen();
+
+        final int count = src.remaining();
+
+        if (buffer.remaining() < count) {
+            final long needed = (long) buffer.position() + count;
+
+            if (needed > Integer.MAX_VALUE) {
+                throw new IOException("buffer capacity exceeded");
+            }
+
+            final ByteBuffer grown = ByteBuffer.allocate((int) Math.max(needed,
+                    Math.min(Integer.MAX_VALUE - 8, buffer.capacity() * 2L)));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+
+        buffer.put(src);
+        return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+/**
+ * Feeds the UTF-8 encoding of a {@link CharSequence} to a digest through a small per-thread scratch buffer, so
+ * hashing text does not allocate an encoded copy of it. Output is identical to hashing
+ * <code>string.getBytes("UTF-8")</code>, including the <code>'?'</code> substituted for unpaired surrogates.
+ */
+final class CharHasher {
+    private static final int TEXT_BUFFER_SIZE = 512;
+    private static final int DIGEST_BUFFER_SIZE = 64; // fits SHA-512
+
+    private static final ThreadLocal<CharHasher> INSTANCE = new ThreadLocal<CharHasher>() {
+        @Override
+        protected CharHasher initialValue() {
+            return new CharHasher();
+        }
+    };
+
+    private final byte[] text = new byte[TEXT_BUFFER_SIZE];
+    private final byte[] digest = new byte[DIGEST_BUFFER_SIZE];
+    private boolean busy;
+
+    private CharHasher() {
+    }
+
+    /**
+     * Get the current thread's instance. Pass it back to {@link #release()} when done.
+     *
+     * @return an idle instance
+     */
+    static CharHasher acquire() {
+        final CharHasher hasher = INSTANCE.get();
+
+        // nested use on the same thread: don't trample the outer caller's buffers
+        final CharHasher available = hasher.busy ? new CharHasher() : hasher;
+        available.busy = true;
+        return available;
+    }
+
+    void release() {
+        busy = false;
+    }
+
+    /**
+     * Digest the given characters
+     *
+     * @param chars  input characters
+     * @param engine reset digest engine
+     * @return the internal digest buffer, holding the digest in its first {@link MessageDigest#getDigestLength()}
+     * bytes. Only valid until the next call or {@link #release()}.
+     */
+    byte[] digest(@NonNull final CharSequence chars, @NonNull final MessageDigest engine) {
+        update(chars, engine);
+
+        final int length = engine.getDigestLength();
+
+        if (length <= 0 || length > digest.length) {
+            // the engine cannot tell its length ahead of time or it is too big for the scratch buffer
+            return engine.digest();
+        }
+
+        try {
+            engine.digest(digest, 0, length);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return digest;
+    }
+
+    /**
+     * Feed the UTF-8 encoding of the given characters to a digest
+     *
+     * @param chars  input characters
+     * @param engine digest engine to update
+     * @return number of bytes fed to the engine
+     */
+    long update(@NonNull final CharSequence chars, @NonNull final MessageDigest engine) {
+        final byte[] buffer = text;
+        final int limit = buffer.length - 4; // room for the longest encoding
+        final int count = chars.length();
+
+        long total = 0;
+        int pos = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (pos > limit) {
+                engine.update(buffer, 0, pos);
+                total += pos;
+                pos = 0;
+            }
+
+            final char c = chars.charAt(i);
+
+            if (c < 0x80) {
+                buffer[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[pos++] = (byte) (0xc0 | (c >> 6));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+                buffer[pos++] = (byte) (0xe0 | (c >> 12));
+                buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < count
+                    && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+
+                buffer[pos++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else {
+                // unpaired surrogate
+                buffer[pos++] = '?';
+            }
+        }
+
+        if (pos > 0) {
+            engine.update(buffer, 0, pos);
+        }
+
+        return total + pos;
+    }
+}
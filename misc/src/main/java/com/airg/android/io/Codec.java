@@ -0,0 +1,77 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A compression format. Implementations are stateless and thread safe; all state lives in the streams they create.
+ * <p>
+ * Built in codecs are available from {@link Codecs}, which also offers one-call compression of strings, byte arrays,
+ * files and streams with any codec, and decompression that detects the codec from the data's magic bytes. Register
+ * additional codecs with {@link Codecs#register(Codec)}.
+ */
+public interface Codec {
+    /**
+     * @return short unique name, e.g. <code>gzip</code>
+     */
+    @NonNull
+    String getName();
+
+    /**
+     * @return number of leading bytes {@link #matches(byte[], int)} looks at
+     */
+    int getMagicLength();
+
+    /**
+     * Tell if compressed data was produced by this codec
+     *
+     * @param header first bytes of the data
+     * @param length number of bytes in <code>header</code>, which may be less than {@link #getMagicLength()} for
+     *               very short input
+     * @return <code>true</code> if this codec recognizes the data
+     */
+    boolean matches(@NonNull byte[] header, int length);
+
+    /**
+     * Wrap a stream so everything written to the wrapper is compressed. Closing the wrapper finishes the compressed
+     * data and closes <code>out</code>.
+     *
+     * @param out destination (compressed)
+     * @return a compressing stream
+     * @throws IOException if unable to write a header
+     */
+    @NonNull
+    OutputStream compress(@NonNull OutputStream out) throws IOException;
+
+    /**
+     * Wrap a stream so everything read from the wrapper is decompressed. Closing the wrapper closes <code>in</code>.
+     *
+     * @param in source (compressed)
+     * @return a decompressing stream
+     * @throws IOException if unable to read or parse a header
+     */
+    @NonNull
+    InputStream decompress(@NonNull InputStream in) throws IOException;
+}
@@ -0,0 +1,348 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.ZipException;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Built in {@link Codec}s and codec agnostic compression. Decompression picks the codec by looking at the first bytes
+ * of the data, so callers need not know how something was compressed.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess", "TryFinallyCanBeTryWithResources"})
+@NoArgsConstructor(access = AccessLevel.PRIVATE) // no instance
+public final class Codecs {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * gzip with default options, as {@link Zipper} writes it
+     */
+    public static final Codec GZIP = new GzipCodec(GzipOptions.DEFAULT);
+
+    /**
+     * LZ4 frame format, compatible with the <code>lz4</code> tool. Much faster than gzip, at a lower ratio.
+     */
+    public static final Codec LZ4 = new Lz4Codec();
+
+    private static final CopyOnWriteArrayList<Codec> CODECS = new CopyOnWriteArrayList<>(new Codec[]{GZIP, LZ4});
+
+    /**
+     * @param options compression options
+     * @return a gzip codec compressing with the given options
+     */
+    @NonNull
+    public static Codec gzip(@NonNull final GzipOptions options) {
+        return new GzipCodec(options);
+    }
+
+    /**
+     * Make a codec available to {@link #forName(String)} and to detection on decompression
+     *
+     * @param codec codec to add
+     * @throws IllegalArgumentException if a codec of the same name is already registered
+     */
+    public static void register(@NonNull final Codec codec) {
+        synchronized (CODECS) {
+            if (null != forName(codec.getName())) {
+                throw new IllegalArgumentException("codec " + codec.getName() + " is already registered");
+            }
+
+            CODECS.add(codec);
+        }
+    }
+
+    /**
+     * @param name codec name
+     * @return the registered codec of that name or <code>null</code> if there is none
+     */
+    @Nullable
+    public static Codec forName(@NonNull final String name) {
+        for (final Codec codec : CODECS) {
+            if (codec.getName().equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Find the codec that produced some data
+     *
+     * @param header first bytes of the data
+     * @param length number of bytes in <code>header</code>
+     * @return the matching codec or <code>null</code> if none recognizes the data
+     */
+    @Nullable
+    public static Codec detect(@NonNull final byte[] header, final int length) {
+        for (final Codec codec : CODECS) {
+            if (codec.matches(header, length)) {
+                return codec;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Compress a string
+     *
+     * @param codec  codec to compress with
+     * @param string input string (uncompressed)
+     * @return compressed UTF-8 bytes of the string
+     * @throws IOException if unable to compress
+     */
+    public static byte[] compress(@NonNull final Codec codec, @NonNull final String string) throws IOException {
+        return compress(codec, string.getBytes(Zipper.UTF8));
+    }
+
+    /**
+     * Compress an array
+     *
+     * @param codec codec to compress with
+     * @param data  input bytes (uncompressed)
+     * @return compressed bytes
+     * @throws IOException if unable to compress
+     */
+    public static byte[] compress(@NonNull final Codec codec, @NonNull final byte[] data) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(32, data.length / 2));
+        final OutputStream out = codec.compress(bos);
+
+        out.write(data);
+        out.close();
+        return bos.toByteArray();
+    }
+
+    /**
+     * Compress a file into another
+     *
+     * @param codec      codec to compress with
+     * @param original   input file (uncompressed)
+     * @param compressed output file (compressed)
+     * @throws IOException if unable to read the input or write the output
+     */
+    public static void compress(@NonNull final Codec codec, @NonNull final File original,
+                                @NonNull final File compressed) throws IOException {
+        final InputStream in = new FileInputStream(original);
+
+        try {
+            final OutputStream out = codec.compress(new FileOutputStream(compressed));
+
+            try {
+                copy(in, out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Compress the contents of a stream and write it to another. This method <b>does not close</b> either stream.
+     *
+     * @param codec codec to compress with
+     * @param in    input stream (uncompressed)
+     * @param out   output stream (compressed)
+     * @throws IOException if unable to read or write
+     */
+    public static void compress(@NonNull final Codec codec, @NonNull final InputStream in,
+                                @NonNull final OutputStream out) throws IOException {
+        final OutputStream compressor = codec.compress(new NonClosingOutputStream(out));
+
+        try {
+            copy(in, compressor);
+        } finally {
+            compressor.close();
+        }
+    }
+
+    /**
+     * Decompress an array compressed by any registered codec
+     *
+     * @param compressed compressed bytes
+     * @return decompressed bytes
+     * @throws ZipException if no codec recognizes the data, or if it is corrupt
+     * @throws IOException  if unable to decompress
+     */
+    public static byte[] decompress(@NonNull final byte[] compressed) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(32, compressed.length * 2));
+        decompress(new ByteArrayInputStream(compressed), bos);
+        return bos.toByteArray();
+    }
+
+    /**
+     * Decompress an array compressed by any registered codec into a string
+     *
+     * @param compressed compressed UTF-8 bytes
+     * @return decompressed string
+     * @throws ZipException if no codec recognizes the data, or if it is corrupt
+     * @throws IOException  if unable to decompress
+     */
+    public static String decompressToString(@NonNull final byte[] compressed) throws IOException {
+        return toString(decompress(compressed));
+    }
+
+    /**
+     * Decompress a file compressed by any registered codec
+     *
+     * @param compressed input file (compressed)
+     * @param output     output file (decompressed)
+     * @throws ZipException if no codec recognizes the data, or if it is corrupt
+     * @throws IOException  if unable to read the input or write the output
+     */
+    public static void decompress(@NonNull final File compressed, @NonNull final File output) throws IOException {
+        final InputStream in = decompress(new FileInputStream(compressed));
+
+        try {
+            final OutputStream out = new FileOutputStream(output);
+
+            try {
+                copy(in, out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Decompress the contents of a stream compressed by any registered codec and write it to another. This method
+     * <b>does not close</b> either stream.
+     *
+     * @param in  input stream (compressed)
+     * @param out output stream (decompressed)
+     * @throws ZipException if no codec recognizes the data, or if it is corrupt
+     * @throws IOException  if unable to read or write
+     */
+    public static void decompress(@NonNull final InputStream in, @NonNull final OutputStream out)
+            throws IOException {
+        final InputStream decompressor = decompress(new NonClosingInputStream(in));
+
+        try {
+            copy(decompressor, out);
+            out.flush();
+        } finally {
+            decompressor.close();
+        }
+    }
+
+    /**
+     * Wrap a stream compressed by any registered codec so reading from the wrapper decompresses it. The codec is
+     * detected right away. Closing the wrapper closes <code>in</code>.
+     *
+     * @param in input stream (compressed)
+     * @return a decompressing stream
+     * @throws ZipException if no codec recognizes the data
+     * @throws IOException  if unable to read
+     */
+    @NonNull
+    public static InputStream decompress(@NonNull final InputStream in) throws IOException {
+        int magicLength = 0;
+
+        for (final Codec codec : CODECS) {
+            magicLength = Math.max(magicLength, codec.getMagicLength());
+        }
+
+        final InputStream source = in.markSupported() ? in : new BufferedInputStream(in, BUFFER_SIZE);
+        final byte[] header = new byte[magicLength];
+
+        source.mark(magicLength);
+
+        int length = 0;
+        int read;
+
+        while (length < magicLength && (read = source.read(header, length, magicLength - length)) >= 0) {
+            length += read;
+        }
+
+        source.reset();
+
+        final Codec codec = detect(header, length);
+
+        if (null == codec) {
+            throw new ZipException("unrecognized compression format");
+        }
+
+        return codec.decompress(source);
+    }
+
+    private static void copy(final InputStream in, final OutputStream out) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private static String toString(final byte[] bytes) throws UnsupportedEncodingException {
+        return new String(bytes, Zipper.UTF8);
+    }
+
+    /**
+     * Keeps codec streams from closing a stream the caller owns
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(@NonNull final byte[] bytes, final int offset, final int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+
+    private static final class NonClosingInputStream extends FilterInputStream {
+        NonClosingInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+            // owned by the caller
+        }
+    }
+}
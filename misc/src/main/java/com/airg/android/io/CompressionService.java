@@ -0,0 +1,555 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs compression and decompression {@link Job}s on a pool of background threads, so callers (notably the main
+ * thread) never block on I/O. Each submitted job returns a {@link Task}: a {@link java.util.concurrent.Future} of the
+ * output size that can be cancelled, queried for progress, and optionally reports progress and completion to a
+ * {@link Callback}.
+ * <p>
+ * The queue is bounded. {@link #submit(Job, Callback)} waits for room when it is full, which throttles a producer to
+ * the speed of the workers; {@link #trySubmit(Job, Callback)} never waits and is the one to use from the main thread.
+ * <pre>
+ * final CompressionService service = new CompressionService(2, 16);
+ * final CompressionService.Task task = service.trySubmit(CompressionService.Job.compress(Codecs.GZIP, log, archive),
+ *         callback);
+ * if (null == task) { ... busy, try again later ... }
+ * </pre>
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess", "TryFinallyCanBeTryWithResources"})
+public final class CompressionService implements Closeable {
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore slots;
+    private final Set<Task> tasks = Collections.newSetFromMap(new ConcurrentHashMap<Task, Boolean>());
+
+    /**
+     * Receives the progress and outcome of a task. Methods are called from the worker threads, possibly concurrently
+     * for different tasks; post to a {@link android.os.Handler} to update UI. {@link #onCancelled(Task)} is called from
+     * the thread that cancelled the task.
+     */
+    public interface Callback {
+        /**
+         * More input was consumed
+         *
+         * @param task      task
+         * @param processed number of input bytes consumed so far
+         * @param total     total number of input bytes or <code>-1</code> if unknown
+         */
+        void onProgress(@NonNull Task task, long processed, long total);
+
+        /**
+         * The job completed
+         *
+         * @param task       task
+         * @param outputSize number of bytes written
+         */
+        void onComplete(@NonNull Task task, long outputSize);
+
+        /**
+         * The job failed. Partial output files have been deleted.
+         *
+         * @param task  task
+         * @param error cause
+         */
+        void onError(@NonNull Task task, @NonNull IOException error);
+
+        /**
+         * The task was cancelled. A job that had already started stops at its next read.
+         *
+         * @param task task
+         */
+        void onCancelled(@NonNull Task task);
+    }
+
+    /**
+     * Create a service
+     *
+     * @param workers       number of jobs run at the same time
+     * @param queueCapacity number of jobs that may wait for a worker before submitting blocks
+     */
+    public CompressionService(final int workers, final int queueCapacity) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("worker count must be positive: " + workers);
+        }
+
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("queue capacity cannot be negative: " + queueCapacity);
+        }
+
+        // the semaphore bounds the queue; the executor's own queue never rejects
+        slots = new Semaphore(workers + queueCapacity);
+        executor = new ThreadPoolExecutor(workers, workers, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new WorkerFactory());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Submit a job, waiting for room in the queue if it is full
+     *
+     * @param job      job to run
+     * @param callback receives progress and outcome, or <code>null</code>
+     * @return the queued task
+     * @throws InterruptedException       if interrupted while waiting for room
+     * @throws RejectedExecutionException if the service was shut down
+     */
+    @NonNull
+    public Task submit(@NonNull final Job job, @Nullable final Callback callback) throws InterruptedException {
+        slots.acquire();
+        return execute(new Task(job, callback));
+    }
+
+    /**
+     * Submit a job if the queue has room
+     *
+     * @param job      job to run
+     * @param callback receives progress and outcome, or <code>null</code>
+     * @return the queued task or <code>null</code> if the queue is full
+     * @throws RejectedExecutionException if the service was shut down
+     */
+    @Nullable
+    public Task trySubmit(@NonNull final Job job, @Nullable final Callback callback) {
+        return slots.tryAcquire() ? execute(new Task(job, callback)) : null;
+    }
+
+    /**
+     * @return number of tasks queued or running, including cancelled ones whose job has yet to stop
+     */
+    public int getTaskCount() {
+        return tasks.size();
+    }
+
+    /**
+     * Stop accepting jobs. Queued and running jobs still complete.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Stop accepting jobs and cancel all queued and running tasks
+     */
+    public void shutdownNow() {
+        executor.shutdown();
+
+        for (final Task task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Wait for all jobs to finish after a shutdown
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of <code>timeout</code>
+     * @return <code>true</code> if all jobs finished, <code>false</code> if the time ran out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(final long timeout, @NonNull final TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Same as {@link #shutdown()}
+     */
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    private Task execute(final Task task) {
+        tasks.add(task);
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.release();
+            throw e;
+        }
+
+        return task;
+    }
+
+    /**
+     * What to compress or decompress, from where to where. Decompression detects the codec, see
+     * {@link Codecs#decompress(InputStream)}. Streams handed to a job belong to it and are closed when it ends.
+     */
+    public static final class Job {
+        private final Codec codec;
+        private final File source;
+        private final File target;
+        private final InputStream in;
+        private final OutputStream out;
+        private final long length;
+
+        private Job(final Codec codec, final File source, final File target, final InputStream in,
+                    final OutputStream out, final long length) {
+            this.codec = codec;
+            this.source = source;
+            this.target = target;
+            this.in = in;
+            this.out = out;
+            this.length = length;
+        }
+
+        /**
+         * Compress a file into another
+         *
+         * @param codec      codec to compress with
+         * @param original   input file (uncompressed)
+         * @param compressed output file (compressed)
+         * @return a job
+         */
+        @NonNull
+        public static Job compress(@NonNull final Codec codec, @NonNull final File original,
+                                   @NonNull final File compressed) {
+            return new Job(codec, original, compressed, null, null, -1);
+        }
+
+        /**
+         * Compress a stream into another
+         *
+         * @param codec  codec to compress with
+         * @param in     input stream (uncompressed)
+         * @param length number of bytes in <code>in</code> for progress reports, or <code>-1</code> if unknown
+         * @param out    output stream (compressed)
+         * @return a job
+         */
+        @NonNull
+        public static Job compress(@NonNull final Codec codec, @NonNull final InputStream in, final long length,
+                                   @NonNull final OutputStream out) {
+            return new Job(codec, null, null, in, out, length);
+        }
+
+        /**
+         * Decompress a file into another
+         *
+         * @param compressed input file (compressed)
+         * @param output     output file (decompressed)
+         * @return a job
+         */
+        @NonNull
+        public static Job decompress(@NonNull final File compressed, @NonNull final File output) {
+            return new Job(null, compressed, output, null, null, -1);
+        }
+
+        /**
+         * Decompress a stream into another
+         *
+         * @param in     input stream (compressed)
+         * @param length number of bytes in <code>in</code> for progress reports, or <code>-1</code> if unknown
+         * @param out    output stream (decompressed)
+         * @return a job
+         */
+        @NonNull
+        public static Job decompress(@NonNull final InputStream in, final long length,
+                                     @NonNull final OutputStream out) {
+            return new Job(null, null, null, in, out, length);
+        }
+
+        /**
+         * @return number of input bytes or <code>-1</code> if unknown
+         */
+        public long getLength() {
+            return null == source ? length : source.length();
+        }
+
+        private long run(final Task task) throws IOException {
+            InputStream input = in;
+            OutputStream output = out;
+            boolean complete = false;
+
+            try {
+                if (null != source) {
+                    input = new FileInputStream(source);
+                }
+
+                if (null != target) {
+                    output = new FileOutputStream(target);
+                }
+
+                final ProgressInputStream progress = new ProgressInputStream(input, task);
+                final CountingOutputStream counter = new CountingOutputStream(output);
+
+                if (null == codec) {
+                    Codecs.decompress(progress, counter);
+                } else {
+                    Codecs.compress(codec, progress, counter);
+                }
+
+                output.close();
+                complete = true;
+                return counter.count;
+            } finally {
+                closeQuietly(input);
+                closeQuietly(output);
+
+                if (!complete && null != target) {
+                    //noinspection ResultOfMethodCallIgnored
+                    target.delete();
+                }
+            }
+        }
+
+        private static void closeQuietly(final Closeable closeable) {
+            if (null == closeable) {
+                return;
+            }
+
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // already failed or already done
+            }
+        }
+    }
+
+    /**
+     * A queued or running job. {@link #get()} returns the number of bytes written; it throws an
+     * {@link ExecutionException} wrapping an {@link IOException} if the job failed. {@link #cancel(boolean)} stops
+     * a running job at its next read.
+     */
+    public final class Task extends FutureTask<Long> {
+        private final Job job;
+        private final Callback callback;
+        private final long total;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long processed;
+
+        private Task(final Job job, final Callback callback) {
+            this(new Runner(), job, callback);
+        }
+
+        private Task(final Runner runner, final Job job, final Callback callback) {
+            super(runner);
+            runner.task = this;
+            this.job = job;
+            this.callback = callback;
+            total = job.getLength();
+        }
+
+        /**
+         * @return the job
+         */
+        @NonNull
+        public Job getJob() {
+            return job;
+        }
+
+        /**
+         * @return number of input bytes consumed so far
+         */
+        public long getBytesProcessed() {
+            return processed;
+        }
+
+        /**
+         * @return total number of input bytes or <code>-1</code> if unknown
+         */
+        public long getBytesTotal() {
+            return total;
+        }
+
+        private void progress(final long count) throws InterruptedIOException {
+            if (isCancelled() || Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("cancelled");
+            }
+
+            if (count <= 0) {
+                return;
+            }
+
+            processed += count;
+
+            if (null != callback) {
+                callback.onProgress(this, processed, total);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                // also covers a task cancelled before it started, whose job never runs
+                release();
+            }
+        }
+
+        /**
+         * Give up the task's queue slot once its job has stopped. A cancelled job may still be running when
+         * {@link #done()} is called, so the slot is only released from the worker.
+         */
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                tasks.remove(this);
+                slots.release();
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (null == callback) {
+                return;
+            }
+
+            final long outputSize;
+
+            try {
+                outputSize = get();
+            } catch (CancellationException e) {
+                callback.onCancelled(this);
+                return;
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                callback.onError(this, cause instanceof IOException ? (IOException) cause : new IOException(cause));
+                return;
+            } catch (InterruptedException e) {
+                // cannot happen: the task is done
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            callback.onComplete(this, outputSize);
+        }
+    }
+
+    private static final class Runner implements Callable<Long> {
+        Task task;
+
+        @Override
+        public Long call() throws IOException {
+            try {
+                return task.job.run(task);
+            } finally {
+                // before the result is set, so callbacks may submit again
+                task.release();
+            }
+        }
+    }
+
+    /**
+     * Reports what is read to the task and stops reading once the task is cancelled
+     */
+    private static final class ProgressInputStream extends FilterInputStream {
+        private final Task task;
+
+        ProgressInputStream(final InputStream in, final Task task) {
+            super(in);
+            this.task = task;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            task.progress(b < 0 ? 0 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(@NonNull final byte[] buffer, final int offset, final int count) throws IOException {
+            final int read = super.read(buffer, offset, count);
+            task.progress(read);
+            return read;
+        }
+
+        @Override
+        public long skip(final long count) throws IOException {
+            final long skipped = super.skip(count);
+            task.progress(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false; // progress would count re-read bytes twice
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(@NonNull final byte[] buffer, final int offset, final int length) throws IOException {
+            out.write(buffer, offset, length);
+            count += length;
+        }
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+        private static final AtomicInteger COUNT = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "compression-" + COUNT.incrementAndGet());
+
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
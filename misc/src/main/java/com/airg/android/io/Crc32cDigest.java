@@ -0,0 +1,120 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+/**
+ * Pure java CRC-32C (Castagnoli) using the slicing-by-8 technique. The digest is the 32 bit checksum in big endian
+ * byte order, so its hexadecimal form reads like the checksum value itself.
+ */
+final class Crc32cDigest extends MessageDigest {
+    private static final int POLYNOMIAL = 0x82F63B78; // reversed 0x1EDC6F41
+    private static final int[][] TABLE = new int[8][256];
+
+    static {
+        for (int n = 0; n < 256; n++) {
+            int crc = n;
+
+            for (int k = 0; k < 8; k++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+            }
+
+            TABLE[0][n] = crc;
+        }
+
+        for (int n = 0; n < 256; n++) {
+            for (int t = 1; t < 8; t++) {
+                TABLE[t][n] = (TABLE[t - 1][n] >>> 8) ^ TABLE[0][TABLE[t - 1][n] & 0xff];
+            }
+        }
+    }
+
+    private int crc = 0xffffffff;
+
+    Crc32cDigest() {
+        super(Hasher.CRC32C_ALGORITHM);
+    }
+
+    @Override
+    protected int engineGetDigestLength() {
+        return 4;
+    }
+
+    @Override
+    protected void engineUpdate(final byte input) {
+        crc = (crc >>> 8) ^ TABLE[0][(crc ^ input) & 0xff];
+    }
+
+    @Override
+    protected void engineUpdate(final byte[] input, int offset, final int length) {
+        final int[] t0 = TABLE[0], t1 = TABLE[1], t2 = TABLE[2], t3 = TABLE[3];
+        final int[] t4 = TABLE[4], t5 = TABLE[5], t6 = TABLE[6], t7 = TABLE[7];
+        final int end = offset + length;
+
+        int c = crc;
+
+        for (; offset + 8 <= end; offset += 8) {
+            final int lo = c ^ BlockDigest.getIntLE(input, offset);
+            final int hi = BlockDigest.getIntLE(input, offset + 4);
+
+            c = t7[lo & 0xff] ^ t6[(lo >>> 8) & 0xff] ^ t5[(lo >>> 16) & 0xff] ^ t4[lo >>> 24]
+                    ^ t3[hi & 0xff] ^ t2[(hi >>> 8) & 0xff] ^ t1[(hi >>> 16) & 0xff] ^ t0[hi >>> 24];
+        }
+
+        for (; offset < end; offset++) {
+            c = (c >>> 8) ^ t0[(c ^ input[offset]) & 0xff];
+        }
+
+        crc = c;
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+        final byte[] digest = new byte[4];
+        write(digest, 0);
+        return digest;
+    }
+
+    @Override
+    protected int engineDigest(final byte[] buf, final int offset, final int len) throws DigestException {
+        if (len < 4) {
+            throw new DigestException("partial digests not returned");
+        }
+
+        write(buf, offset);
+        return 4;
+    }
+
+    @Override
+    protected void engineReset() {
+        crc = 0xffffffff;
+    }
+
+    private void write(final byte[] out, final int offset) {
+        final int value = ~crc;
+
+        out[offset] = (byte) (value >>> 24);
+        out[offset + 1] = (byte) (value >>> 16);
+        out[offset + 2] = (byte) (value >>> 8);
+        out[offset + 3] = (byte) value;
+        engineReset();
+    }
+}
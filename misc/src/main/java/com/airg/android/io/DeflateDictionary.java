@@ -0,0 +1,457 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.EOFException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * A preset dictionary for deflate. Small messages compress poorly because each starts with an empty window; priming
+ * the compressor with content typical of the messages (field names, common values, boilerplate) lets even the first
+ * bytes of a message be encoded as back references.
+ * <p>
+ * Compressed messages use the zlib format (RFC 1950) with the <code>FDICT</code> flag set: a 2 byte header, the 4
+ * byte id of the dictionary, raw deflate data and an Adler-32 checksum. The dictionary id is the Adler-32 of the
+ * dictionary, as in zlib, so {@link Zipper#inflate(byte[], DeflateDictionary...)} can pick the right one out of
+ * several and any zlib implementation given the same dictionary can decode the output.
+ *
+ * @see Zipper#deflate(byte[], DeflateDictionary)
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class DeflateDictionary {
+    /**
+     * Dictionaries longer than the deflate window are pointless: only the last 32 KiB are ever referenced
+     */
+    public static final int MAX_SIZE = 32 * 1024;
+
+    private static final int ZLIB_HEADER_SIZE = 6; // CMF, FLG, DICTID
+    private static final int ZLIB_TRAILER_SIZE = 4; // ADLER32
+    private static final int CMF = 0x78; // deflate with a 32 KiB window
+    private static final int FDICT = 0x20;
+    private static final int FLG = 0xbb; // default level, FDICT, check bits
+
+    private static final int GRAM = 8; // length of the substrings counted when training
+    private static final int SEGMENT = 32; // length of the pieces a trained dictionary is made of
+
+    private final byte[] bytes;
+    private final int id;
+
+    private DeflateDictionary(final byte[] bytes) {
+        this.bytes = bytes;
+
+        final Adler32 adler = new Adler32();
+        adler.update(bytes);
+        id = (int) adler.getValue();
+    }
+
+    /**
+     * Use the given bytes as a dictionary. Put the most common content last: it is the cheapest to reference.
+     *
+     * @param bytes dictionary content. Only the last {@link #MAX_SIZE} bytes are used.
+     * @return a dictionary
+     */
+    @NonNull
+    public static DeflateDictionary of(@NonNull final byte[] bytes) {
+        if (bytes.length == 0) {
+            throw new IllegalArgumentException("empty dictionary");
+        }
+
+        return new DeflateDictionary(Arrays.copyOfRange(bytes, Math.max(0, bytes.length - MAX_SIZE), bytes.length));
+    }
+
+    /**
+     * Build a dictionary out of sample text. See {@link #train(Collection, int)}.
+     *
+     * @param samples typical messages
+     * @param maxSize maximum dictionary size in bytes, up to {@link #MAX_SIZE}
+     * @return a dictionary
+     * @throws UnsupportedEncodingException if UTF-8 is not supported (never)
+     */
+    @NonNull
+    public static DeflateDictionary trainText(@NonNull final Collection<? extends CharSequence> samples,
+                                              final int maxSize) throws UnsupportedEncodingException {
+        final List<byte[]> bytes = new ArrayList<>(samples.size());
+
+        for (final CharSequence sample : samples) {
+            bytes.add(sample.toString().getBytes(Zipper.UTF8));
+        }
+
+        return train(bytes, maxSize);
+    }
+
+    /**
+     * Build a dictionary out of sample messages. Samples are cut into short segments which are scored by how many
+     * samples share the substrings they contain; the best segments are collected greedily, discounting substrings
+     * already covered, and the most valuable ones end up at the end of the dictionary. Train on a few hundred
+     * representative messages rather than a few large ones.
+     *
+     * @param samples typical messages
+     * @param maxSize maximum dictionary size in bytes, up to {@link #MAX_SIZE}
+     * @return a dictionary
+     * @throws IllegalArgumentException if the samples share nothing worth putting in a dictionary
+     */
+    @NonNull
+    public static DeflateDictionary train(@NonNull final Collection<byte[]> samples, final int maxSize) {
+        if (maxSize <= 0 || maxSize > MAX_SIZE) {
+            throw new IllegalArgumentException("dictionary size must be between 1 and " + MAX_SIZE + ": " + maxSize);
+        }
+
+        // how many samples contain each substring
+        final HashMap<Long, int[]> frequency = new HashMap<>();
+        final HashSet<Long> seen = new HashSet<>();
+
+        for (final byte[] sample : samples) {
+            seen.clear();
+
+            for (int i = 0; i + GRAM <= sample.length; i++) {
+                final Long gram = gram(sample, i);
+
+                if (seen.add(gram)) {
+                    final int[] count = frequency.get(gram);
+
+                    if (null == count) {
+                        frequency.put(gram, new int[]{1});
+                    } else {
+                        count[0]++;
+                    }
+                }
+            }
+        }
+
+        // candidate segments, overlapping by half
+        final PriorityQueue<Segment> candidates = new PriorityQueue<>();
+
+        for (final byte[] sample : samples) {
+            for (int start = 0; start < sample.length; start += SEGMENT / 2) {
+                final Segment segment = new Segment(sample, start, Math.min(start + SEGMENT, sample.length));
+
+                if (segment.rescore(frequency) > 0) {
+                    candidates.add(segment);
+                }
+            }
+        }
+
+        // lazy greedy: scores only ever drop, so a segment that is still best after rescoring is the best
+        final List<Segment> chosen = new ArrayList<>();
+        int size = 0;
+
+        while (size < maxSize && !candidates.isEmpty()) {
+            final Segment best = candidates.poll();
+
+            if (best.rescore(frequency) <= 0) {
+                continue;
+            }
+
+            if (!candidates.isEmpty() && best.score < candidates.peek().score) {
+                candidates.add(best);
+                continue;
+            }
+
+            best.consume(frequency);
+            chosen.add(best);
+            size += best.end - best.start;
+        }
+
+        if (chosen.isEmpty()) {
+            throw new IllegalArgumentException("samples have nothing in common");
+        }
+
+        // most valuable last, closest to the data
+        final byte[] dictionary = new byte[Math.min(size, maxSize)];
+        int position = dictionary.length;
+
+        for (final Segment segment : chosen) {
+            final int length = Math.min(segment.end - segment.start, position);
+            position -= length;
+            System.arraycopy(segment.sample, segment.end - length, dictionary, position, length);
+
+            if (position == 0) {
+                break;
+            }
+        }
+
+        return new DeflateDictionary(dictionary);
+    }
+
+    /**
+     * @return the dictionary id: the Adler-32 of its content
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return dictionary size in bytes
+     */
+    public int size() {
+        return bytes.length;
+    }
+
+    /**
+     * @return a copy of the dictionary content, e.g. to store it for use by {@link #of(byte[])}
+     */
+    @NonNull
+    public byte[] getBytes() {
+        return bytes.clone();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return this == o || (o instanceof DeflateDictionary && Arrays.equals(bytes, ((DeflateDictionary) o).bytes));
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "DeflateDictionary{id=" + Integer.toHexString(id) + ", size=" + bytes.length + '}';
+    }
+
+    /**
+     * Compress a message
+     *
+     * @param in       input array
+     * @param offset   offset of the first byte to compress
+     * @param length   number of bytes to compress
+     * @param deflater a fresh or {@link Deflater#reset()} raw (<code>nowrap</code>) deflater. It is left finished but
+     *                 not ended.
+     * @return zlib stream referencing this dictionary
+     */
+    byte[] deflate(@NonNull final byte[] in, final int offset, final int length, @NonNull final Deflater deflater) {
+        final Adler32 adler = new Adler32();
+        adler.update(in, offset, length);
+
+        byte[] out = new byte[ZLIB_HEADER_SIZE + length + (length >> 12) + (length >> 14) + (length >> 25) + 13
+                + ZLIB_TRAILER_SIZE];
+        out[0] = (byte) CMF;
+        out[1] = (byte) FLG;
+        putIntBE(id, out, 2);
+
+        deflater.setDictionary(bytes);
+        deflater.setInput(in, offset, length);
+        deflater.finish();
+
+        int written = ZLIB_HEADER_SIZE;
+
+        while (true) {
+            written += deflater.deflate(out, written, out.length - ZLIB_TRAILER_SIZE - written);
+
+            if (deflater.finished()) {
+                break;
+            }
+
+            out = Arrays.copyOf(out, out.length * 2);
+        }
+
+        putIntBE((int) adler.getValue(), out, written);
+        return Arrays.copyOf(out, written + ZLIB_TRAILER_SIZE);
+    }
+
+    /**
+     * Decompress a message compressed with one of the given dictionaries (or with none)
+     *
+     * @param in            input array
+     * @param offset        offset of the zlib stream
+     * @param length        length of the zlib stream
+     * @param maxOutputSize maximum number of bytes to decompress
+     * @param inflater      a fresh or {@link Inflater#reset()} raw (<code>nowrap</code>) inflater. It is not ended.
+     * @param dictionaries  candidate dictionaries
+     * @return decompressed data
+     * @throws ZipException if the input is corrupt, references none of the given dictionaries or decompresses to more
+     *                      than <code>maxOutputSize</code> bytes
+     */
+    static byte[] inflate(@NonNull final byte[] in, final int offset, final int length, final long maxOutputSize,
+                          @NonNull final Inflater inflater, @NonNull final DeflateDictionary... dictionaries)
+            throws ZipException, EOFException {
+        if (maxOutputSize < 0) {
+            throw new IllegalArgumentException("output limit cannot be negative: " + maxOutputSize);
+        }
+
+        if (length < 2 + ZLIB_TRAILER_SIZE) {
+            throw new EOFException("truncated zlib stream");
+        }
+
+        final int cmf = in[offset] & 0xff;
+        final int flg = in[offset + 1] & 0xff;
+
+        if ((cmf & 0x0f) != 8 || (cmf >> 4) > 7 || (cmf << 8 | flg) % 31 != 0) {
+            throw new ZipException("not a zlib stream");
+        }
+
+        int position = offset + 2;
+
+        if ((flg & FDICT) != 0) {
+            if (length < ZLIB_HEADER_SIZE + ZLIB_TRAILER_SIZE) {
+                throw new EOFException("truncated zlib stream");
+            }
+
+            final int dictionaryId = getIntBE(in, position);
+            inflater.setDictionary(find(dictionaryId, dictionaries).bytes);
+            position += 4;
+        }
+
+        final int end = offset + length - ZLIB_TRAILER_SIZE;
+        inflater.setInput(in, position, end - position);
+
+        // one byte past the limit, so filling the array means the limit was exceeded
+        final int capacity = (int) Math.min(Integer.MAX_VALUE - 9, maxOutputSize) + 1;
+        byte[] out = new byte[(int) Math.min(capacity, Math.max(64, length * 4L))];
+        int written = 0;
+
+        try {
+            while (!inflater.finished()) {
+                if (written == out.length) {
+                    out = Arrays.copyOf(out, (int) Math.min(capacity, out.length * 2L));
+                }
+
+                final int inflated = inflater.inflate(out, written, out.length - written);
+                written += inflated;
+
+                if (written == capacity) {
+                    throw new ZipException("decompressed size exceeds the limit of " + (capacity - 1) + " bytes");
+                }
+
+                if (inflated == 0 && inflater.needsInput()) {
+                    throw new EOFException("truncated zlib stream");
+                }
+
+                if (inflater.needsDictionary()) {
+                    throw new ZipException("zlib stream requires an unspecified dictionary");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+
+        if (inflater.getRemaining() != 0) {
+            throw new ZipException("unexpected data after the compressed stream");
+        }
+
+        final Adler32 adler = new Adler32();
+        adler.update(out, 0, written);
+
+        if ((int) adler.getValue() != getIntBE(in, end)) {
+            throw new ZipException("corrupt zlib stream: checksum mismatch");
+        }
+
+        return written == out.length ? out : Arrays.copyOf(out, written);
+    }
+
+    private static DeflateDictionary find(final int id, final DeflateDictionary[] dictionaries) throws ZipException {
+        for (final DeflateDictionary dictionary : dictionaries) {
+            if (dictionary.id == id) {
+                return dictionary;
+            }
+        }
+
+        throw new ZipException("unknown dictionary id " + Integer.toHexString(id));
+    }
+
+    private static Long gram(final byte[] bytes, final int offset) {
+        long value = 0;
+
+        for (int i = 0; i < GRAM; i++) {
+            value = value << 8 | (bytes[offset + i] & 0xff);
+        }
+
+        return value;
+    }
+
+    private static void putIntBE(final int value, final byte[] out, final int offset) {
+        out[offset] = (byte) (value >>> 24);
+        out[offset + 1] = (byte) (value >>> 16);
+        out[offset + 2] = (byte) (value >>> 8);
+        out[offset + 3] = (byte) value;
+    }
+
+    private static int getIntBE(final byte[] in, final int offset) {
+        return (in[offset] & 0xff) << 24
+                | (in[offset + 1] & 0xff) << 16
+                | (in[offset + 2] & 0xff) << 8
+                | (in[offset + 3] & 0xff);
+    }
+
+    /**
+     * A training candidate: a piece of one sample, scored by the number of other samples sharing its substrings
+     */
+    private static final class Segment implements Comparable<Segment> {
+        final byte[] sample;
+        final int start;
+        final int end;
+        int score;
+
+        Segment(final byte[] sample, final int start, final int end) {
+            this.sample = sample;
+            this.start = start;
+            this.end = end;
+        }
+
+        int rescore(final HashMap<Long, int[]> frequency) {
+            int total = 0;
+
+            for (int i = start; i + GRAM <= end; i++) {
+                final int[] count = frequency.get(gram(sample, i));
+
+                // a substring only one sample contains is not worth a byte of dictionary
+                if (null != count && count[0] > 1) {
+                    total += count[0];
+                }
+            }
+
+            score = total;
+            return total;
+        }
+
+        /**
+         * Mark the substrings of this segment as covered so other copies of them stop scoring
+         */
+        void consume(final HashMap<Long, int[]> frequency) {
+            for (int i = start; i + GRAM <= end; i++) {
+                final int[] count = frequency.get(gram(sample, i));
+
+                if (null != count) {
+                    count[0] = 0;
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(@NonNull final Segment other) {
+            return other.score < score ? -1 : (other.score == score ? 0 : 1); // highest score first
+        }
+    }
+}
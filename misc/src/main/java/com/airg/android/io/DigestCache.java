@@ -0,0 +1,355 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A persistent cache of file checksums. A file is only hashed again if its path, length, or last modified time
+ * changed since it was last hashed, so repeated integrity checks of unchanged files cost a <code>stat</code> rather
+ * than a full read.
+ * <p>
+ * The index is loaded from disk on first use, dropping entries of files that no longer exist, and written back by
+ * {@link #flush()}. All methods are thread safe.
+ * <p>
+ * Note that a file rewritten with the same length within the file system's timestamp resolution is indistinguishable
+ * from an unchanged file. Use {@link #invalidate(File)} after such writes.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess", "TryFinallyCanBeTryWithResources"})
+public final class DigestCache {
+    // an index holds one section per algorithm, each with its entries: path, length, last modified, raw digest
+    private static final int MAGIC = 0x44474332; // DGC2
+
+    private final File index;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private volatile boolean dirty;
+
+    /**
+     * Create a cache backed by the given index file. Nothing is read until the cache is first used.
+     *
+     * @param index index file. Created on the first {@link #flush()} if it does not exist.
+     */
+    public DigestCache(@NonNull final File index) {
+        this.index = index;
+    }
+
+    /**
+     * Get the SHA1 checksum of file contents, hashing the file only if it changed since it was last hashed
+     *
+     * @param file input file
+     * @return SHA1 checksum of file contents
+     * @throws IOException              errors reading, finding, or accessing the input file
+     * @throws NoSuchAlgorithmException if the local implementation does not support sha1
+     */
+    public String sha1(@NonNull final File file) throws IOException, NoSuchAlgorithmException {
+        return hash(file, Hasher.SHA_1_ALGORITHM);
+    }
+
+    /**
+     * Get the MD5 checksum of file contents, hashing the file only if it changed since it was last hashed
+     *
+     * @param file input file
+     * @return MD5 checksum of file contents
+     * @throws IOException              errors reading, finding, or accessing the input file
+     * @throws NoSuchAlgorithmException if the local implementation does not support md5
+     */
+    public String md5(@NonNull final File file) throws IOException, NoSuchAlgorithmException {
+        return hash(file, Hasher.MD5_ALGORITHM);
+    }
+
+    /**
+     * Get the checksum of file contents via the specified algorithm, hashing the file only if it changed since it was
+     * last hashed
+     *
+     * @param file      input file
+     * @param algorithm name of algorithm to use, e.g. <code>SHA-1</code>
+     * @return calculated checksum of the file
+     * @throws IOException              errors reading, finding, or accessing the input file
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     */
+    public String hash(@NonNull final File file, @NonNull final String algorithm)
+            throws IOException, NoSuchAlgorithmException {
+        ensureLoaded();
+
+        final String path = file.getAbsolutePath();
+        final String name = algorithm.toUpperCase(Locale.ENGLISH);
+        final String key = key(path, name);
+
+        // stat before reading so a concurrent change during hashing is caught on the next call
+        final long length = file.length();
+        final long lastModified = file.lastModified();
+
+        if (0 == lastModified && !file.exists()) {
+            if (null != entries.remove(key)) {
+                dirty = true;
+            }
+
+            throw new FileNotFoundException(path);
+        }
+
+        final Entry cached = entries.get(key);
+
+        if (null != cached && cached.length == length && cached.lastModified == lastModified) {
+            return cached.digest;
+        }
+
+        final String digest = Hasher.hashFileWithAlgorithm(file, algorithm);
+
+        entries.put(key, new Entry(path, name, length, lastModified, digest));
+        dirty = true;
+        return digest;
+    }
+
+    /**
+     * Forget all checksums of a file
+     *
+     * @param file file
+     */
+    public void invalidate(@NonNull final File file) {
+        ensureLoaded();
+
+        final String path = file.getAbsolutePath();
+
+        for (final Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().path.equals(path)) {
+                iterator.remove();
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Forget all checksums
+     */
+    public void clear() {
+        ensureLoaded();
+        entries.clear();
+        dirty = true;
+    }
+
+    /**
+     * @return number of cached checksums
+     */
+    public int size() {
+        ensureLoaded();
+        return entries.size();
+    }
+
+    /**
+     * Write the index to disk if anything changed. The index is replaced atomically, so a crash mid-write leaves the
+     * previous index intact.
+     *
+     * @throws IOException if unable to write the index
+     */
+    public synchronized void flush() throws IOException {
+        if (!loaded || !dirty) {
+            return;
+        }
+
+        dirty = false;
+
+        final Map<String, List<Entry>> sections = new HashMap<>();
+
+        for (final Entry entry : entries.values()) {
+            List<Entry> section = sections.get(entry.algorithm);
+
+            if (null == section) {
+                section = new ArrayList<>();
+                sections.put(entry.algorithm, section);
+            }
+
+            section.add(entry);
+        }
+
+        final File parent = index.getAbsoluteFile().getParentFile();
+
+        if (null != parent && !parent.isDirectory() && !parent.mkdirs()) {
+            dirty = true;
+            throw new IOException("unable to create " + parent);
+        }
+
+        final File temp = new File(index.getPath() + ".tmp");
+
+        try {
+            final DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 8192));
+
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(sections.size());
+
+                for (final Map.Entry<String, List<Entry>> section : sections.entrySet()) {
+                    out.writeUTF(section.getKey());
+                    out.writeInt(section.getValue().size());
+
+                    for (final Entry entry : section.getValue()) {
+                        entry.write(out);
+                    }
+                }
+            } finally {
+                out.close();
+            }
+
+            if (!temp.renameTo(index)) {
+                throw new IOException("unable to replace " + index);
+            }
+        } catch (IOException e) {
+            dirty = true;
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            throw e;
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            load();
+        }
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+
+        try {
+            read();
+        } catch (IOException e) {
+            // missing or corrupt index: start over
+            entries.clear();
+            dirty = index.exists();
+        }
+
+        loaded = true;
+    }
+
+    private void read() throws IOException {
+        if (!index.exists()) {
+            return;
+        }
+
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index), 8192));
+
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a digest cache index: " + index);
+            }
+
+            // counts and lengths can't exceed the size of the file: a corrupt one must not cause a huge allocation
+            final long limit = index.length();
+            final int sections = readCount(in, limit);
+
+            for (int i = 0; i < sections; i++) {
+                final String algorithm = in.readUTF();
+                final int count = readCount(in, limit);
+
+                for (int j = 0; j < count; j++) {
+                    final Entry entry = Entry.read(in, algorithm, limit);
+
+                    if (new File(entry.path).exists()) {
+                        entries.put(key(entry.path, entry.algorithm), entry);
+                    } else {
+                        dirty = true;
+                    }
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static int readCount(final DataInputStream in, final long limit) throws IOException {
+        final int count = in.readInt();
+
+        if (count < 0 || count > limit) {
+            throw new IOException("corrupt digest cache index: count " + count);
+        }
+
+        return count;
+    }
+
+    private static String key(final String path, final String algorithm) {
+        return algorithm + '\n' + path;
+    }
+
+    private static final class Entry {
+        final String path;
+        final String algorithm;
+        final long length;
+        final long lastModified;
+        final String digest;
+
+        Entry(final String path, final String algorithm, final long length, final long lastModified,
+              final String digest) {
+            this.path = path;
+            this.algorithm = algorithm;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+
+        /**
+         * Write everything but the algorithm, which is written once per section. Unlike
+         * {@link DataOutputStream#writeUTF(String)}, the path may be longer than 64 KiB once encoded.
+         */
+        void write(final DataOutputStream out) throws IOException {
+            writeBytes(out, path.getBytes(Zipper.UTF8));
+            out.writeLong(length);
+            out.writeLong(lastModified);
+            writeBytes(out, Hasher.decodeHex(digest));
+        }
+
+        static Entry read(final DataInputStream in, final String algorithm, final long limit) throws IOException {
+            final String path = new String(readBytes(in, limit), Zipper.UTF8);
+            final long length = in.readLong();
+            final long lastModified = in.readLong();
+            return new Entry(path, algorithm, length, lastModified, Hasher.encodeHexString(readBytes(in, limit)));
+        }
+
+        private static void writeBytes(final DataOutputStream out, final byte[] bytes) throws IOException {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static byte[] readBytes(final DataInputStream in, final long limit) throws IOException {
+            final byte[] bytes = new byte[readCount(in, limit)];
+            in.readFully(bytes);
+            return bytes;
+        }
+    }
+}
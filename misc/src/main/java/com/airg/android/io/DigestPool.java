@@ -0,0 +1,91 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per-thread cache of {@link MessageDigest} engines keyed by algorithm name, so hashing does not pay for a provider
+ * lookup and a new engine on every call.
+ * <p>
+ * A digest is removed from the cache while acquired and put back by {@link #release(String, MessageDigest)}, so
+ * nested use of the same algorithm on one thread (e.g. hashing from within a stream that is itself being hashed)
+ * simply gets a new engine instead of corrupting the outer one.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE) // no instance
+final class DigestPool {
+    private static final ThreadLocal<HashMap<String, Slot>> DIGESTS = new ThreadLocal<HashMap<String, Slot>>() {
+        @Override
+        protected HashMap<String, Slot> initialValue() {
+            return new HashMap<>();
+        }
+    };
+
+    /**
+     * Get a reset digest for the current thread. Return it via {@link #release(String, MessageDigest)} when done.
+     *
+     * @param algorithm name of algorithm, e.g. <code>SHA-1</code>
+     * @return a digest ready for use
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     */
+    static MessageDigest acquire(@NonNull final String algorithm) throws NoSuchAlgorithmException {
+        final Slot slot = DIGESTS.get().get(algorithm);
+
+        if (null == slot || null == slot.digest) {
+            return Hasher.newDigest(algorithm);
+        }
+
+        final MessageDigest digest = slot.digest;
+        slot.digest = null;
+        digest.reset();
+        return digest;
+    }
+
+    /**
+     * Return a digest obtained from {@link #acquire(String)} to the current thread's cache
+     *
+     * @param algorithm algorithm name the digest was acquired with
+     * @param digest    digest to return. It must not be used after this call.
+     */
+    static void release(@NonNull final String algorithm, @NonNull final MessageDigest digest) {
+        final HashMap<String, Slot> digests = DIGESTS.get();
+        Slot slot = digests.get(algorithm);
+
+        if (null == slot) {
+            slot = new Slot();
+            digests.put(algorithm, slot);
+        }
+
+        slot.digest = digest;
+    }
+
+    /**
+     * Holds the idle digest of an algorithm. Slots stay in the map so taking and returning a digest allocates nothing.
+     */
+    private static final class Slot {
+        MessageDigest digest;
+    }
+}
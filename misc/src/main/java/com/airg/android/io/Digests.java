@@ -0,0 +1,117 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checksums of the same data calculated via several algorithms in a single pass. Algorithm names are matched
+ * ignoring case, just like {@link MessageDigest#getInstance(String)} does.
+ *
+ * @see Hasher#hashFileWithAlgorithms(java.io.File, String...)
+ * @see Hasher#hashStreamWithAlgorithms(java.io.InputStream, String...)
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class Digests {
+    private final Map<String, byte[]> digests;
+
+    Digests(@NonNull final String[] algorithms, @NonNull final MessageDigest[] engines) {
+        final LinkedHashMap<String, byte[]> map = new LinkedHashMap<>(algorithms.length * 2);
+
+        for (int i = 0; i < algorithms.length; i++) {
+            map.put(key(algorithms[i]), engines[i].digest());
+        }
+
+        digests = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Get the hexadecimal checksum calculated via the given algorithm
+     *
+     * @param algorithm algorithm name, e.g. <code>SHA-1</code>
+     * @return hexadecimal checksum or <code>null</code> if the algorithm was not requested
+     */
+    @Nullable
+    public String get(@NonNull final String algorithm) {
+        final byte[] digest = digests.get(key(algorithm));
+        return null == digest ? null : Hasher.encodeHexString(digest);
+    }
+
+    /**
+     * Get the raw checksum calculated via the given algorithm
+     *
+     * @param algorithm algorithm name, e.g. <code>SHA-1</code>
+     * @return a copy of the raw checksum or <code>null</code> if the algorithm was not requested
+     */
+    @Nullable
+    public byte[] getBytes(@NonNull final String algorithm) {
+        final byte[] digest = digests.get(key(algorithm));
+        return null == digest ? null : digest.clone();
+    }
+
+    /**
+     * @return MD5 checksum or <code>null</code> if it was not requested
+     */
+    @Nullable
+    public String md5() {
+        return get(Hasher.MD5_ALGORITHM);
+    }
+
+    /**
+     * @return SHA1 checksum or <code>null</code> if it was not requested
+     */
+    @Nullable
+    public String sha1() {
+        return get(Hasher.SHA_1_ALGORITHM);
+    }
+
+    /**
+     * @return (upper case) names of all calculated algorithms, in the order they were requested
+     */
+    public Set<String> algorithms() {
+        return digests.keySet();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("{");
+
+        for (final Map.Entry<String, byte[]> entry : digests.entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+
+            sb.append(entry.getKey()).append('=').append(Hasher.encodeHexString(entry.getValue()));
+        }
+
+        return sb.append('}').toString();
+    }
+
+    private static String key(final String algorithm) {
+        return algorithm.toUpperCase(Locale.ENGLISH);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * {@link Zipper}'s gzip as a {@link Codec}
+ */
+final class GzipCodec implements Codec {
+    private final GzipOptions options;
+
+    GzipCodec(@NonNull final GzipOptions options) {
+        this.options = options;
+    }
+
+    @NonNull
+    @Override
+    public String getName() {
+        return "gzip";
+    }
+
+    @Override
+    public int getMagicLength() {
+        return 2;
+    }
+
+    @Override
+    public boolean matches(@NonNull final byte[] header, final int length) {
+        return length >= 2 && (header[0] & 0xff | (header[1] & 0xff) << 8) == GzipFormat.MAGIC;
+    }
+
+    @NonNull
+    @Override
+    public OutputStream compress(@NonNull final OutputStream out) throws IOException {
+        return Zipper.gzipStream(out, options);
+    }
+
+    @NonNull
+    @Override
+    public InputStream decompress(@NonNull final InputStream in) throws IOException {
+        return new GzipSource(in);
+    }
+}
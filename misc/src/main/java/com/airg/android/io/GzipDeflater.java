@@ -0,0 +1,148 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Writes a single gzip member by driving a raw {@link Deflater} directly, reading and writing through NIO channels.
+ * Skips the copies {@link java.util.zip.GZIPOutputStream} and its buffered stream wrappers would add.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE) // no instance
+final class GzipDeflater {
+    /**
+     * Compress everything readable from a channel. Neither channel is closed.
+     *
+     * @param in         blocking input channel (uncompressed)
+     * @param out        blocking output channel (compressed)
+     * @param bufferSize size of the input and output buffers
+     * @param deflater   a fresh or {@link Deflater#reset()} raw (<code>nowrap</code>) deflater. It is left finished
+     *                   but not ended.
+     * @return number of uncompressed bytes read
+     * @throws IOException if unable to read or write
+     */
+    static long compress(@NonNull final ReadableByteChannel in, @NonNull final WritableByteChannel out,
+                         final int bufferSize, @NonNull final Deflater deflater) throws IOException {
+        final ByteBuffer input = ByteBuffer.allocate(bufferSize);
+        final ByteBuffer output = ByteBuffer.allocate(bufferSize);
+        final CRC32 crc = new CRC32();
+
+        writeFully(out, ByteBuffer.wrap(GzipFormat.HEADER));
+
+        long size = 0;
+        int read;
+
+        while ((read = in.read(input)) >= 0) {
+            if (read == 0) {
+                if (!input.hasRemaining()) {
+                    input.clear();
+                }
+
+                continue;
+            }
+
+            final int start = input.position() - read;
+            crc.update(input.array(), start, read);
+            size += read;
+
+            deflater.setInput(input.array(), start, read);
+
+            while (!deflater.needsInput()) {
+                drain(deflater, output, out);
+            }
+
+            input.clear();
+        }
+
+        deflater.finish();
+
+        while (!deflater.finished()) {
+            drain(deflater, output, out);
+        }
+
+        final byte[] trailer = new byte[GzipFormat.TRAILER_SIZE];
+        GzipFormat.writeTrailer(crc.getValue(), size, trailer, 0);
+        writeFully(out, ByteBuffer.wrap(trailer));
+        return size;
+    }
+
+    /**
+     * Compress an array into a single gzip member
+     *
+     * @param in       input array
+     * @param offset   offset of the first byte to compress
+     * @param length   number of bytes to compress
+     * @param deflater a fresh or {@link Deflater#reset()} raw (<code>nowrap</code>) deflater. It is left finished
+     *                 but not ended.
+     * @return the gzip member
+     */
+    static byte[] compress(@NonNull final byte[] in, final int offset, final int length,
+                           @NonNull final Deflater deflater) {
+        final CRC32 crc = new CRC32();
+        crc.update(in, offset, length);
+
+        // room for the worst case (stored blocks), as estimated by zlib's deflateBound
+        byte[] out = new byte[GzipFormat.HEADER_SIZE + length + (length >> 12) + (length >> 14) + (length >> 25)
+                + 13 + GzipFormat.TRAILER_SIZE];
+        System.arraycopy(GzipFormat.HEADER, 0, out, 0, GzipFormat.HEADER_SIZE);
+
+        deflater.setInput(in, offset, length);
+        deflater.finish();
+
+        int written = GzipFormat.HEADER_SIZE;
+
+        while (true) {
+            written += deflater.deflate(out, written, out.length - GzipFormat.TRAILER_SIZE - written);
+
+            if (deflater.finished()) {
+                break;
+            }
+
+            out = Arrays.copyOf(out, out.length * 2);
+        }
+
+        GzipFormat.writeTrailer(crc.getValue(), length, out, written);
+        return Arrays.copyOf(out, written + GzipFormat.TRAILER_SIZE);
+    }
+
+    private static void drain(final Deflater deflater, final ByteBuffer output, final WritableByteChannel out)
+            throws IOException {
+        output.clear();
+        output.limit(deflater.deflate(output.array(), 0, output.capacity()));
+        writeFully(out, output);
+    }
+
+    static void writeFully(final WritableByteChannel out, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
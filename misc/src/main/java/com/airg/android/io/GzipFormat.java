@@ -0,0 +1,245 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import java.nio.ByteBuffer;
+import java.util.zip.ZipException;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Bits and pieces of the gzip file format (RFC 1952) needed by the compressors that drive a raw
+ * {@link java.util.zip.Deflater} themselves instead of going through {@link java.util.zip.GZIPOutputStream}.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE) // no instance
+final class GzipFormat {
+    static final int MAGIC = 0x8b1f;
+    static final int HEADER_SIZE = 10;
+    static final int TRAILER_SIZE = 8;
+
+    /**
+     * BGZF (blocked gzip, as used by <code>bgzip</code> and <code>samtools</code>) block header: a gzip header with
+     * an extra field holding the <code>BC</code> subfield, whose 2 byte value (filled in per block) is the total block
+     * size minus one
+     */
+    static final byte[] BGZF_HEADER = {0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0, 0,
+            0};
+    static final int BGZF_HEADER_SIZE = 18;
+    static final int BGZF_MAX_BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * Most input per block, leaving room for incompressible data to fit in {@link #BGZF_MAX_BLOCK_SIZE}
+     */
+    static final int BGZF_MAX_INPUT_SIZE = 0xff00;
+
+    /**
+     * The empty block that marks the end of a BGZF file
+     */
+    static final byte[] BGZF_EOF = {0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0, 0x1b,
+            0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+
+    /**
+     * Parse the header of a BGZF block
+     *
+     * @param header block header: at least the first {@link #BGZF_HEADER_SIZE} bytes of the block, more if it has
+     *               extra subfields before <code>BC</code>
+     * @param length number of header bytes available
+     * @return total size of the block in bytes, or <code>-1</code> if more header bytes are needed
+     * @throws ZipException if this is not a BGZF block
+     */
+    static int bgzfBlockSize(final byte[] header, final int length) throws ZipException {
+        if (length < 12 || (header[0] & 0xff | (header[1] & 0xff) << 8) != MAGIC || header[2] != 8
+                || (header[3] & 4) == 0) {
+            throw new ZipException("not a BGZF block");
+        }
+
+        final int extraLength = header[10] & 0xff | (header[11] & 0xff) << 8;
+
+        if (length < 12 + extraLength) {
+            return -1;
+        }
+
+        for (int i = 12; i + 4 <= 12 + extraLength; ) {
+            final int subfieldLength = header[i + 2] & 0xff | (header[i + 3] & 0xff) << 8;
+
+            if (header[i] == 'B' && header[i + 1] == 'C' && subfieldLength == 2) {
+                return (header[i + 4] & 0xff | (header[i + 5] & 0xff) << 8) + 1;
+            }
+
+            i += 4 + subfieldLength;
+        }
+
+        throw new ZipException("gzip member without a BGZF block size");
+    }
+
+    /**
+     * Upper bound of the deflate compression ratio (each 2 bits of a repeat code yields at most 258 bytes)
+     */
+    static final long MAX_DEFLATE_RATIO = 1032;
+
+    /**
+     * Minimal member header: magic, deflate, no flags, no time stamp, no extra flags, unknown OS. Identical to the
+     * header written by {@link java.util.zip.GZIPOutputStream}.
+     */
+    static final byte[] HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, 0};
+
+    /**
+     * Write a member trailer
+     *
+     * @param crc    CRC32 of the uncompressed data
+     * @param size   length of the uncompressed data
+     * @param out    output array
+     * @param offset offset to write the {@link #TRAILER_SIZE} bytes at
+     */
+    static void writeTrailer(final long crc, final long size, final byte[] out, final int offset) {
+        writeIntLE((int) crc, out, offset);
+        writeIntLE((int) size, out, offset + 4); // ISIZE is the size modulo 2^32
+    }
+
+    /**
+     * Guess the uncompressed size of in-memory gzip data from the ISIZE field of its (last) member, so the output
+     * buffer can be allocated once. The trailer is not trusted beyond deflate's maximum ratio.
+     *
+     * @param data   compressed data
+     * @param offset offset of the compressed data
+     * @param length length of the compressed data
+     * @return a non-negative size hint
+     */
+    static int sizeHint(final byte[] data, final int offset, final int length) {
+        if (length < HEADER_SIZE + TRAILER_SIZE) {
+            return 0;
+        }
+
+        final long size = readIntLE(data, offset + length - 4) & 0xffffffffL;
+        return (int) Math.min(size, Math.min(Integer.MAX_VALUE - 8, length * MAX_DEFLATE_RATIO));
+    }
+
+    /**
+     * Same as {@link #sizeHint(byte[], int, int)} for the remaining contents of a buffer, which may be direct. The
+     * buffer's position is not changed.
+     *
+     * @param data compressed data
+     * @return a non-negative size hint
+     */
+    static int sizeHint(final ByteBuffer data) {
+        final int length = data.remaining();
+
+        if (length < HEADER_SIZE + TRAILER_SIZE) {
+            return 0;
+        }
+
+        final int end = data.limit();
+        final long size = ((data.get(end - 4) & 0xff)
+                | (data.get(end - 3) & 0xff) << 8
+                | (data.get(end - 2) & 0xff) << 16
+                | (data.get(end - 1) & 0xff) << 24) & 0xffffffffL;
+        return (int) Math.min(size, Math.min(Integer.MAX_VALUE - 8, length * MAX_DEFLATE_RATIO));
+    }
+
+    static void writeIntLE(final int value, final byte[] out, final int offset) {
+        out[offset] = (byte) value;
+        out[offset + 1] = (byte) (value >>> 8);
+        out[offset + 2] = (byte) (value >>> 16);
+        out[offset + 3] = (byte) (value >>> 24);
+    }
+
+    static int readIntLE(final byte[] in, final int offset) {
+        return (in[offset] & 0xff)
+                | (in[offset + 1] & 0xff) << 8
+                | (in[offset + 2] & 0xff) << 16
+                | (in[offset + 3] & 0xff) << 24;
+    }
+
+    /**
+     * Combine the CRC32 of two consecutive blocks of data, as zlib's <code>crc32_combine</code> does
+     *
+     * @param crc1   CRC32 of the first block
+     * @param crc2   CRC32 of the second block
+     * @param length2 length of the second block
+     * @return CRC32 of both blocks
+     */
+    static long crc32Combine(long crc1, final long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+
+        final long[] even = new long[32]; // even power-of-two zeros operator
+        final long[] odd = new long[32];  // odd power-of-two zeros operator
+
+        // operator for one zero bit in odd
+        odd[0] = 0xedb88320L; // CRC32 polynomial
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        gf2MatrixSquare(even, odd); // two zero bits
+        gf2MatrixSquare(odd, even); // four zero bits
+
+        // apply length2 zeros to crc1 (the first squaring puts the operator for one zero byte, eight zero bits, in
+        // even)
+        do {
+            gf2MatrixSquare(even, odd);
+
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+
+            length2 >>= 1;
+
+            if (length2 == 0) {
+                break;
+            }
+
+            gf2MatrixSquare(odd, even);
+
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+
+            length2 >>= 1;
+        } while (length2 != 0);
+
+        return (crc1 ^ crc2) & 0xffffffffL;
+    }
+
+    private static long gf2MatrixTimes(final long[] mat, long vec) {
+        long sum = 0;
+        int i = 0;
+
+        while (vec != 0) {
+            if ((vec & 1) != 0) {
+                sum ^= mat[i];
+            }
+
+            vec >>= 1;
+            i++;
+        }
+
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(final long[] square, final long[] mat) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(mat, mat[n]);
+        }
+    }
+}
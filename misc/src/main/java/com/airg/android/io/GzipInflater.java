@@ -0,0 +1,413 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decodes gzip data (RFC 1952) from a channel by driving a raw {@link Inflater} directly. Like
+ * {@link java.util.zip.GZIPInputStream} it reads concatenated members as one stream, verifies each member's CRC32 and
+ * size, and stops quietly at anything after the last member that does not look like another gzip header.
+ */
+final class GzipInflater {
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int MIN_BUFFER_SIZE = 64; // fits the fixed part of a header
+
+    private final ReadableByteChannel in;
+    private final Inflater inflater;
+    private final ByteBuffer input;
+    private final CRC32 crc = new CRC32();
+
+    private long limit = Long.MAX_VALUE;
+    private boolean singleMember;
+
+    private long total;
+    private long memberSize;
+    private int members;
+    private boolean started;
+    private boolean eof;
+
+    /**
+     * @param in         blocking input channel (compressed)
+     * @param bufferSize size of the input buffer
+     * @param inflater   a fresh or {@link Inflater#reset()} raw (<code>nowrap</code>) inflater. It is not ended.
+     */
+    GzipInflater(@NonNull final ReadableByteChannel in, final int bufferSize, @NonNull final Inflater inflater) {
+        this.in = in;
+        this.inflater = inflater;
+        input = ByteBuffer.allocate(Math.max(MIN_BUFFER_SIZE, bufferSize));
+        input.flip(); // empty, ready for reading
+    }
+
+    /**
+     * Decode gzip data held in memory. The array is read in place and never modified.
+     *
+     * @param data     compressed data
+     * @param offset   offset of the first member
+     * @param length   length of the compressed data
+     * @param inflater a fresh or {@link Inflater#reset()} raw (<code>nowrap</code>) inflater. It is not ended.
+     */
+    GzipInflater(@NonNull final byte[] data, final int offset, final int length, @NonNull final Inflater inflater) {
+        in = null;
+        this.inflater = inflater;
+        input = ByteBuffer.wrap(data, offset, length);
+    }
+
+    /**
+     * Set the maximum number of bytes to decompress. Going past it fails with a {@link ZipException} instead of
+     * filling memory or storage with whatever a malicious input expands to.
+     *
+     * @param limit maximum total output size
+     */
+    void setOutputLimit(final long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("output limit cannot be negative: " + limit);
+        }
+
+        this.limit = limit;
+    }
+
+    /**
+     * Stop after the first member instead of treating concatenated members as one stream
+     *
+     * @param singleMember <code>true</code> to decode one member only
+     */
+    void setSingleMember(final boolean singleMember) {
+        this.singleMember = singleMember;
+    }
+
+    /**
+     * @return total number of bytes decompressed so far
+     */
+    long getTotalOut() {
+        return total;
+    }
+
+    /**
+     * @return number of members started so far
+     */
+    int getMemberCount() {
+        return members;
+    }
+
+    /**
+     * Read and check the header of the first member. Called lazily by {@link #inflate(byte[], int, int)}, but may be
+     * called ahead of it to fail early on input that is not gzip data.
+     *
+     * @throws IOException if unable to read or if the input does not start with a gzip header
+     */
+    void start() throws IOException {
+        if (started) {
+            return;
+        }
+
+        started = true;
+
+        if (!readHeader(true)) {
+            throw new EOFException("empty gzip input");
+        }
+    }
+
+    /**
+     * Decompress into the given array
+     *
+     * @param out    output array
+     * @param offset offset to write at
+     * @param length maximum number of bytes to write
+     * @return number of bytes written, or <code>-1</code> at the end of the last member
+     * @throws IOException if unable to read or if the input is corrupt
+     */
+    int inflate(@NonNull final byte[] out, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+
+        start();
+
+        // never hand out more than allowed; once at the limit, probe for a single byte to tell if there is more
+        final long allowed = limit - total;
+        final int request = allowed < length ? (int) Math.max(1, allowed) : length;
+
+        while (!eof) {
+            final int inflated;
+
+            try {
+                inflated = inflater.inflate(out, offset, request);
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+
+            if (inflated > 0) {
+                if (allowed == 0) {
+                    throw new ZipException("decompressed size exceeds the limit of " + limit + " bytes");
+                }
+
+                total += inflated;
+                crc.update(out, offset, inflated);
+                return inflated;
+            }
+
+            if (inflater.finished()) {
+                endMember();
+            } else if (inflater.needsDictionary()) {
+                throw new ZipException("gzip member requires a preset dictionary");
+            } else if (inflater.needsInput()) {
+                input.position(input.limit());
+
+                if (!fill()) {
+                    throw new EOFException("unexpected end of gzip input");
+                }
+
+                inflater.setInput(input.array(), input.position(), input.remaining());
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Decompress everything that is left
+     *
+     * @param sizeHint expected output size, e.g. from {@link GzipFormat#sizeHint(byte[], int, int)}. An exact hint
+     *                 lets the output be allocated once and returned without a trimming copy.
+     * @return decompressed data
+     * @throws IOException if unable to read or if the input is corrupt
+     */
+    byte[] inflateAll(final int sizeHint) throws IOException {
+        byte[] out = new byte[(int) Math.min(Math.max(0, sizeHint), limit - total)];
+        int written = 0;
+
+        while (true) {
+            if (written == out.length) {
+                // full: make sure there is more before growing
+                final byte[] probe = new byte[1];
+
+                if (inflate(probe, 0, 1) < 0) {
+                    return out;
+                }
+
+                out = Arrays.copyOf(out, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(64, out.length * 2L)));
+                out[written++] = probe[0];
+            }
+
+            final int read = inflate(out, written, out.length - written);
+
+            if (read < 0) {
+                return written == out.length ? out : Arrays.copyOf(out, written);
+            }
+
+            written += read;
+        }
+    }
+
+    /**
+     * @return the uncompressed size recorded in the trailer of the last member read, modulo 2<sup>32</sup>
+     */
+    long lastMemberSize() {
+        return memberSize;
+    }
+
+    private void endMember() throws IOException {
+        // give back what the inflater did not consume
+        input.position(input.limit() - inflater.getRemaining());
+
+        final long expectedCrc = readIntLE() & 0xffffffffL;
+        final long expectedSize = readIntLE() & 0xffffffffL;
+
+        if (expectedCrc != crc.getValue()) {
+            throw new ZipException("corrupt gzip trailer: CRC mismatch");
+        }
+
+        if (expectedSize != (inflater.getBytesWritten() & 0xffffffffL)) {
+            throw new ZipException("corrupt gzip trailer: size mismatch");
+        }
+
+        memberSize = expectedSize;
+
+        if (singleMember || !readHeader(false)) {
+            eof = true;
+        }
+    }
+
+    /**
+     * Read a member header and prepare the inflater for its data
+     *
+     * @param first whether this is the first member, which must exist and be valid
+     * @return <code>false</code> if there is no further member
+     */
+    private boolean readHeader(final boolean first) throws IOException {
+        if (!ensure(2)) {
+            if (first && input.hasRemaining()) {
+                throw new ZipException("not in gzip format");
+            }
+
+            return false;
+        }
+
+        final int magic = (input.get(input.position()) & 0xff) | (input.get(input.position() + 1) & 0xff) << 8;
+
+        if (magic != GzipFormat.MAGIC) {
+            if (first) {
+                throw new ZipException("not in gzip format");
+            }
+
+            // trailing garbage: stop, as GZIPInputStream does
+            input.position(input.limit());
+            return false;
+        }
+
+        final CRC32 headerCrc = new CRC32();
+        final byte[] fixed = readBytes(GzipFormat.HEADER_SIZE, headerCrc);
+
+        if (fixed[2] != 8) {
+            throw new ZipException("unsupported compression method: " + fixed[2]);
+        }
+
+        final int flags = fixed[3] & 0xff;
+
+        if ((flags & FEXTRA) != 0) {
+            final byte[] length = readBytes(2, headerCrc);
+            skipBytes((length[0] & 0xff) | (length[1] & 0xff) << 8, headerCrc);
+        }
+
+        if ((flags & FNAME) != 0) {
+            skipString(headerCrc);
+        }
+
+        if ((flags & FCOMMENT) != 0) {
+            skipString(headerCrc);
+        }
+
+        if ((flags & FHCRC) != 0) {
+            final int expected = (int) headerCrc.getValue() & 0xffff;
+            final byte[] stored = readBytes(2, null);
+
+            if (expected != ((stored[0] & 0xff) | (stored[1] & 0xff) << 8)) {
+                throw new ZipException("corrupt gzip header");
+            }
+        }
+
+        inflater.reset();
+        inflater.setInput(input.array(), input.position(), input.remaining());
+        crc.reset();
+        members++;
+        return true;
+    }
+
+    private int readIntLE() throws IOException {
+        return GzipFormat.readIntLE(readBytes(4, null), 0);
+    }
+
+    private byte[] readBytes(final int count, final CRC32 checksum) throws IOException {
+        if (!ensure(count)) {
+            throw new EOFException("unexpected end of gzip input");
+        }
+
+        final byte[] bytes = new byte[count];
+        input.get(bytes);
+
+        if (null != checksum) {
+            checksum.update(bytes);
+        }
+
+        return bytes;
+    }
+
+    private void skipBytes(int count, final CRC32 checksum) throws IOException {
+        while (count > 0) {
+            if (!input.hasRemaining() && !fill()) {
+                throw new EOFException("unexpected end of gzip input");
+            }
+
+            final int n = Math.min(count, input.remaining());
+            checksum.update(input.array(), input.position(), n);
+            input.position(input.position() + n);
+            count -= n;
+        }
+    }
+
+    private void skipString(final CRC32 checksum) throws IOException {
+        while (true) {
+            if (!input.hasRemaining() && !fill()) {
+                throw new EOFException("unexpected end of gzip input");
+            }
+
+            final byte b = input.get();
+            checksum.update(b);
+
+            if (b == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Make sure at least <code>count</code> bytes (no more than the buffer size) are buffered
+     *
+     * @return <code>false</code> if the input ends first
+     */
+    private boolean ensure(final int count) throws IOException {
+        while (input.remaining() < count) {
+            if (!fill()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Read more input, keeping whatever is still unread
+     *
+     * @return <code>false</code> at the end of input
+     */
+    private boolean fill() throws IOException {
+        if (null == in) {
+            return false; // all input is already in the buffer
+        }
+
+        input.compact();
+
+        try {
+            int read;
+
+            do {
+                read = in.read(input);
+            } while (read == 0 && input.hasRemaining());
+
+            return read > 0;
+        } finally {
+            input.flip();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.util.zip.Deflater;
+
+import lombok.Getter;
+
+/**
+ * Tuning knobs for {@link Zipper}. Instances are immutable; create them via {@link #builder()} or start from one of
+ * the presets.
+ * <ul>
+ * <li><b>level</b>: deflate level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}, or
+ * {@link Deflater#DEFAULT_COMPRESSION}</li>
+ * <li><b>strategy</b>: {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED} or
+ * {@link Deflater#HUFFMAN_ONLY}</li>
+ * <li><b>bufferSize</b>: size of the copy buffer and of the (de)compressor's own buffer, in bytes</li>
+ * <li><b>syncFlush</b>: whether flushing a compressed stream flushes the compressor too, so everything written so
+ * far can be decompressed by the other end right away. Costs a little ratio per flush. Only honored on API 19 and
+ * up.</li>
+ * </ul>
+ * Decompression only looks at the buffer size.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+@Getter
+public final class GzipOptions {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Default level and strategy, {@link #DEFAULT_BUFFER_SIZE} buffers
+     */
+    public static final GzipOptions DEFAULT = builder().build();
+
+    /**
+     * Fastest level, e.g. for payloads compressed on the fly
+     */
+    public static final GzipOptions FAST = builder().level(Deflater.BEST_SPEED).build();
+
+    /**
+     * Best compression, e.g. for archives
+     */
+    public static final GzipOptions BEST = builder().level(Deflater.BEST_COMPRESSION).build();
+
+    private final int level;
+    private final int strategy;
+    private final int bufferSize;
+    private final boolean syncFlush;
+
+    private GzipOptions(final Builder builder) {
+        level = builder.level;
+        strategy = builder.strategy;
+        bufferSize = builder.bufferSize;
+        syncFlush = builder.syncFlush;
+    }
+
+    /**
+     * @return a builder with default values
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return a builder initialized with the values of this instance
+     */
+    public Builder toBuilder() {
+        return new Builder()
+                .level(level)
+                .strategy(strategy)
+                .bufferSize(bufferSize)
+                .syncFlush(syncFlush);
+    }
+
+    /**
+     * Create a {@link Deflater} configured with these options
+     *
+     * @param nowrap <code>true</code> for raw deflate output without a zlib header
+     * @return a new deflater. The caller must {@link Deflater#end()} it.
+     */
+    Deflater newDeflater(final boolean nowrap) {
+        final Deflater deflater = new Deflater(level, nowrap);
+        deflater.setStrategy(strategy);
+        return deflater;
+    }
+
+    @Override
+    public String toString() {
+        return "GzipOptions{level=" + level + ", strategy=" + strategy + ", bufferSize=" + bufferSize
+                + ", syncFlush=" + syncFlush + '}';
+    }
+
+    public static final class Builder {
+        private int level = Deflater.DEFAULT_COMPRESSION;
+        private int strategy = Deflater.DEFAULT_STRATEGY;
+        private int bufferSize = DEFAULT_BUFFER_SIZE;
+        private boolean syncFlush;
+
+        private Builder() {
+        }
+
+        /**
+         * @param level deflate level: 0-9 or {@link Deflater#DEFAULT_COMPRESSION}
+         * @return this builder
+         */
+        @NonNull
+        public Builder level(final int level) {
+            if ((level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+                    && level != Deflater.DEFAULT_COMPRESSION) {
+                throw new IllegalArgumentException("invalid compression level: " + level);
+            }
+
+            this.level = level;
+            return this;
+        }
+
+        /**
+         * @param strategy {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED} or
+         *                 {@link Deflater#HUFFMAN_ONLY}
+         * @return this builder
+         */
+        @NonNull
+        public Builder strategy(final int strategy) {
+            if (strategy != Deflater.DEFAULT_STRATEGY && strategy != Deflater.FILTERED
+                    && strategy != Deflater.HUFFMAN_ONLY) {
+                throw new IllegalArgumentException("invalid compression strategy: " + strategy);
+            }
+
+            this.strategy = strategy;
+            return this;
+        }
+
+        /**
+         * @param bufferSize buffer size in bytes
+         * @return this builder
+         */
+        @NonNull
+        public Builder bufferSize(final int bufferSize) {
+            if (bufferSize <= 0) {
+                throw new IllegalArgumentException("buffer size must be positive: " + bufferSize);
+            }
+
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * @param syncFlush <code>true</code> to flush the compressor whenever the compressed stream is flushed
+         * @return this builder
+         */
+        @NonNull
+        public Builder syncFlush(final boolean syncFlush) {
+            this.syncFlush = syncFlush;
+            return this;
+        }
+
+        @NonNull
+        public GzipOptions build() {
+            return new GzipOptions(this);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.Inflater;
+
+/**
+ * Incrementally decompressing view of gzip data: read it like any {@link InputStream} and only as much input is
+ * decompressed as is asked for.
+ * <ul>
+ * <li>Concatenated members (as produced by <code>cat a.gz b.gz</code>) are read as one stream, each member's CRC32
+ * and length being verified as its end is reached. Anything after the last member that does not start like another
+ * member is ignored, as {@link java.util.zip.GZIPInputStream} does. Alternatively, reading can stop after the first
+ * member.</li>
+ * <li>Output is capped at a maximum size; decompressing past it fails with a {@link java.util.zip.ZipException}, so
+ * a tiny malicious input cannot expand into gigabytes.</li>
+ * <li>When the compressed data is held in memory, {@link #readFully()} allocates its result once, sized from the
+ * length recorded in the gzip trailer, rather than growing and trimming a buffer.</li>
+ * </ul>
+ * Closing the source releases its native zlib memory and closes the underlying stream or channel.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class GzipSource extends InputStream {
+    /**
+     * No limit on the decompressed size
+     */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final ReadableByteChannel channel;
+    private final Inflater inflater;
+    private final GzipInflater gzip;
+    private final int sizeHint;
+
+    private final byte[] single = new byte[1];
+    private boolean closed;
+
+    /**
+     * Decompress a stream without a size limit
+     *
+     * @param in compressed input
+     */
+    public GzipSource(@NonNull final InputStream in) {
+        this(in, UNLIMITED);
+    }
+
+    /**
+     * Decompress a stream
+     *
+     * @param in            compressed input
+     * @param maxOutputSize maximum number of bytes to decompress
+     */
+    public GzipSource(@NonNull final InputStream in, final long maxOutputSize) {
+        this(Channels.newChannel(in), GzipOptions.DEFAULT_BUFFER_SIZE, maxOutputSize, false);
+    }
+
+    /**
+     * Decompress a channel
+     *
+     * @param in            blocking compressed input
+     * @param bufferSize    size of the input buffer
+     * @param maxOutputSize maximum number of bytes to decompress
+     * @param singleMember  <code>true</code> to stop at the end of the first member
+     */
+    public GzipSource(@NonNull final ReadableByteChannel in, final int bufferSize, final long maxOutputSize,
+                      final boolean singleMember) {
+        channel = in;
+        inflater = new Inflater(true);
+        gzip = new GzipInflater(in, bufferSize, inflater);
+        sizeHint = 0; // the length of a stream is unknown
+        configure(maxOutputSize, singleMember);
+    }
+
+    /**
+     * Decompress data held in memory without a size limit. The array is read in place; don't modify it while reading.
+     *
+     * @param data compressed data
+     */
+    public GzipSource(@NonNull final byte[] data) {
+        this(data, 0, data.length, UNLIMITED, false);
+    }
+
+    /**
+     * Decompress data held in memory. The array is read in place; don't modify it while reading.
+     *
+     * @param data          compressed data
+     * @param offset        offset of the compressed data
+     * @param length        length of the compressed data
+     * @param maxOutputSize maximum number of bytes to decompress
+     * @param singleMember  <code>true</code> to stop at the end of the first member
+     */
+    public GzipSource(@NonNull final byte[] data, final int offset, final int length, final long maxOutputSize,
+                      final boolean singleMember) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new ArrayIndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length "
+                    + data.length);
+        }
+
+        channel = null;
+        inflater = new Inflater(true);
+        gzip = new GzipInflater(data, offset, length, inflater);
+
+        // the trailer describes the last member, so it's only a guess for multi member input
+        sizeHint = singleMember ? 0 : GzipFormat.sizeHint(data, offset, length);
+        configure(maxOutputSize, singleMember);
+    }
+
+    private void configure(final long maxOutputSize, final boolean singleMember) {
+        try {
+            gzip.setOutputLimit(maxOutputSize);
+        } catch (IllegalArgumentException e) {
+            inflater.end();
+            throw e;
+        }
+
+        gzip.setSingleMember(singleMember);
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(@NonNull final byte[] buffer, final int offset, final int length) throws IOException {
+        ensureOpen();
+
+        if (offset < 0 || length < 0 || offset > buffer.length - length) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        return gzip.inflate(buffer, offset, length);
+    }
+
+    /**
+     * Read everything that is left
+     *
+     * @return the remaining decompressed data
+     * @throws IOException if unable to read, if the input is corrupt or if the output exceeds the size limit
+     */
+    @NonNull
+    public byte[] readFully() throws IOException {
+        ensureOpen();
+        return gzip.inflateAll(gzip.getTotalOut() == 0 ? sizeHint : 0);
+    }
+
+    /**
+     * @return number of decompressed bytes read so far
+     */
+    public long getBytesRead() {
+        return gzip.getTotalOut();
+    }
+
+    /**
+     * @return number of gzip members encountered so far
+     */
+    public int getMemberCount() {
+        return gzip.getMemberCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        inflater.end();
+
+        if (null != channel) {
+            channel.close();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("source is closed");
+        }
+    }
+}
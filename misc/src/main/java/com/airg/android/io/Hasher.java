@@ -25,8 +25,15 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
@@ -118,6 +125,243 @@ public final class Hasher {
         return hashStreamWithAlgorithm(in, MD5_ALGORITHM);
     }
 
+    /**
+     * Calculate the non-cryptographic xxHash64 hash of input string
+     *
+     * @param string input string
+     * @return xxHash64 hash of the string
+     */
+    public static String xxHash64(@NonNull final String string) {
+        return hashCharsWithAlgorithm(string, XXHASH64_ALGORITHM);
+    }
+
+    /**
+     * Calculate the non-cryptographic xxHash64 hash of file contents
+     *
+     * @param file input file
+     * @return xxHash64 hash of file contents
+     * @throws IOException errors reading, finding, or accessing the input file
+     */
+    public static String xxHash64(@NonNull final File file) throws IOException {
+        try {
+            return hashFileWithAlgorithm(file, XXHASH64_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // built in
+        }
+    }
+
+    /**
+     * Calculate the non-cryptographic xxHash64 hash of stream content
+     *
+     * @param in input stream
+     * @return xxHash64 hash of the stream
+     * @throws IOException errors reading from the stream
+     */
+    public static String xxHash64(@NonNull final InputStream in) throws IOException {
+        try {
+            return hashStreamWithAlgorithm(in, XXHASH64_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // built in
+        }
+    }
+
+    /**
+     * Calculate the non-cryptographic 128 bit MurmurHash3 hash of input string
+     *
+     * @param string input string
+     * @return 128 bit MurmurHash3 hash of the string
+     */
+    public static String murmur3(@NonNull final String string) {
+        return hashCharsWithAlgorithm(string, MURMUR3_128_ALGORITHM);
+    }
+
+    /**
+     * Calculate the non-cryptographic 128 bit MurmurHash3 hash of file contents
+     *
+     * @param file input file
+     * @return 128 bit MurmurHash3 hash of file contents
+     * @throws IOException errors reading, finding, or accessing the input file
+     */
+    public static String murmur3(@NonNull final File file) throws IOException {
+        try {
+            return hashFileWithAlgorithm(file, MURMUR3_128_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // built in
+        }
+    }
+
+    /**
+     * Calculate the non-cryptographic 128 bit MurmurHash3 hash of stream content
+     *
+     * @param in input stream
+     * @return 128 bit MurmurHash3 hash of the stream
+     * @throws IOException errors reading from the stream
+     */
+    public static String murmur3(@NonNull final InputStream in) throws IOException {
+        try {
+            return hashStreamWithAlgorithm(in, MURMUR3_128_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // built in
+        }
+    }
+
+    /**
+     * Calculate the non-cryptographic CRC-32C hash of input string
+     *
+     * @param string input string
+     * @return CRC-32C hash of the string
+     */
+    public static String crc32c(@NonNull final String string) {
+        return hashCharsWithAlgorithm(string, CRC32C_ALGORITHM);
+    }
+
+    /**
+     * Calculate the non-cryptographic CRC-32C hash of file contents
+     *
+     * @param file input file
+     * @return CRC-32C hash of file contents
+     * @throws IOException errors reading, finding, or accessing the input file
+     */
+    public static String crc32c(@NonNull final File file) throws IOException {
+        try {
+            return hashFileWithAlgorithm(file, CRC32C_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // built in
+        }
+    }
+
+    /**
+     * Calculate the non-cryptographic CRC-32C hash of stream content
+     *
+     * @param in input stream
+     * @return CRC-32C hash of the stream
+     * @throws IOException errors reading from the stream
+     */
+    public static String crc32c(@NonNull final InputStream in) throws IOException {
+        try {
+            return hashStreamWithAlgorithm(in, CRC32C_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // built in
+        }
+    }
+
+    /**
+     * Hash many files concurrently, largest first, on a temporary pool of <code>parallelism</code> threads. Files that
+     * cannot be read are reported in the result rather than aborting the batch.
+     *
+     * @param files       files to hash
+     * @param algorithm   name of algorithm to use, e.g. <code>SHA-1</code>
+     * @param parallelism maximum number of files hashed at the same time
+     * @return hexadecimal checksums and errors, keyed by file
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     * @throws InterruptedException     if interrupted while waiting for the batch
+     * @see BatchHasher
+     */
+    public static BatchHasher.Result hashFiles(@NonNull final Collection<File> files, @NonNull final String algorithm,
+                                               final int parallelism)
+            throws NoSuchAlgorithmException, InterruptedException {
+        return new BatchHasher(algorithm, parallelism).hash(files);
+    }
+
+    /**
+     * Create a hasher that calculates a checksum incrementally as data becomes available
+     *
+     * @param algorithm name of algorithm to use, e.g. <code>SHA-1</code>
+     * @return a new hasher
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     * @see HashingInputStream
+     * @see HashingOutputStream
+     */
+    public static IncrementalHasher newHasher(@NonNull final String algorithm) throws NoSuchAlgorithmException {
+        return new IncrementalHasher(algorithm);
+    }
+
+    /**
+     * Calculate the SHA1 tree hash of file contents, hashing {@link #TREE_HASH_CHUNK_SIZE} chunks on all available
+     * processors. See {@link #treeHash(File, String, int, ExecutorService)} for the format.
+     *
+     * @param file input file
+     * @return SHA1 tree hash of file contents
+     * @throws IOException              errors reading, finding, or accessing the input file
+     * @throws NoSuchAlgorithmException if the local implementation does not support sha1
+     */
+    public static String treeSha1(@NonNull final File file)
+            throws IOException, NoSuchAlgorithmException {
+        return treeHash(file, SHA_1_ALGORITHM, TREE_HASH_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Calculate the MD5 tree hash of file contents, hashing {@link #TREE_HASH_CHUNK_SIZE} chunks on all available
+     * processors. See {@link #treeHash(File, String, int, ExecutorService)} for the format.
+     *
+     * @param file input file
+     * @return MD5 tree hash of file contents
+     * @throws IOException              errors reading, finding, or accessing the input file
+     * @throws NoSuchAlgorithmException if the local implementation does not support md5
+     */
+    public static String treeMd5(@NonNull final File file)
+            throws IOException, NoSuchAlgorithmException {
+        return treeHash(file, MD5_ALGORITHM, TREE_HASH_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Calculate the tree hash of file contents on a temporary pool of at most <code>threads</code> threads. See
+     * {@link #treeHash(File, String, int, ExecutorService)} for the format.
+     *
+     * @param file      input file
+     * @param algorithm name of algorithm to use, e.g. <code>SHA-1</code>
+     * @param chunkSize size of each leaf chunk in bytes
+     * @param threads   maximum number of threads hashing chunks concurrently
+     * @return tree hash of file contents
+     * @throws IOException              errors reading, finding, or accessing the input file
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     */
+    public static String treeHash(@NonNull final File file, @NonNull final String algorithm, final int chunkSize,
+                                  final int threads)
+            throws IOException, NoSuchAlgorithmException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("thread count must be positive: " + threads);
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive: " + chunkSize);
+        }
+
+        final long chunks = (file.length() + chunkSize - 1) / chunkSize;
+        final ExecutorService executor = Executors.newFixedThreadPool((int) Math.max(1, Math.min(threads, chunks)));
+
+        try {
+            return treeHash(file, algorithm, chunkSize, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Calculate the tree hash of file contents, hashing chunks concurrently on the given executor. Tree hashes are
+     * <b>not</b> interchangeable with plain checksums of the same data. The format is:
+     * <ol>
+     * <li>The file is split into consecutive chunks of <code>chunkSize</code> bytes. Only the last chunk may be
+     * shorter. An empty file has no chunks.</li>
+     * <li>Each chunk is hashed as <code>H(0x00 || chunk)</code></li>
+     * <li>The tree hash is <code>H(0x01 || chunkSize || length || leaf[0] || ... || leaf[n-1])</code> where
+     * <code>chunkSize</code> and the file <code>length</code> are 64 bit big endian integers.</li>
+     * </ol>
+     * The result depends only on the file contents, algorithm, and chunk size; never on the executor.
+     *
+     * @param file      input file
+     * @param algorithm name of algorithm to use, e.g. <code>SHA-1</code>
+     * @param chunkSize size of each leaf chunk in bytes
+     * @param executor  executor to hash chunks on. Its size bounds the hashing concurrency. It is not shut down.
+     * @return tree hash of file contents
+     * @throws IOException              errors reading, finding, or accessing the input file
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     */
+    public static String treeHash(@NonNull final File file, @NonNull final String algorithm, final int chunkSize,
+                                  @NonNull final ExecutorService executor)
+            throws IOException, NoSuchAlgorithmException {
+        return encodeHexString(TreeHasher.digest(file, algorithm, chunkSize, executor));
+    }
+
     /**
      * Calculate the checksum of given string via the specified algorithm
      *
@@ -129,8 +373,222 @@ public final class Hasher {
      */
     public static String hashStringWithAlgorithm(@NonNull final String string, @NonNull final String algorithm)
             throws NoSuchAlgorithmException, UnsupportedEncodingException {
-        final MessageDigest digest = MessageDigest.getInstance(algorithm);
-        return encodeHexString(digest.digest(string.getBytes(UTF8_CHARSET)));
+        return hashCharsWithAlgorithm(string, algorithm, new StringBuilder(64)).toString();
+    }
+
+    /**
+     * Calculate the checksum of the UTF-8 encoding of the given characters and append it to a builder in hexadecimal.
+     * The characters are encoded incrementally into a reusable buffer; nothing but the builder's own growth is
+     * allocated once the current thread has used the algorithm.
+     *
+     * @param chars     input characters
+     * @param algorithm name of algorithm to use, e.g. <code>SHA-1</code>
+     * @param out       builder to append the hexadecimal checksum to
+     * @return <code>out</code>
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     */
+    public static StringBuilder hashCharsWithAlgorithm(@NonNull final CharSequence chars,
+                                                       @NonNull final String algorithm,
+                                                       @NonNull final StringBuilder out)
+            throws NoSuchAlgorithmException {
+        final MessageDigest digest = DigestPool.acquire(algorithm);
+        final CharHasher hasher = CharHasher.acquire();
+
+        try {
+            final byte[] bytes = hasher.digest(chars, digest);
+            final int length = digest.getDigestLength() > 0 ? digest.getDigestLength() : bytes.length;
+
+            return encodeHex(bytes, 0, length, out);
+        } finally {
+            hasher.release();
+            DigestPool.release(algorithm, digest);
+        }
+    }
+
+    /**
+     * Calculate the checksum of the UTF-8 encoding of the given characters and write it to an array in hexadecimal.
+     * Does not allocate once the current thread has used the algorithm.
+     *
+     * @param chars     input characters
+     * @param algorithm name of algorithm to use, e.g. <code>SHA-1</code>
+     * @param out       output array. It must have room for twice {@link #getDigestLength(String)} characters.
+     * @param outOffset offset in <code>out</code> to write the checksum to
+     * @return number of characters written
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     */
+    public static int hashCharsWithAlgorithm(@NonNull final CharSequence chars, @NonNull final String algorithm,
+                                             @NonNull final char[] out, final int outOffset)
+            throws NoSuchAlgorithmException {
+        final MessageDigest digest = DigestPool.acquire(algorithm);
+        final CharHasher hasher = CharHasher.acquire();
+
+        try {
+            final byte[] bytes = hasher.digest(chars, digest);
+            final int length = digest.getDigestLength() > 0 ? digest.getDigestLength() : bytes.length;
+
+            if (outOffset < 0 || out.length - outOffset < length * 2) {
+                throw new IllegalArgumentException("no room for " + length * 2 + " hex characters at " + outOffset);
+            }
+
+            return encodeHex(bytes, 0, length, out, outOffset);
+        } finally {
+            hasher.release();
+            DigestPool.release(algorithm, digest);
+        }
+    }
+
+    /**
+     * Calculate the raw checksum of the UTF-8 encoding of the given characters and write it to an array. Does not
+     * allocate once the current thread has used the algorithm.
+     *
+     * @param chars     input characters
+     * @param algorithm name of algorithm to use, e.g. <code>SHA-1</code>
+     * @param out       output array
+     * @param outOffset offset in <code>out</code> to write the checksum to
+     * @return number of bytes written to <code>out</code>, i.e. {@link #getDigestLength(String)}
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     * @throws IllegalArgumentException if <code>out</code> does not have room for the checksum
+     */
+    public static int digestWithAlgorithm(@NonNull final CharSequence chars, @NonNull final String algorithm,
+                                          @NonNull final byte[] out, final int outOffset)
+            throws NoSuchAlgorithmException {
+        final MessageDigest digest = DigestPool.acquire(algorithm);
+        final CharHasher hasher = CharHasher.acquire();
+
+        try {
+            hasher.update(chars, digest);
+            return finish(digest, out, outOffset);
+        } finally {
+            hasher.release();
+            DigestPool.release(algorithm, digest);
+        }
+    }
+
+    /**
+     * Calculate the raw checksum of the UTF-8 encoding of the given characters and write it to an array of longs,
+     * big endian. Handy for using e.g. an MD5 as a pair of <code>long</code> keys. Does not allocate once the current
+     * thread has used the algorithm.
+     *
+     * @param chars     input characters
+     * @param algorithm name of algorithm to use, e.g. <code>MD5</code>
+     * @param out       output array. Any trailing checksum bytes that do not fill a whole <code>long</code> (or do
+     *                  not fit in the array) are dropped.
+     * @return number of longs written
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     */
+    public static int digestWithAlgorithm(@NonNull final CharSequence chars, @NonNull final String algorithm,
+                                          @NonNull final long[] out)
+            throws NoSuchAlgorithmException {
+        final MessageDigest digest = DigestPool.acquire(algorithm);
+        final CharHasher hasher = CharHasher.acquire();
+
+        try {
+            final byte[] bytes = hasher.digest(chars, digest);
+            final int length = digest.getDigestLength() > 0 ? digest.getDigestLength() : bytes.length;
+            final int count = Math.min(out.length, length / 8);
+
+            for (int i = 0; i < count; i++) {
+                long value = 0;
+
+                for (int b = 0; b < 8; b++) {
+                    value = (value << 8) | (bytes[i * 8 + b] & 0xff);
+                }
+
+                out[i] = value;
+            }
+
+            return count;
+        } finally {
+            hasher.release();
+            DigestPool.release(algorithm, digest);
+        }
+    }
+
+    /**
+     * Calculate the raw checksum of a byte range via the specified algorithm and write it to the given array. Uses a
+     * cached digest engine and does not allocate once the current thread has used the algorithm.
+     *
+     * @param input     input bytes
+     * @param offset    offset of first input byte
+     * @param length    number of input bytes
+     * @param algorithm name of algorithm to use, e.g. <code>SHA-1</code>
+     * @param out       output array
+     * @param outOffset offset in <code>out</code> to write the checksum to
+     * @return number of bytes written to <code>out</code>, i.e. {@link #getDigestLength(String)}
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     * @throws IllegalArgumentException if <code>out</code> does not have room for the checksum
+     */
+    public static int digestWithAlgorithm(@NonNull final byte[] input, final int offset, final int length,
+                                          @NonNull final String algorithm, @NonNull final byte[] out,
+                                          final int outOffset)
+            throws NoSuchAlgorithmException {
+        final MessageDigest digest = DigestPool.acquire(algorithm);
+
+        try {
+            digest.update(input, offset, length);
+            return finish(digest, out, outOffset);
+        } finally {
+            DigestPool.release(algorithm, digest);
+        }
+    }
+
+    /**
+     * Get the length of raw checksums calculated via the specified algorithm
+     *
+     * @param algorithm name of algorithm, e.g. <code>SHA-1</code>
+     * @return checksum length in bytes
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     */
+    public static int getDigestLength(@NonNull final String algorithm) throws NoSuchAlgorithmException {
+        final MessageDigest digest = DigestPool.acquire(algorithm);
+
+        try {
+            return digest.getDigestLength();
+        } finally {
+            DigestPool.release(algorithm, digest);
+        }
+    }
+
+    /**
+     * Calculate the checksums of file contents via several algorithms while reading the file only once
+     *
+     * @param file       input file
+     * @param algorithms names of algorithms to use, e.g. <code>MD5</code>, <code>SHA-1</code>, <code>SHA-256</code>
+     * @return calculated checksums keyed by algorithm
+     * @throws IOException              errors reading, finding, or accessing the input file
+     * @throws NoSuchAlgorithmException if the local implementation does not support one of the algorithms
+     */
+    public static Digests hashFileWithAlgorithms(@NonNull final File file, @NonNull final String... algorithms)
+            throws IOException, NoSuchAlgorithmException {
+        final MessageDigest[] digests = acquireDigests(algorithms);
+
+        try {
+            digestFile(file, digests);
+            return new Digests(algorithms, digests);
+        } finally {
+            releaseDigests(algorithms, digests);
+        }
+    }
+
+    /**
+     * Calculate the checksums of stream content via several algorithms while reading the stream only once
+     *
+     * @param in         input stream. It is closed when done.
+     * @param algorithms names of algorithms to use, e.g. <code>MD5</code>, <code>SHA-1</code>, <code>SHA-256</code>
+     * @return calculated checksums keyed by algorithm
+     * @throws IOException              errors reading from the stream
+     * @throws NoSuchAlgorithmException if the local implementation does not support one of the algorithms
+     */
+    public static Digests hashStreamWithAlgorithms(@NonNull final InputStream in, @NonNull final String... algorithms)
+            throws IOException, NoSuchAlgorithmException {
+        final MessageDigest[] digests = acquireDigests(algorithms);
+
+        try {
+            digestStream(in, digests);
+            return new Digests(algorithms, digests);
+        } finally {
+            releaseDigests(algorithms, digests);
+        }
     }
 
     /**
@@ -142,9 +600,16 @@ public final class Hasher {
      * @throws IOException              errors reading, finding, or accessing the input file
      * @throws NoSuchAlgorithmException if the local implementation does not support md5
      */
-    private static String hashFileWithAlgorithm(@NonNull final File file, @NonNull final String algorithm)
+    static String hashFileWithAlgorithm(@NonNull final File file, @NonNull final String algorithm)
             throws IOException, NoSuchAlgorithmException {
-        return hashStreamWithAlgorithm(new FileInputStream(file), algorithm);
+        final MessageDigest digest = DigestPool.acquire(algorithm);
+
+        try {
+            digestFile(file, digest);
+            return encodeHexString(digest.digest());
+        } finally {
+            DigestPool.release(algorithm, digest);
+        }
     }
 
     /**
@@ -158,17 +623,185 @@ public final class Hasher {
      */
     private static String hashStreamWithAlgorithm(@NonNull final InputStream in, @NonNull final String algorithm)
             throws NoSuchAlgorithmException, IOException {
+        final MessageDigest digest = DigestPool.acquire(algorithm);
+
+        try {
+            digestStream(in, digest);
+            return encodeHexString(digest.digest());
+        } finally {
+            DigestPool.release(algorithm, digest);
+        }
+    }
+
+    private static String hashCharsWithAlgorithm(@NonNull final CharSequence chars, @NonNull final String algorithm) {
+        try {
+            return hashCharsWithAlgorithm(chars, algorithm, new StringBuilder(32)).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // built in
+        }
+    }
+
+    /**
+     * Create a new digest engine. Knows the built in non-cryptographic algorithms ({@link #XXHASH64_ALGORITHM},
+     * {@link #MURMUR3_128_ALGORITHM}, and {@link #CRC32C_ALGORITHM}) in addition to those of the installed security
+     * providers.
+     *
+     * @param algorithm name of algorithm, e.g. <code>SHA-1</code>
+     * @return a new digest engine
+     * @throws NoSuchAlgorithmException if the algorithm is unknown
+     */
+    static MessageDigest newDigest(@NonNull final String algorithm) throws NoSuchAlgorithmException {
+        if (XXHASH64_ALGORITHM.equalsIgnoreCase(algorithm)) {
+            return new XxHash64Digest();
+        }
+        if (MURMUR3_128_ALGORITHM.equalsIgnoreCase(algorithm)) {
+            return new Murmur3Digest();
+        }
+        if (CRC32C_ALGORITHM.equalsIgnoreCase(algorithm)) {
+            return new Crc32cDigest();
+        }
+
+        return MessageDigest.getInstance(algorithm);
+    }
+
+    private static MessageDigest[] acquireDigests(@NonNull final String[] algorithms)
+            throws NoSuchAlgorithmException {
+        if (algorithms.length == 0) {
+            throw new IllegalArgumentException("no algorithms");
+        }
+
+        final MessageDigest[] digests = new MessageDigest[algorithms.length];
+
+        for (int i = 0; i < algorithms.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (algorithms[i].equalsIgnoreCase(algorithms[j])) {
+                    releaseDigests(algorithms, digests);
+                    throw new IllegalArgumentException("duplicate algorithm " + algorithms[i]);
+                }
+            }
+
+            try {
+                digests[i] = DigestPool.acquire(algorithms[i]);
+            } catch (NoSuchAlgorithmException e) {
+                releaseDigests(algorithms, digests);
+                throw e;
+            }
+        }
+
+        return digests;
+    }
+
+    private static void releaseDigests(@NonNull final String[] algorithms, @NonNull final MessageDigest[] digests) {
+        for (int i = 0; i < digests.length; i++) {
+            if (null != digests[i]) {
+                DigestPool.release(algorithms[i], digests[i]);
+            }
+        }
+    }
+
+    /**
+     * Complete a digest into the given output array
+     *
+     * @param digest    digest to complete
+     * @param out       output array
+     * @param outOffset offset in <code>out</code> to write the checksum to
+     * @return number of bytes written
+     */
+    private static int finish(@NonNull final MessageDigest digest, @NonNull final byte[] out, final int outOffset) {
+        final int length = digest.getDigestLength();
 
-        final MessageDigest digest = MessageDigest.getInstance(algorithm);
+        if (outOffset < 0 || out.length - outOffset < length) {
+            throw new IllegalArgumentException("no room for " + length + " byte digest at offset " + outOffset);
+        }
+
+        try {
+            return digest.digest(out, outOffset, length);
+        } catch (DigestException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Feed the contents of a file to one or more digests. Files of at least {@link #MAPPED_HASH_THRESHOLD} bytes are
+     * memory mapped and fed to the digests without copying; smaller files (or files that cannot be mapped) are read
+     * as a stream.
+     *
+     * @param file    input file
+     * @param digests digests to update
+     * @throws IOException errors reading, finding, or accessing the input file
+     */
+    private static void digestFile(@NonNull final File file, @NonNull final MessageDigest... digests)
+            throws IOException {
+        if (file.length() >= MAPPED_HASH_THRESHOLD) {
+            try {
+                digestMappedFile(file, digests);
+                return;
+            } catch (IOException e) {
+                // some file systems do not support mapping. Start over the old fashioned way.
+                for (final MessageDigest digest : digests) {
+                    digest.reset();
+                }
+            }
+        }
+
+        digestStream(new FileInputStream(file), digests);
+    }
+
+    /**
+     * Feed the contents of a file to one or more digests via read-only memory mapped windows of up to
+     * {@link #MAPPED_HASH_WINDOW} bytes.
+     *
+     * @param file    input file
+     * @param digests digests to update
+     * @throws IOException if unable to open or map the file
+     */
+    private static void digestMappedFile(@NonNull final File file, @NonNull final MessageDigest... digests)
+            throws IOException {
+        final FileInputStream in = new FileInputStream(file);
+
+        try {
+            final FileChannel channel = in.getChannel();
+            final long size = channel.size();
+
+            long position = 0;
+
+            while (position < size) {
+                final long window = Math.min(MAPPED_HASH_WINDOW, size - position);
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, window);
+
+                for (final MessageDigest digest : digests) {
+                    buffer.rewind();
+                    digest.update(buffer);
+                }
+                position += window;
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Feed the contents of a stream to one or more digests, then close the stream
+     *
+     * @param in      input stream
+     * @param digests digests to update
+     * @throws IOException errors reading from the stream
+     */
+    private static void digestStream(@NonNull final InputStream in, @NonNull final MessageDigest... digests)
+            throws IOException {
         final byte[] buffer = new byte[1024];
 
-        int read;
+        try {
+            int read;
 
-        while ((read = in.read(buffer)) > 0) {
-            digest.update(buffer, 0, read);
+            while ((read = in.read(buffer)) > 0) {
+                for (final MessageDigest digest : digests) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        } finally {
+            in.close();
         }
-        in.close();
-        return encodeHexString(digest.digest());
     }
 
     /**
@@ -179,21 +812,285 @@ public final class Hasher {
      */
     public static String encodeHexString(@NonNull final byte[] bytes) {
         final char[] buf = new char[bytes.length * 2];
+        encodeHex(bytes, 0, bytes.length, buf, 0);
+        return new String(buf);
+    }
 
-        byte b;
-        int c = 0;
-        for (final byte aByte : bytes) {
-            b = aByte;
-            buf[c++] = HEX_CHAR[(b >> 4) & 0xf];
-            buf[c++] = HEX_CHAR[b & 0xf];
+    /**
+     * Write the hexadecimal representation of a byte range to a char array
+     *
+     * @param bytes     input
+     * @param offset    offset of the first input byte
+     * @param length    number of input bytes
+     * @param out       output array. It must have room for <code>2 * length</code> characters.
+     * @param outOffset offset in <code>out</code> to write to
+     * @return number of characters written
+     */
+    public static int encodeHex(@NonNull final byte[] bytes, final int offset, final int length,
+                                @NonNull final char[] out, final int outOffset) {
+        final char[] pairs = HEX_PAIRS;
+
+        int c = outOffset;
+        for (int i = offset; i < offset + length; i++) {
+            final int pair = (bytes[i] & 0xff) << 1;
+            out[c++] = pairs[pair];
+            out[c++] = pairs[pair + 1];
         }
 
-        return new String(buf);
+        return c - outOffset;
+    }
+
+    /**
+     * Append the hexadecimal representation of a byte range to a builder
+     *
+     * @param bytes  input
+     * @param offset offset of the first input byte
+     * @param length number of input bytes
+     * @param out    builder to append to
+     * @return <code>out</code>
+     */
+    public static StringBuilder encodeHex(@NonNull final byte[] bytes, final int offset, final int length,
+                                         @NonNull final StringBuilder out) {
+        final char[] pairs = HEX_PAIRS;
+
+        out.ensureCapacity(out.length() + length * 2);
+
+        for (int i = offset; i < offset + length; i++) {
+            final int pair = (bytes[i] & 0xff) << 1;
+            out.append(pairs[pair]).append(pairs[pair + 1]);
+        }
+
+        return out;
+    }
+
+    /**
+     * Decode a hexadecimal string (upper or lower case)
+     *
+     * @param hex hexadecimal input
+     * @return decoded bytes
+     * @throws IllegalArgumentException if the input has an odd length or non hexadecimal characters
+     */
+    public static byte[] decodeHex(@NonNull final CharSequence hex) {
+        if ((hex.length() & 1) != 0) {
+            throw new IllegalArgumentException("odd hex length " + hex.length());
+        }
+
+        final byte[] bytes = new byte[hex.length() / 2];
+        decodeHex(hex, bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Decode a hexadecimal string (upper or lower case) into an array
+     *
+     * @param hex       hexadecimal input
+     * @param out       output array. It must have room for <code>hex.length() / 2</code> bytes.
+     * @param outOffset offset in <code>out</code> to write to
+     * @return number of bytes written
+     * @throws IllegalArgumentException if the input has an odd length or non hexadecimal characters
+     */
+    public static int decodeHex(@NonNull final CharSequence hex, @NonNull final byte[] out, final int outOffset) {
+        final int length = hex.length();
+
+        if ((length & 1) != 0) {
+            throw new IllegalArgumentException("odd hex length " + length);
+        }
+
+        int o = outOffset;
+        for (int i = 0; i < length; i += 2) {
+            final int hi = hexValue(hex.charAt(i));
+            final int lo = hexValue(hex.charAt(i + 1));
+
+            if ((hi | lo) < 0) {
+                throw new IllegalArgumentException("invalid hex character at " + (hi < 0 ? i : i + 1));
+            }
+
+            out[o++] = (byte) ((hi << 4) | lo);
+        }
+
+        return o - outOffset;
+    }
+
+    /**
+     * Encode bytes as standard, padded Base64 (RFC 4648 section 4)
+     *
+     * @param bytes input
+     * @return Base64 representation
+     */
+    public static String encodeBase64(@NonNull final byte[] bytes) {
+        final char[] out = new char[(bytes.length + 2) / 3 * 4];
+        encodeBase64(bytes, 0, bytes.length, out, 0, BASE64, true);
+        return new String(out);
+    }
+
+    /**
+     * Encode bytes as unpadded, URL and file name safe Base64 (RFC 4648 section 5). A SHA1 is 27 characters in this
+     * form instead of 40 in hexadecimal, which makes for compact cache keys.
+     *
+     * @param bytes input
+     * @return Base64url representation
+     */
+    public static String encodeBase64Url(@NonNull final byte[] bytes) {
+        final char[] out = new char[(bytes.length * 4 + 2) / 3];
+        encodeBase64(bytes, 0, bytes.length, out, 0, BASE64_URL, false);
+        return new String(out);
+    }
+
+    /**
+     * Write the unpadded Base64url (RFC 4648 section 5) representation of a byte range to a char array
+     *
+     * @param bytes     input
+     * @param offset    offset of the first input byte
+     * @param length    number of input bytes
+     * @param out       output array. It must have room for <code>ceil(4 * length / 3)</code> characters.
+     * @param outOffset offset in <code>out</code> to write to
+     * @return number of characters written
+     */
+    public static int encodeBase64Url(@NonNull final byte[] bytes, final int offset, final int length,
+                                      @NonNull final char[] out, final int outOffset) {
+        return encodeBase64(bytes, offset, length, out, outOffset, BASE64_URL, false);
+    }
+
+    private static int encodeBase64(final byte[] bytes, final int offset, final int length, final char[] out,
+                                    final int outOffset, final char[] alphabet, final boolean pad) {
+        final int end = offset + length;
+
+        int i = offset;
+        int o = outOffset;
+
+        for (; i + 3 <= end; i += 3) {
+            final int bits = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | (bytes[i + 2] & 0xff);
+            out[o++] = alphabet[bits >>> 18];
+            out[o++] = alphabet[(bits >>> 12) & 0x3f];
+            out[o++] = alphabet[(bits >>> 6) & 0x3f];
+            out[o++] = alphabet[bits & 0x3f];
+        }
+
+        final int remaining = end - i;
+
+        if (remaining > 0) {
+            final int bits = (bytes[i] & 0xff) << 16 | (remaining == 2 ? (bytes[i + 1] & 0xff) << 8 : 0);
+            out[o++] = alphabet[bits >>> 18];
+            out[o++] = alphabet[(bits >>> 12) & 0x3f];
+
+            if (remaining == 2) {
+                out[o++] = alphabet[(bits >>> 6) & 0x3f];
+            } else if (pad) {
+                out[o++] = '=';
+            }
+
+            if (pad) {
+                out[o++] = '=';
+            }
+        }
+
+        return o - outOffset;
+    }
+
+    /**
+     * Compare two raw checksums in time that depends only on their length, not on where they differ
+     *
+     * @param a first checksum
+     * @param b second checksum
+     * @return <code>true</code> if both are equal
+     */
+    public static boolean digestEquals(@NonNull final byte[] a, @NonNull final byte[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+
+        int difference = 0;
+        for (int i = 0; i < a.length; i++) {
+            difference |= a[i] ^ b[i];
+        }
+
+        return difference == 0;
+    }
+
+    /**
+     * Compare a raw checksum to an expected hexadecimal checksum (upper or lower case) without decoding or encoding
+     * either into a new object, in time that depends only on their length
+     *
+     * @param digest      raw checksum
+     * @param expectedHex expected hexadecimal checksum
+     * @return <code>true</code> if both represent the same checksum
+     */
+    public static boolean digestEquals(@NonNull final byte[] digest, @NonNull final CharSequence expectedHex) {
+        if (expectedHex.length() != digest.length * 2) {
+            return false;
+        }
+
+        int difference = 0;
+        for (int i = 0; i < digest.length; i++) {
+            final int hi = hexValue(expectedHex.charAt(i * 2));
+            final int lo = hexValue(expectedHex.charAt(i * 2 + 1));
+
+            // an invalid character is negative and sets bits beyond the low byte
+            difference |= (hi | lo) & ~0xf;
+            difference |= ((hi << 4) | lo) ^ (digest[i] & 0xff);
+        }
+
+        return difference == 0;
+    }
+
+    private static int hexValue(final char c) {
+        return c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
     }
 
     private final static char[] HEX_CHAR = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+    /**
+     * Both hexadecimal characters of every byte value, i.e. <code>HEX_PAIRS[2 * b]</code> and
+     * <code>HEX_PAIRS[2 * b + 1]</code>
+     */
+    private static final char[] HEX_PAIRS = new char[512];
+    /**
+     * Value of each hexadecimal character, or -1
+     */
+    private static final byte[] HEX_VALUES = new byte['f' + 1];
+    private static final char[] BASE64 =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final char[] BASE64_URL =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            HEX_PAIRS[b << 1] = HEX_CHAR[b >> 4];
+            HEX_PAIRS[(b << 1) + 1] = HEX_CHAR[b & 0xf];
+        }
+
+        Arrays.fill(HEX_VALUES, (byte) -1);
+
+        for (int i = 0; i < HEX_CHAR.length; i++) {
+            HEX_VALUES[HEX_CHAR[i]] = (byte) i;
+            HEX_VALUES[Character.toUpperCase(HEX_CHAR[i])] = (byte) i;
+        }
+    }
     static final String SHA_1_ALGORITHM = "SHA-1";
     static final String MD5_ALGORITHM = "MD5";
+    /**
+     * Non-cryptographic 64 bit xxHash. The non-cryptographic algorithms are several times faster than MD5 and well
+     * suited to cache keys and change detection, but offer no protection against deliberate collisions.
+     */
+    public static final String XXHASH64_ALGORITHM = "XXH64";
+    /**
+     * Non-cryptographic 128 bit (x64 variant) MurmurHash3
+     */
+    public static final String MURMUR3_128_ALGORITHM = "MURMUR3-128";
+    /**
+     * CRC-32C (Castagnoli) checksum
+     */
+    public static final String CRC32C_ALGORITHM = "CRC32C";
 
-    static final String UTF8_CHARSET = "UTF-8";
+    /**
+     * Files of at least this size are hashed via memory mapping rather than streaming
+     */
+    static final long MAPPED_HASH_THRESHOLD = 1024 * 1024;
+    /**
+     * Largest region of a file mapped at once. Small enough to fit in a 32bit address space comfortably.
+     */
+    static final int MAPPED_HASH_WINDOW = 16 * 1024 * 1024;
+    /**
+     * Default leaf size of tree hashes
+     */
+    public static final int TREE_HASH_CHUNK_SIZE = 1024 * 1024;
 }
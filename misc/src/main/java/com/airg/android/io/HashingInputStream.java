@@ -0,0 +1,132 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * An input stream that hashes everything read through it, e.g. to verify a download while it is being written to
+ * disk or unzipped instead of reading it back afterwards. Skipped bytes are read and hashed too so the checksum
+ * always covers the whole stream. Mark and reset are not supported.
+ * <p>
+ * <pre>
+ * final HashingInputStream in = new HashingInputStream(connection.getInputStream(), "SHA-1");
+ * Zipper.gunzip(in, new FileOutputStream(target));
+ * final String sha1 = in.getHasher().finishHex();
+ * </pre>
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class HashingInputStream extends FilterInputStream {
+    private final IncrementalHasher hasher;
+
+    /**
+     * Hash a stream via the given hasher
+     *
+     * @param in     stream to read from
+     * @param hasher hasher to feed the bytes read to
+     */
+    public HashingInputStream(@NonNull final InputStream in, @NonNull final IncrementalHasher hasher) {
+        super(in);
+        this.hasher = hasher;
+    }
+
+    /**
+     * Hash a stream via a new hasher
+     *
+     * @param in        stream to read from
+     * @param algorithm name of algorithm to use, e.g. <code>SHA-1</code>
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     */
+    public HashingInputStream(@NonNull final InputStream in, @NonNull final String algorithm)
+            throws NoSuchAlgorithmException {
+        this(in, new IncrementalHasher(algorithm));
+    }
+
+    /**
+     * @return the hasher fed by this stream. Call one of its <code>finish</code> methods once done reading.
+     */
+    public IncrementalHasher getHasher() {
+        return hasher;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = in.read();
+
+        if (b >= 0) {
+            hasher.update((byte) b);
+        }
+
+        return b;
+    }
+
+    @Override
+    public int read(@NonNull final byte[] buffer, final int offset, final int length) throws IOException {
+        final int read = in.read(buffer, offset, length);
+
+        if (read > 0) {
+            hasher.update(buffer, offset, read);
+        }
+
+        return read;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+
+        final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+
+        long skipped = 0;
+
+        while (skipped < n) {
+            final int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+
+            if (read < 0) {
+                break;
+            }
+
+            skipped += read;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(final int readLimit) {
+        // not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+}
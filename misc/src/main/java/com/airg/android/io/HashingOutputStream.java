@@ -0,0 +1,83 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * An output stream that hashes everything written through it, e.g. to calculate the checksum of a file while it is
+ * being downloaded or compressed instead of reading it back afterwards.
+ * <p>
+ * <pre>
+ * final HashingOutputStream out = new HashingOutputStream(new FileOutputStream(target), "SHA-1");
+ * Zipper.gunzip(connection.getInputStream(), out);
+ * final String sha1 = out.getHasher().finishHex();
+ * </pre>
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class HashingOutputStream extends FilterOutputStream {
+    private final IncrementalHasher hasher;
+
+    /**
+     * Hash a stream via the given hasher
+     *
+     * @param out    stream to write to
+     * @param hasher hasher to feed the bytes written to
+     */
+    public HashingOutputStream(@NonNull final OutputStream out, @NonNull final IncrementalHasher hasher) {
+        super(out);
+        this.hasher = hasher;
+    }
+
+    /**
+     * Hash a stream via a new hasher
+     *
+     * @param out       stream to write to
+     * @param algorithm name of algorithm to use, e.g. <code>SHA-1</code>
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     */
+    public HashingOutputStream(@NonNull final OutputStream out, @NonNull final String algorithm)
+            throws NoSuchAlgorithmException {
+        this(out, new IncrementalHasher(algorithm));
+    }
+
+    /**
+     * @return the hasher fed by this stream. Call one of its <code>finish</code> methods once done writing.
+     */
+    public IncrementalHasher getHasher() {
+        return hasher;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        out.write(b);
+        hasher.update((byte) b);
+    }
+
+    @Override
+    public void write(@NonNull final byte[] buffer, final int offset, final int length) throws IOException {
+        out.write(buffer, offset, length);
+        hasher.update(buffer, offset, length);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Calculate a checksum incrementally as data becomes available, rather than from a complete string, file, or stream.
+ * Feed data via the <code>update</code> methods and obtain the checksum via one of the <code>finish</code> methods,
+ * which also reset the hasher for reuse. Use {@link HashingInputStream} or {@link HashingOutputStream} to calculate
+ * a checksum of data while it is being read or written elsewhere.
+ * <p>
+ * Instances are not thread safe.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class IncrementalHasher {
+    private final String algorithm;
+    private final MessageDigest digest;
+    private long count;
+
+    /**
+     * Create a new hasher
+     *
+     * @param algorithm name of algorithm to use, e.g. <code>SHA-1</code>
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     */
+    public IncrementalHasher(@NonNull final String algorithm) throws NoSuchAlgorithmException {
+        this.algorithm = algorithm;
+        digest = Hasher.newDigest(algorithm);
+    }
+
+    /**
+     * @return a new SHA1 hasher
+     * @throws NoSuchAlgorithmException if the local implementation does not support sha1
+     */
+    public static IncrementalHasher sha1() throws NoSuchAlgorithmException {
+        return new IncrementalHasher(Hasher.SHA_1_ALGORITHM);
+    }
+
+    /**
+     * @return a new MD5 hasher
+     * @throws NoSuchAlgorithmException if the local implementation does not support md5
+     */
+    public static IncrementalHasher md5() throws NoSuchAlgorithmException {
+        return new IncrementalHasher(Hasher.MD5_ALGORITHM);
+    }
+
+    /**
+     * @return algorithm name
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return length of the raw checksum in bytes, or 0 if unknown
+     */
+    public int getDigestLength() {
+        return digest.getDigestLength();
+    }
+
+    /**
+     * @return number of bytes hashed since creation or the last reset
+     */
+    public long getByteCount() {
+        return count;
+    }
+
+    /**
+     * Hash a single byte
+     *
+     * @param b input byte
+     * @return this hasher
+     */
+    public IncrementalHasher update(final byte b) {
+        digest.update(b);
+        count++;
+        return this;
+    }
+
+    /**
+     * Hash an array of bytes
+     *
+     * @param bytes input bytes
+     * @return this hasher
+     */
+    public IncrementalHasher update(@NonNull final byte[] bytes) {
+        return update(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Hash a range of bytes
+     *
+     * @param bytes  input bytes
+     * @param offset offset of the first byte to hash
+     * @param length number of bytes to hash
+     * @return this hasher
+     */
+    public IncrementalHasher update(@NonNull final byte[] bytes, final int offset, final int length) {
+        digest.update(bytes, offset, length);
+        count += length;
+        return this;
+    }
+
+    /**
+     * Hash the remaining bytes of a buffer. The buffer's position is advanced to its limit.
+     *
+     * @param buffer input buffer
+     * @return this hasher
+     */
+    public IncrementalHasher update(@NonNull final ByteBuffer buffer) {
+        count += buffer.remaining();
+        digest.update(buffer);
+        return this;
+    }
+
+    /**
+     * Hash the UTF-8 encoding of the given characters without allocating an encoded copy
+     *
+     * @param chars input characters
+     * @return this hasher
+     */
+    public IncrementalHasher update(@NonNull final CharSequence chars) {
+        final CharHasher hasher = CharHasher.acquire();
+
+        try {
+            count += hasher.update(chars, digest);
+        } finally {
+            hasher.release();
+        }
+
+        return this;
+    }
+
+    /**
+     * Complete the checksum and reset this hasher
+     *
+     * @return raw checksum
+     */
+    public byte[] finish() {
+        count = 0;
+        return digest.digest();
+    }
+
+    /**
+     * Complete the checksum and reset this hasher
+     *
+     * @return hexadecimal checksum
+     */
+    public String finishHex() {
+        return Hasher.encodeHexString(finish());
+    }
+
+    /**
+     * Complete the checksum into the given array and reset this hasher
+     *
+     * @param out       output array
+     * @param outOffset offset in <code>out</code> to write the checksum to
+     * @return number of bytes written
+     * @throws IllegalArgumentException if <code>out</code> does not have room for the checksum
+     */
+    public int finish(@NonNull final byte[] out, final int outOffset) {
+        count = 0;
+
+        try {
+            return digest.digest(out, outOffset, out.length - outOffset);
+        } catch (DigestException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Discard everything hashed so far
+     */
+    public void reset() {
+        count = 0;
+        digest.reset();
+    }
+}
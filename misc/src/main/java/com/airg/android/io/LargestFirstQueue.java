@@ -0,0 +1,166 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Processes a batch of items on a fixed number of workers, largest first, so one huge item found late does not hold
+ * up the whole batch on a single thread. Each worker runs this same runnable and takes the next largest item until
+ * none remain. The first failure of any kind, {@link Error}s included, stops the batch and is rethrown by
+ * {@link #execute(Executor, int)}; items that should not stop the batch must be handled by {@link #process(Object)}.
+ *
+ * @param <T> item type
+ */
+abstract class LargestFirstQueue<T> implements Runnable {
+    private final Item<T>[] items;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+    private CountDownLatch done;
+
+    /**
+     * @param items items to process. {@link #sizeOf(Object)} is called once per item, when processing starts.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    LargestFirstQueue(@NonNull final Collection<? extends T> items) {
+        this.items = new Item[items.size()];
+
+        int index = 0;
+        for (final T item : items) {
+            this.items[index++] = new Item<T>(item);
+        }
+    }
+
+    /**
+     * @return size of an item, to order the batch by
+     */
+    abstract long sizeOf(@NonNull T item);
+
+    /**
+     * Process one item, on a worker thread
+     *
+     * @throws IOException to stop the batch
+     */
+    abstract void process(@NonNull T item) throws IOException;
+
+    /**
+     * Process all items and wait for them. A single worker runs on the calling thread.
+     *
+     * @param executor    executor to run workers on or <code>null</code> for a temporary pool. It must be able to run
+     *                    <code>parallelism</code> tasks at once for full concurrency.
+     * @param parallelism maximum number of items processed at the same time
+     * @throws InterruptedException if interrupted while waiting. Items not yet started are skipped.
+     * @throws IOException          the first failure of {@link #process(Object)}. Unchecked failures are rethrown as
+     *                              they are.
+     */
+    void execute(@Nullable final Executor executor, final int parallelism) throws InterruptedException, IOException {
+        for (final Item<T> item : items) {
+            item.size = sizeOf(item.value);
+        }
+
+        Arrays.sort(items, LARGEST_FIRST);
+
+        final int workers = Math.min(parallelism, items.length);
+        done = new CountDownLatch(Math.max(1, workers));
+
+        if (workers <= 1) {
+            run();
+        } else {
+            final ExecutorService pool = null == executor ? Executors.newFixedThreadPool(workers) : null;
+            final Executor runner = null == pool ? executor : pool;
+
+            try {
+                for (int i = 0; i < workers; i++) {
+                    runner.execute(this);
+                }
+
+                done.await();
+            } finally {
+                cancel();
+
+                if (null != pool) {
+                    pool.shutdown();
+                }
+            }
+        }
+
+        final Throwable failure = error.get();
+
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            int index;
+
+            while ((index = next.getAndIncrement()) < items.length) {
+                process(items[index].value);
+            }
+        } catch (Throwable t) {
+            error.compareAndSet(null, t);
+            cancel();
+        } finally {
+            done.countDown();
+        }
+    }
+
+    private void cancel() {
+        next.set(items.length);
+    }
+
+    private static final Comparator<Item<?>> LARGEST_FIRST = new Comparator<Item<?>>() {
+        @Override
+        public int compare(final Item<?> lhs, final Item<?> rhs) {
+            return lhs.size < rhs.size ? 1 : (lhs.size == rhs.size ? 0 : -1);
+        }
+    };
+
+    private static final class Item<T> {
+        final T value;
+        long size;
+
+        Item(final T value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Pure java <a href="https://github.com/lz4/lz4/blob/dev/doc/lz4_Block_format.md">LZ4 block format</a> compressor
+ * and decompressor. The compressor is the classic single-probe hash table matcher of LZ4's fast mode; any LZ4
+ * implementation can decompress its output and vice versa.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE) // no instance
+final class Lz4Block {
+    static final int HASH_TABLE_SIZE = 1 << 12;
+    static final int MAX_DISTANCE = 0xffff;
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5; // a block always ends with at least this many literals
+    private static final int MF_LIMIT = 12; // no match may start this close to the end
+    private static final int SKIP_TRIGGER = 6; // search acceleration on incompressible data
+    private static final int RUN_MASK = 15;
+
+    /**
+     * @param length input length
+     * @return the largest possible compressed size of that much input
+     */
+    static int maxCompressedLength(final int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compress a block
+     *
+     * @param src       input array
+     * @param srcOffset offset of the input
+     * @param srcLength input length
+     * @param dst       output array, with at least {@link #maxCompressedLength(int)} bytes of room
+     * @param dstOffset offset to write at
+     * @param table     scratch hash table of {@link #HASH_TABLE_SIZE} entries. Its contents are overwritten.
+     * @return compressed length
+     */
+    static int compress(@NonNull final byte[] src, final int srcOffset, final int srcLength, @NonNull final byte[] dst,
+                        final int dstOffset, @NonNull final int[] table) {
+        final int srcEnd = srcOffset + srcLength;
+        final int matchLimit = srcEnd - LAST_LITERALS;
+        final int mfLimit = srcEnd - MF_LIMIT;
+
+        int d = dstOffset;
+        int anchor = srcOffset;
+
+        if (srcLength >= MF_LIMIT + 1) {
+            Arrays.fill(table, srcOffset - 1); // "no candidate": before the input
+            table[hash(readInt(src, srcOffset))] = srcOffset;
+
+            int s = srcOffset + 1;
+
+            while (true) {
+                // find a match, skipping faster the longer we go without one
+                int match;
+                int attempts = 1 << SKIP_TRIGGER;
+
+                while (true) {
+                    final int h = hash(readInt(src, s));
+                    match = table[h];
+                    table[h] = s;
+
+                    if (match >= srcOffset && s - match <= MAX_DISTANCE && readInt(src, match) == readInt(src, s)) {
+                        break;
+                    }
+
+                    s += attempts++ >>> SKIP_TRIGGER;
+
+                    if (s > mfLimit) {
+                        return lastLiterals(src, anchor, srcEnd - anchor, dst, d) - dstOffset;
+                    }
+                }
+
+                // extend backwards
+                while (s > anchor && match > srcOffset && src[s - 1] == src[match - 1]) {
+                    s--;
+                    match--;
+                }
+
+                // extend forwards
+                int length = MIN_MATCH;
+
+                while (s + length < matchLimit && src[s + length] == src[match + length]) {
+                    length++;
+                }
+
+                d = sequence(src, anchor, s - anchor, s - match, length, dst, d);
+                s += length;
+                anchor = s;
+
+                if (s > mfLimit) {
+                    break;
+                }
+
+                // prime the table with the position just before, then look for an immediate next match
+                table[hash(readInt(src, s - 2))] = s - 2;
+            }
+        }
+
+        return lastLiterals(src, anchor, srcEnd - anchor, dst, d) - dstOffset;
+    }
+
+    /**
+     * Decompress a block
+     *
+     * @param src       compressed block
+     * @param srcOffset offset of the block
+     * @param srcLength block length
+     * @param dst       output array
+     * @param dstOffset offset to write at
+     * @param dstLimit  end of the room available for output
+     * @param dstBase   lowest offset matches may refer to: <code>dstOffset</code> for independent blocks, lower when
+     *                  previous output is available as a dictionary
+     * @return decompressed length
+     * @throws DataFormatException if the block is corrupt or does not fit the room available
+     */
+    static int decompress(@NonNull final byte[] src, final int srcOffset, final int srcLength,
+                          @NonNull final byte[] dst, final int dstOffset, final int dstLimit, final int dstBase)
+            throws DataFormatException {
+        final int srcEnd = srcOffset + srcLength;
+
+        int s = srcOffset;
+        int d = dstOffset;
+
+        while (s < srcEnd) {
+            final int token = src[s++] & 0xff;
+
+            // literals
+            int literals = token >>> 4;
+
+            if (literals == RUN_MASK) {
+                int b;
+
+                do {
+                    if (s >= srcEnd) {
+                        throw new DataFormatException("truncated lz4 block");
+                    }
+
+                    b = src[s++] & 0xff;
+                    literals += b;
+                } while (b == 255);
+            }
+
+            if (literals > srcEnd - s || literals > dstLimit - d) {
+                throw new DataFormatException("corrupt lz4 block: literals out of bounds");
+            }
+
+            System.arraycopy(src, s, dst, d, literals);
+            s += literals;
+            d += literals;
+
+            if (s == srcEnd) {
+                break; // the last sequence has no match
+            }
+
+            // match
+            if (srcEnd - s < 2) {
+                throw new DataFormatException("truncated lz4 block");
+            }
+
+            final int distance = (src[s] & 0xff) | (src[s + 1] & 0xff) << 8;
+            s += 2;
+
+            int length = token & RUN_MASK;
+
+            if (length == RUN_MASK) {
+                int b;
+
+                do {
+                    if (s >= srcEnd) {
+                        throw new DataFormatException("truncated lz4 block");
+                    }
+
+                    b = src[s++] & 0xff;
+                    length += b;
+                } while (b == 255);
+            }
+
+            length += MIN_MATCH;
+
+            final int match = d - distance;
+
+            if (distance == 0 || match < dstBase || length > dstLimit - d) {
+                throw new DataFormatException("corrupt lz4 block: match out of bounds");
+            }
+
+            if (distance >= length) {
+                System.arraycopy(dst, match, dst, d, length);
+                d += length;
+            } else {
+                // overlapping copy repeats the pattern
+                for (int i = 0; i < length; i++) {
+                    dst[d++] = dst[match + i];
+                }
+            }
+        }
+
+        return d - dstOffset;
+    }
+
+    private static int sequence(final byte[] src, final int literalStart, final int literals, final int distance,
+                                final int matchLength, final byte[] dst, int d) {
+        final int tokenAt = d++;
+        final int extraMatch = matchLength - MIN_MATCH;
+
+        int token;
+
+        if (literals >= RUN_MASK) {
+            token = RUN_MASK << 4;
+            d = length(literals - RUN_MASK, dst, d);
+        } else {
+            token = literals << 4;
+        }
+
+        System.arraycopy(src, literalStart, dst, d, literals);
+        d += literals;
+
+        dst[d++] = (byte) distance;
+        dst[d++] = (byte) (distance >>> 8);
+
+        if (extraMatch >= RUN_MASK) {
+            token |= RUN_MASK;
+            d = length(extraMatch - RUN_MASK, dst, d);
+        } else {
+            token |= extraMatch;
+        }
+
+        dst[tokenAt] = (byte) token;
+        return d;
+    }
+
+    private static int lastLiterals(final byte[] src, final int start, final int literals, final byte[] dst, int d) {
+        if (literals >= RUN_MASK) {
+            dst[d++] = (byte) (RUN_MASK << 4);
+            d = length(literals - RUN_MASK, dst, d);
+        } else {
+            dst[d++] = (byte) (literals << 4);
+        }
+
+        System.arraycopy(src, start, dst, d, literals);
+        return d + literals;
+    }
+
+    private static int length(int remaining, final byte[] dst, int d) {
+        while (remaining >= 255) {
+            dst[d++] = (byte) 255;
+            remaining -= 255;
+        }
+
+        dst[d++] = (byte) remaining;
+        return d;
+    }
+
+    private static int hash(final int value) {
+        return (value * -1640531535) >>> 20; // Knuth's multiplicative hash, 12 bits
+    }
+
+    private static int readInt(final byte[] bytes, final int offset) {
+        return BlockDigest.getIntLE(bytes, offset);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * LZ4 frame format as a {@link Codec}. Compresses roughly half as well as gzip but decompresses many times faster,
+ * which is the better trade for data read far more often than written, such as on-device caches.
+ */
+final class Lz4Codec implements Codec {
+    @NonNull
+    @Override
+    public String getName() {
+        return "lz4";
+    }
+
+    @Override
+    public int getMagicLength() {
+        return 4;
+    }
+
+    @Override
+    public boolean matches(@NonNull final byte[] header, final int length) {
+        return length >= 4 && GzipFormat.readIntLE(header, 0) == Lz4FrameOutputStream.MAGIC;
+    }
+
+    @NonNull
+    @Override
+    public OutputStream compress(@NonNull final OutputStream out) throws IOException {
+        return new Lz4FrameOutputStream(out);
+    }
+
+    @NonNull
+    @Override
+    public InputStream decompress(@NonNull final InputStream in) throws IOException {
+        return new Lz4FrameInputStream(in);
+    }
+}
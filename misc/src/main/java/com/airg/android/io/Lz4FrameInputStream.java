@@ -0,0 +1,341 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.ZipException;
+
+import static com.airg.android.io.Lz4FrameOutputStream.FLG_BLOCK_CHECKSUM;
+import static com.airg.android.io.Lz4FrameOutputStream.FLG_BLOCK_INDEPENDENCE;
+import static com.airg.android.io.Lz4FrameOutputStream.FLG_CONTENT_CHECKSUM;
+import static com.airg.android.io.Lz4FrameOutputStream.FLG_CONTENT_SIZE;
+import static com.airg.android.io.Lz4FrameOutputStream.FLG_DICTIONARY_ID;
+import static com.airg.android.io.Lz4FrameOutputStream.MAGIC;
+import static com.airg.android.io.Lz4FrameOutputStream.UNCOMPRESSED_BLOCK;
+
+/**
+ * Reads the <a href="https://github.com/lz4/lz4/blob/dev/doc/lz4_Frame_format.md">LZ4 frame format</a> as written by
+ * {@link Lz4FrameOutputStream} or the <code>lz4</code> tool: any block size, independent or linked blocks, optional
+ * block and content checksums (verified), concatenated frames and skippable frames. Frames that need an external
+ * dictionary are rejected.
+ */
+final class Lz4FrameInputStream extends FilterInputStream {
+    private static final int SKIPPABLE_MAGIC = 0x184D2A50; // through 0x184D2A5F
+    private static final int WINDOW = 64 * 1024;
+
+    private final XxHash32Digest checksum = new XxHash32Digest();
+    private final byte[] single = new byte[1];
+
+    private byte[] compressed = new byte[0];
+    private byte[] window = new byte[0]; // dictionary (linked blocks only), then the current block
+    private int position;
+    private int limit;
+
+    private int flags;
+    private int blockSize;
+    private boolean frameOpen;
+    private boolean eof;
+
+    Lz4FrameInputStream(@NonNull final InputStream in) throws IOException {
+        super(in);
+
+        if (!readFrameHeader()) {
+            throw new EOFException("empty lz4 input");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(@NonNull final byte[] buffer, final int offset, final int length) throws IOException {
+        if (offset < 0 || length < 0 || offset > buffer.length - length) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (length == 0) {
+            return 0;
+        }
+
+        while (position == limit) {
+            if (eof || !nextBlock()) {
+                return -1;
+            }
+        }
+
+        final int n = Math.min(length, limit - position);
+        System.arraycopy(window, position, buffer, offset, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        long skipped = 0;
+
+        // blocks still have to be decoded (and checked), but there is no need to copy them out
+        while (skipped < n) {
+            if (position == limit && (eof || !nextBlock())) {
+                break;
+            }
+
+            final int step = (int) Math.min(n - skipped, limit - position);
+            position += step;
+            skipped += step;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(final int readLimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * Decode the next block into the window, moving on to the next frame at the end of the current one
+     *
+     * @return <code>false</code> at the end of the input
+     */
+    private boolean nextBlock() throws IOException {
+        if (!frameOpen && !readFrameHeader()) {
+            eof = true;
+            return false;
+        }
+
+        final int header = readIntLE();
+
+        if (header == 0) {
+            endFrame();
+            return true; // an empty block: the caller loops
+        }
+
+        final boolean stored = (header & UNCOMPRESSED_BLOCK) != 0;
+        final int size = header & ~UNCOMPRESSED_BLOCK;
+
+        if (size > blockSize) {
+            throw new ZipException("lz4 block larger than the frame's maximum: " + size);
+        }
+
+        readFully(compressed, size);
+
+        if ((flags & FLG_BLOCK_CHECKSUM) != 0 && readIntLE() != XxHash32Digest.hash(compressed, 0, size)) {
+            throw new ZipException("lz4 block checksum mismatch");
+        }
+
+        // linked blocks may refer to the last 64 KiB of earlier output: keep them in front of the new block
+        int start = 0;
+
+        if ((flags & FLG_BLOCK_INDEPENDENCE) == 0 && limit > 0) {
+            final int keep = Math.min(WINDOW, limit);
+            System.arraycopy(window, limit - keep, window, 0, keep);
+            start = keep;
+        }
+
+        final int length;
+
+        if (stored) {
+            System.arraycopy(compressed, 0, window, start, size);
+            length = size;
+        } else {
+            try {
+                length = Lz4Block.decompress(compressed, 0, size, window, start, start + blockSize,
+                        (flags & FLG_BLOCK_INDEPENDENCE) == 0 ? 0 : start);
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+        }
+
+        if ((flags & FLG_CONTENT_CHECKSUM) != 0) {
+            checksum.update(window, start, length);
+        }
+
+        position = start;
+        limit = start + length;
+        return true;
+    }
+
+    private void endFrame() throws IOException {
+        if ((flags & FLG_CONTENT_CHECKSUM) != 0 && readIntLE() != checksum.value()) {
+            throw new ZipException("lz4 content checksum mismatch");
+        }
+
+        frameOpen = false;
+        position = limit = 0;
+    }
+
+    /**
+     * @return <code>false</code> if the input ends instead
+     */
+    private boolean readFrameHeader() throws IOException {
+        while (true) {
+            final byte[] magic = new byte[4];
+            final int read = readUpTo(magic);
+
+            if (read == 0) {
+                return false;
+            }
+
+            if (read < 4) {
+                throw new EOFException("truncated lz4 frame");
+            }
+
+            final int value = GzipFormat.readIntLE(magic, 0);
+
+            if ((value & 0xfffffff0) == SKIPPABLE_MAGIC) {
+                skipFully(readIntLE() & 0xffffffffL);
+                continue;
+            }
+
+            if (value != MAGIC) {
+                throw new ZipException("not in lz4 frame format");
+            }
+
+            break;
+        }
+
+        final byte[] descriptor = new byte[2 + 8 + 4];
+        readFully(descriptor, 2);
+
+        flags = descriptor[0] & 0xff;
+
+        if ((flags & 0xc0) != Lz4FrameOutputStream.FLG_VERSION) {
+            throw new ZipException("unsupported lz4 frame version");
+        }
+
+        if ((flags & FLG_DICTIONARY_ID) != 0) {
+            throw new ZipException("lz4 frames with a dictionary are not supported");
+        }
+
+        final int blockSizeId = (descriptor[1] >>> 4) & 7;
+
+        if (blockSizeId < 4) {
+            throw new ZipException("invalid lz4 block size id: " + blockSizeId);
+        }
+
+        int length = 2;
+
+        if ((flags & FLG_CONTENT_SIZE) != 0) {
+            readFully(descriptor, length, 8);
+            length += 8;
+        }
+
+        final int headerChecksum = readByte();
+
+        if (headerChecksum != ((XxHash32Digest.hash(descriptor, 0, length) >>> 8) & 0xff)) {
+            throw new ZipException("lz4 frame header checksum mismatch");
+        }
+
+        blockSize = 1 << (8 + 2 * blockSizeId);
+
+        if (compressed.length < blockSize) {
+            compressed = new byte[blockSize];
+        }
+
+        if (window.length < WINDOW + blockSize) {
+            window = new byte[WINDOW + blockSize];
+        }
+
+        checksum.reset();
+        position = limit = 0;
+        frameOpen = true;
+        return true;
+    }
+
+    private int readByte() throws IOException {
+        final int b = in.read();
+
+        if (b < 0) {
+            throw new EOFException("truncated lz4 frame");
+        }
+
+        return b;
+    }
+
+    private int readIntLE() throws IOException {
+        final byte[] bytes = new byte[4];
+        readFully(bytes, 4);
+        return GzipFormat.readIntLE(bytes, 0);
+    }
+
+    private void readFully(final byte[] buffer, final int length) throws IOException {
+        readFully(buffer, 0, length);
+    }
+
+    private void readFully(final byte[] buffer, final int offset, final int length) throws IOException {
+        int total = 0;
+
+        while (total < length) {
+            final int read = in.read(buffer, offset + total, length - total);
+
+            if (read < 0) {
+                throw new EOFException("truncated lz4 frame");
+            }
+
+            total += read;
+        }
+    }
+
+    private int readUpTo(final byte[] buffer) throws IOException {
+        int total = 0;
+        int read;
+
+        while (total < buffer.length && (read = in.read(buffer, total, buffer.length - total)) >= 0) {
+            total += read;
+        }
+
+        return total;
+    }
+
+    private void skipFully(long count) throws IOException {
+        while (count > 0) {
+            final long skipped = in.skip(count);
+
+            if (skipped <= 0) {
+                readByte(); // skip() may not make progress without reading
+                count--;
+            } else {
+                count -= skipped;
+            }
+        }
+    }
+}
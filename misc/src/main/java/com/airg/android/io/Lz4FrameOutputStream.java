@@ -0,0 +1,159 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the <a href="https://github.com/lz4/lz4/blob/dev/doc/lz4_Frame_format.md">LZ4 frame format</a>: 64 KiB
+ * independent blocks and a content checksum, readable by the <code>lz4</code> command line tool and any other LZ4
+ * frame decoder. Blocks that do not compress are stored as is.
+ */
+final class Lz4FrameOutputStream extends FilterOutputStream {
+    static final int MAGIC = 0x184D2204;
+    static final int BLOCK_SIZE = 64 * 1024;
+    static final int FLG_VERSION = 0x40;
+    static final int FLG_BLOCK_INDEPENDENCE = 0x20;
+    static final int FLG_BLOCK_CHECKSUM = 0x10;
+    static final int FLG_CONTENT_SIZE = 0x08;
+    static final int FLG_CONTENT_CHECKSUM = 0x04;
+    static final int FLG_DICTIONARY_ID = 0x01;
+    static final int BD_64KB = 4 << 4;
+    static final int UNCOMPRESSED_BLOCK = 0x80000000;
+
+    private final byte[] input = new byte[BLOCK_SIZE];
+    private final byte[] output = new byte[4 + Lz4Block.maxCompressedLength(BLOCK_SIZE)];
+    private final int[] table = new int[Lz4Block.HASH_TABLE_SIZE];
+    private final XxHash32Digest checksum = new XxHash32Digest();
+    private int inputLength;
+    private boolean closed;
+
+    Lz4FrameOutputStream(@NonNull final OutputStream out) throws IOException {
+        super(out);
+
+        final byte[] header = new byte[7];
+        putIntLE(MAGIC, header, 0);
+        header[4] = (byte) (FLG_VERSION | FLG_BLOCK_INDEPENDENCE | FLG_CONTENT_CHECKSUM);
+        header[5] = (byte) BD_64KB;
+        header[6] = (byte) (XxHash32Digest.hash(header, 4, 2) >>> 8);
+        out.write(header);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        ensureOpen();
+
+        if (inputLength == input.length) {
+            writeBlock();
+        }
+
+        input[inputLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(@NonNull final byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+
+        if (offset < 0 || length < 0 || offset > bytes.length - length) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        while (length > 0) {
+            if (inputLength == input.length) {
+                writeBlock();
+            }
+
+            final int n = Math.min(length, input.length - inputLength);
+            System.arraycopy(bytes, offset, input, inputLength, n);
+            inputLength += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Write whatever is buffered as a (short) block and flush the destination
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+
+        if (inputLength > 0) {
+            writeBlock();
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Write the last block, the end mark and the content checksum, then close the destination
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        try {
+            if (inputLength > 0) {
+                writeBlock();
+            }
+
+            final byte[] end = new byte[8];
+            putIntLE(checksum.value(), end, 4); // end mark (0) and checksum
+            out.write(end);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        checksum.update(input, 0, inputLength);
+
+        final int compressed = Lz4Block.compress(input, 0, inputLength, output, 4, table);
+
+        if (compressed < inputLength) {
+            putIntLE(compressed, output, 0);
+            out.write(output, 0, 4 + compressed);
+        } else {
+            putIntLE(inputLength | UNCOMPRESSED_BLOCK, output, 0);
+            out.write(output, 0, 4);
+            out.write(input, 0, inputLength);
+        }
+
+        inputLength = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("stream is closed");
+        }
+    }
+
+    static void putIntLE(final int value, final byte[] out, final int offset) {
+        GzipFormat.writeIntLE(value, out, offset);
+    }
+}
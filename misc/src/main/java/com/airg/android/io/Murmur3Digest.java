@@ -0,0 +1,106 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Pure java MurmurHash3 x64 128 bit variant (seed 0). The digest is <code>h1</code> followed by <code>h2</code>,
+ * each in little endian byte order, matching the output of the reference implementation and most ports of it.
+ */
+final class Murmur3Digest extends BlockDigest {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private long h1;
+    private long h2;
+
+    Murmur3Digest() {
+        super(Hasher.MURMUR3_128_ALGORITHM, 16, 16);
+    }
+
+    @Override
+    void resetState() {
+        h1 = 0;
+        h2 = 0;
+    }
+
+    @Override
+    void processBlock(@NonNull final byte[] input, final int offset) {
+        h1 ^= mixK1(getLongLE(input, offset));
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        h2 ^= mixK2(getLongLE(input, offset + 8));
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    @Override
+    void finish(@NonNull final byte[] tail, final int tailLength, final long total, @NonNull final byte[] out,
+                final int outOffset) {
+        long k1 = 0;
+        long k2 = 0;
+
+        for (int i = tailLength - 1; i >= 8; i--) {
+            k2 = (k2 << 8) | (tail[i] & 0xffL);
+        }
+        for (int i = Math.min(tailLength, 8) - 1; i >= 0; i--) {
+            k1 = (k1 << 8) | (tail[i] & 0xffL);
+        }
+
+        long a = h1 ^ mixK1(k1);
+        long b = h2 ^ mixK2(k2);
+
+        a ^= total;
+        b ^= total;
+        a += b;
+        b += a;
+        a = fmix(a);
+        b = fmix(b);
+        a += b;
+        b += a;
+
+        putLongLE(a, out, outOffset);
+        putLongLE(b, out, outOffset + 8);
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
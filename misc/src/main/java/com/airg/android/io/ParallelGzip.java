@@ -0,0 +1,235 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import android.annotation.TargetApi;
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static android.os.Build.VERSION_CODES.KITKAT;
+
+/**
+ * pigz style gzip compression: input is cut into blocks that are deflated concurrently, each primed with the last
+ * 32 KiB of the block before it so the ratio stays close to that of a serial compressor. Every block but the last
+ * ends with a sync flush, which leaves the deflate stream byte aligned so the blocks can simply be concatenated. The
+ * result is a single, ordinary gzip member whose CRC32 is combined from the CRC32 of each block.
+ */
+@TargetApi(KITKAT) // Deflater.SYNC_FLUSH
+final class ParallelGzip {
+    static final int BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private final ExecutorService executor;
+    private final GzipOptions options;
+    private final int window;
+
+    /**
+     * @param executor executor to compress blocks on
+     * @param threads  number of threads available in <code>executor</code>. Bounds the number of blocks in memory.
+     * @param options  compression options. Only level and strategy apply.
+     */
+    ParallelGzip(@NonNull final ExecutorService executor, final int threads, @NonNull final GzipOptions options) {
+        this.executor = executor;
+        this.options = options;
+        window = Math.max(2, threads * 2);
+    }
+
+    /**
+     * Compress a stream. Neither stream is closed.
+     *
+     * @param in  uncompressed input
+     * @param out compressed output
+     * @throws IOException if unable to read or write
+     */
+    void compress(@NonNull final InputStream in, @NonNull final OutputStream out) throws IOException {
+        final ArrayDeque<Future<Block>> pending = new ArrayDeque<>(window);
+
+        try {
+            out.write(GzipFormat.HEADER);
+
+            long crc = 0;
+            long size = 0;
+
+            byte[] previous = null;
+            byte[] current = new byte[BLOCK_SIZE];
+            int currentLength = readFully(in, current);
+
+            while (true) {
+                final byte[] next = new byte[BLOCK_SIZE];
+                final int nextLength = currentLength < BLOCK_SIZE ? 0 : readFully(in, next);
+                final boolean last = nextLength == 0;
+
+                if (pending.size() >= window) {
+                    final Block block = await(pending.removeFirst());
+                    out.write(block.data, 0, block.length);
+                    crc = GzipFormat.crc32Combine(crc, block.crc, block.inputLength);
+                }
+
+                pending.addLast(executor.submit(new Task(current, currentLength, previous, last)));
+                size += currentLength;
+
+                if (last) {
+                    break;
+                }
+
+                previous = current;
+                current = next;
+                currentLength = nextLength;
+            }
+
+            while (!pending.isEmpty()) {
+                final Block block = await(pending.removeFirst());
+                out.write(block.data, 0, block.length);
+                crc = GzipFormat.crc32Combine(crc, block.crc, block.inputLength);
+            }
+
+            final byte[] trailer = new byte[GzipFormat.TRAILER_SIZE];
+            GzipFormat.writeTrailer(crc, size, trailer, 0);
+            out.write(trailer);
+            out.flush();
+        } finally {
+            for (final Future<Block> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static Block await(final Future<Block> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while compressing");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+
+    private static int readFully(final InputStream in, final byte[] buffer) throws IOException {
+        int total = 0;
+        int read;
+
+        while (total < buffer.length && (read = in.read(buffer, total, buffer.length - total)) > 0) {
+            total += read;
+        }
+
+        return total;
+    }
+
+    private static final class Block {
+        final byte[] data;
+        final int length;
+        final long crc;
+        final int inputLength;
+
+        Block(final byte[] data, final int length, final long crc, final int inputLength) {
+            this.data = data;
+            this.length = length;
+            this.crc = crc;
+            this.inputLength = inputLength;
+        }
+    }
+
+    private final class Task implements Callable<Block> {
+        private final byte[] input;
+        private final int length;
+        private final byte[] dictionary;
+        private final boolean last;
+
+        Task(final byte[] input, final int length, final byte[] dictionary, final boolean last) {
+            this.input = input;
+            this.length = length;
+            this.dictionary = dictionary;
+            this.last = last;
+        }
+
+        @Override
+        public Block call() {
+            final CRC32 crc = new CRC32();
+            crc.update(input, 0, length);
+
+            final Deflater deflater = options.newDeflater(true);
+
+            try {
+                if (null != dictionary) {
+                    deflater.setDictionary(dictionary, dictionary.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+                }
+
+                deflater.setInput(input, 0, length);
+
+                byte[] output = new byte[length + (length >> 3) + 64];
+                int written = 0;
+
+                if (last) {
+                    deflater.finish();
+                }
+
+                while (true) {
+                    if (written == output.length) {
+                        final byte[] grown = new byte[output.length * 2];
+                        System.arraycopy(output, 0, grown, 0, written);
+                        output = grown;
+                    }
+
+                    final int space = output.length - written;
+
+                    if (last) {
+                        written += deflater.deflate(output, written, space);
+
+                        if (deflater.finished()) {
+                            break;
+                        }
+                    } else {
+                        final int n = deflater.deflate(output, written, space, Deflater.SYNC_FLUSH);
+                        written += n;
+
+                        // a flush that did not fill the output buffer is complete
+                        if (n < space) {
+                            break;
+                        }
+                    }
+                }
+
+                return new Block(output, written, crc.getValue(), length);
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+}
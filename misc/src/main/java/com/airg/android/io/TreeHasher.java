@@ -0,0 +1,203 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Calculates the two level "tree hash" of a file described in {@link Hasher#treeHash(File, String, int,
+ * ExecutorService)}. Leaves are hashed concurrently; the root is always assembled in chunk order so the result does
+ * not depend on the number of threads.
+ */
+@SuppressWarnings({"TryFinallyCanBeTryWithResources"})
+@NoArgsConstructor(access = AccessLevel.PRIVATE) // no instance
+final class TreeHasher {
+    static final byte LEAF_PREFIX = 0x00;
+    static final byte ROOT_PREFIX = 0x01;
+
+    /**
+     * Calculate the root digest of a file
+     *
+     * @param file      input file
+     * @param algorithm digest algorithm used for both leaves and root
+     * @param chunkSize leaf size in bytes
+     * @param executor  executor to hash leaves on
+     * @return raw root digest
+     * @throws IOException              errors reading, finding, or accessing the input file
+     * @throws NoSuchAlgorithmException if the local implementation does not support the given algorithm
+     */
+    static byte[] digest(@NonNull final File file, @NonNull final String algorithm, final int chunkSize,
+                         @NonNull final ExecutorService executor)
+            throws IOException, NoSuchAlgorithmException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive: " + chunkSize);
+        }
+
+        // fail early (and on the calling thread) on unknown algorithms
+        final MessageDigest root = DigestPool.acquire(algorithm);
+
+        try {
+            return digest(file, algorithm, chunkSize, executor, root);
+        } finally {
+            DigestPool.release(algorithm, root);
+        }
+    }
+
+    private static byte[] digest(final File file, final String algorithm, final int chunkSize,
+                                 final ExecutorService executor, final MessageDigest root)
+            throws IOException, NoSuchAlgorithmException {
+        final FileInputStream in = new FileInputStream(file);
+
+        try {
+            final FileChannel channel = in.getChannel();
+            final long length = channel.size();
+            final List<Future<byte[]>> leaves = new ArrayList<>((int) ((length + chunkSize - 1) / chunkSize));
+
+            for (long position = 0; position < length; position += chunkSize) {
+                final int size = (int) Math.min(chunkSize, length - position);
+                leaves.add(executor.submit(new LeafTask(channel, algorithm, position, size)));
+            }
+
+            root.update(ROOT_PREFIX);
+            root.update(longBytes(chunkSize));
+            root.update(longBytes(length));
+
+            for (final Future<byte[]> leaf : leaves) {
+                root.update(await(leaf, leaves));
+            }
+
+            return root.digest();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] await(final Future<byte[]> leaf, final List<Future<byte[]>> all)
+            throws IOException, NoSuchAlgorithmException {
+        try {
+            return leaf.get();
+        } catch (InterruptedException e) {
+            cancel(all);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while hashing");
+        } catch (ExecutionException e) {
+            cancel(all);
+
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof NoSuchAlgorithmException) {
+                throw (NoSuchAlgorithmException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+
+    private static void cancel(final List<Future<byte[]>> futures) {
+        for (final Future<byte[]> future : futures) {
+            future.cancel(false);
+        }
+    }
+
+    static byte[] longBytes(final long value) {
+        final byte[] bytes = new byte[8];
+
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) (value >>> (8 * (7 - i)));
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Hashes a single leaf. Reads are positional so any number of leaves may share the same channel. Large leaves are
+     * memory mapped.
+     */
+    private static final class LeafTask implements Callable<byte[]> {
+        private final FileChannel channel;
+        private final String algorithm;
+        private final long position;
+        private final int size;
+
+        LeafTask(final FileChannel channel, final String algorithm, final long position, final int size) {
+            this.channel = channel;
+            this.algorithm = algorithm;
+            this.position = position;
+            this.size = size;
+        }
+
+        @Override
+        public byte[] call() throws IOException, NoSuchAlgorithmException {
+            final MessageDigest digest = DigestPool.acquire(algorithm);
+
+            try {
+                digest.update(LEAF_PREFIX);
+                digest.update(read());
+                return digest.digest();
+            } finally {
+                DigestPool.release(algorithm, digest);
+            }
+        }
+
+        private ByteBuffer read() throws IOException {
+            if (size >= Hasher.MAPPED_HASH_THRESHOLD) {
+                try {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                } catch (IOException e) {
+                    // mapping not supported: read the chunk instead
+                }
+            }
+
+            final ByteBuffer buffer = ByteBuffer.allocate(size);
+
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("unexpected end of file at " + (position + buffer.position()));
+                }
+            }
+
+            buffer.flip();
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static android.os.Build.VERSION_CODES.KITKAT;
+
+/**
+ * {@link GZIPOutputStream} that honors the level, strategy, buffer size and sync flush setting of a
+ * {@link GzipOptions}
+ */
+final class TunedGzipOutputStream extends GZIPOutputStream {
+    private TunedGzipOutputStream(final OutputStream out, final int size) throws IOException {
+        super(out, size);
+    }
+
+    @TargetApi(KITKAT)
+    private TunedGzipOutputStream(final OutputStream out, final int size, final boolean syncFlush)
+            throws IOException {
+        super(out, size, syncFlush);
+    }
+
+    /**
+     * Open a compressed stream. The gzip header is written right away.
+     *
+     * @param out     output stream to write compressed data to
+     * @param options compression options
+     * @return a new compressed stream
+     * @throws IOException if unable to write the header
+     */
+    static GZIPOutputStream open(@NonNull final OutputStream out, @NonNull final GzipOptions options)
+            throws IOException {
+        final TunedGzipOutputStream gos = options.isSyncFlush() && Build.VERSION.SDK_INT >= KITKAT
+                ? new TunedGzipOutputStream(out, options.getBufferSize(), true)
+                : new TunedGzipOutputStream(out, options.getBufferSize());
+
+        // nothing has been deflated yet (the header is written directly) so this applies to the whole stream
+        gos.def.setLevel(options.getLevel());
+        gos.def.setStrategy(options.getStrategy());
+        return gos;
+    }
+}
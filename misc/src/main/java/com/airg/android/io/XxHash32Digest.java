@@ -0,0 +1,134 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.security.DigestException;
+
+/**
+ * Pure java <a href="https://github.com/Cyan4973/xxHash">xxHash32</a> (seed 0), the checksum of the LZ4 frame
+ * format. The digest is the 32 bit hash in big endian byte order; {@link #value()} returns it as an int.
+ */
+final class XxHash32Digest extends BlockDigest {
+    static final String ALGORITHM = "XXH32";
+
+    private static final int PRIME32_1 = 0x9E3779B1;
+    private static final int PRIME32_2 = 0x85EBCA77;
+    private static final int PRIME32_3 = 0xC2B2AE3D;
+    private static final int PRIME32_4 = 0x27D4EB2F;
+    private static final int PRIME32_5 = 0x165667B1;
+
+    private final byte[] scratch = new byte[4];
+
+    private int v1;
+    private int v2;
+    private int v3;
+    private int v4;
+
+    XxHash32Digest() {
+        super(ALGORITHM, 16, 4);
+        resetState();
+    }
+
+    /**
+     * Finish the hash and reset
+     *
+     * @return the hash of everything consumed since the last reset
+     */
+    int value() {
+        try {
+            digest(scratch, 0, scratch.length);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return scratch[0] << 24 | (scratch[1] & 0xff) << 16 | (scratch[2] & 0xff) << 8 | (scratch[3] & 0xff);
+    }
+
+    /**
+     * Hash a range of an array in one go
+     */
+    static int hash(@NonNull final byte[] input, final int offset, final int length) {
+        final XxHash32Digest digest = new XxHash32Digest();
+        digest.update(input, offset, length);
+        return digest.value();
+    }
+
+    @Override
+    void resetState() {
+        v1 = PRIME32_1 + PRIME32_2;
+        v2 = PRIME32_2;
+        v3 = 0;
+        v4 = -PRIME32_1;
+    }
+
+    @Override
+    void processBlock(@NonNull final byte[] input, final int offset) {
+        v1 = round(v1, getIntLE(input, offset));
+        v2 = round(v2, getIntLE(input, offset + 4));
+        v3 = round(v3, getIntLE(input, offset + 8));
+        v4 = round(v4, getIntLE(input, offset + 12));
+    }
+
+    @Override
+    void finish(@NonNull final byte[] tail, final int tailLength, final long total, @NonNull final byte[] out,
+                final int outOffset) {
+        int hash;
+
+        if (total >= 16) {
+            hash = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7) + Integer.rotateLeft(v3, 12)
+                    + Integer.rotateLeft(v4, 18);
+        } else {
+            hash = PRIME32_5;
+        }
+
+        hash += (int) total;
+
+        int i = 0;
+
+        for (; i + 4 <= tailLength; i += 4) {
+            hash += getIntLE(tail, i) * PRIME32_3;
+            hash = Integer.rotateLeft(hash, 17) * PRIME32_4;
+        }
+
+        for (; i < tailLength; i++) {
+            hash += (tail[i] & 0xff) * PRIME32_5;
+            hash = Integer.rotateLeft(hash, 11) * PRIME32_1;
+        }
+
+        hash ^= hash >>> 15;
+        hash *= PRIME32_2;
+        hash ^= hash >>> 13;
+        hash *= PRIME32_3;
+        hash ^= hash >>> 16;
+
+        out[outOffset] = (byte) (hash >>> 24);
+        out[outOffset + 1] = (byte) (hash >>> 16);
+        out[outOffset + 2] = (byte) (hash >>> 8);
+        out[outOffset + 3] = (byte) hash;
+    }
+
+    private static int round(int acc, final int input) {
+        acc += input * PRIME32_2;
+        acc = Integer.rotateLeft(acc, 13);
+        return acc * PRIME32_1;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Pure java <a href="https://github.com/Cyan4973/xxHash">xxHash64</a> (seed 0). The digest is the 64 bit hash in
+ * big endian ("canonical") byte order, so its hexadecimal form matches the reference <code>xxhsum</code> tool.
+ */
+final class XxHash64Digest extends BlockDigest {
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+
+    XxHash64Digest() {
+        super(Hasher.XXHASH64_ALGORITHM, 32, 8);
+        resetState();
+    }
+
+    @Override
+    void resetState() {
+        v1 = PRIME64_1 + PRIME64_2;
+        v2 = PRIME64_2;
+        v3 = 0;
+        v4 = -PRIME64_1;
+    }
+
+    @Override
+    void processBlock(@NonNull final byte[] input, final int offset) {
+        v1 = round(v1, getLongLE(input, offset));
+        v2 = round(v2, getLongLE(input, offset + 8));
+        v3 = round(v3, getLongLE(input, offset + 16));
+        v4 = round(v4, getLongLE(input, offset + 24));
+    }
+
+    @Override
+    void finish(@NonNull final byte[] tail, final int tailLength, final long total, @NonNull final byte[] out,
+                final int outOffset) {
+        long hash;
+
+        if (total >= 32) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+                    + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME64_5;
+        }
+
+        hash += total;
+
+        int i = 0;
+
+        for (; i + 8 <= tailLength; i += 8) {
+            hash ^= round(0, getLongLE(tail, i));
+            hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+        }
+
+        if (i + 4 <= tailLength) {
+            hash ^= (getIntLE(tail, i) & 0xffffffffL) * PRIME64_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+            i += 4;
+        }
+
+        for (; i < tailLength; i++) {
+            hash ^= (tail[i] & 0xff) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+
+        putLongBE(hash, out, outOffset);
+    }
+
+    private static long round(long acc, final long input) {
+        acc += input * PRIME64_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME64_1;
+    }
+
+    private static long mergeRound(final long acc, final long value) {
+        return (acc ^ round(0, value)) * PRIME64_1 + PRIME64_4;
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Random access to the entries of a ZIP archive. Unlike {@link java.util.zip.ZipInputStream}, which has to inflate
+ * its way through every entry in order, the archive's central directory is read up front so any single entry can be
+ * opened directly, and entries can be extracted concurrently.
+ * <p>
+ * Extraction never writes outside the target directory: entries named like <code>../../evil</code> are rejected.
+ *
+ * @see ZipWriter
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess", "TryFinallyCanBeTryWithResources"})
+public final class ZipArchive implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ZipFile zip;
+
+    /**
+     * Open an archive
+     *
+     * @param file ZIP file
+     * @throws IOException if unable to read the file or if it is not a valid ZIP archive
+     */
+    public ZipArchive(@NonNull final File file) throws IOException {
+        zip = new ZipFile(file);
+    }
+
+    /**
+     * @return number of entries, including directories
+     */
+    public int size() {
+        return zip.size();
+    }
+
+    /**
+     * @return all entries, in central directory order
+     */
+    @NonNull
+    public List<ZipEntry> getEntries() {
+        final List<ZipEntry> entries = new ArrayList<>(zip.size());
+        final Enumeration<? extends ZipEntry> enumeration = zip.entries();
+
+        while (enumeration.hasMoreElements()) {
+            entries.add(enumeration.nextElement());
+        }
+
+        return entries;
+    }
+
+    /**
+     * @param name entry name
+     * @return the entry or <code>null</code> if there is no such entry
+     */
+    @Nullable
+    public ZipEntry getEntry(@NonNull final String name) {
+        return zip.getEntry(name);
+    }
+
+    /**
+     * Open a single entry, without touching any other
+     *
+     * @param name entry name
+     * @return a stream of the entry's uncompressed content. The caller must close it.
+     * @throws FileNotFoundException if there is no such entry
+     * @throws IOException           if unable to read the archive
+     */
+    @NonNull
+    public InputStream open(@NonNull final String name) throws IOException {
+        return zip.getInputStream(find(name));
+    }
+
+    /**
+     * Read a single entry into memory
+     *
+     * @param name entry name
+     * @return the entry's uncompressed content
+     * @throws FileNotFoundException if there is no such entry
+     * @throws IOException           if unable to read the archive or if the entry is too large for an array
+     */
+    @NonNull
+    public byte[] read(@NonNull final String name) throws IOException {
+        final ZipEntry entry = find(name);
+        final long size = entry.getSize();
+
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException(name + " is too large to read into memory: " + size);
+        }
+
+        final InputStream in = zip.getInputStream(entry);
+
+        try {
+            // the central directory records the size, so allocate once
+            byte[] bytes = new byte[size < 0 ? BUFFER_SIZE : (int) size];
+            int total = 0;
+            int read;
+
+            while (true) {
+                if (total == bytes.length) {
+                    final int next = in.read();
+
+                    if (next < 0) {
+                        return bytes;
+                    }
+
+                    bytes = Arrays.copyOf(bytes, Math.max(BUFFER_SIZE, bytes.length * 2));
+                    bytes[total++] = (byte) next;
+                }
+
+                if ((read = in.read(bytes, total, bytes.length - total)) < 0) {
+                    return total == bytes.length ? bytes : Arrays.copyOf(bytes, total);
+                }
+
+                total += read;
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Extract a single entry
+     *
+     * @param name      entry name
+     * @param directory directory to extract into. The entry's path is preserved below it.
+     * @return extracted file or directory
+     * @throws FileNotFoundException if there is no such entry
+     * @throws ZipException          if the entry would end up outside <code>directory</code>
+     * @throws IOException           if unable to read the archive or write the file
+     */
+    @NonNull
+    public File extract(@NonNull final String name, @NonNull final File directory) throws IOException {
+        final ZipEntry entry = find(name);
+        return extract(entry, resolve(directory.getCanonicalFile(), entry));
+    }
+
+    /**
+     * Extract all entries on the calling thread
+     *
+     * @param directory directory to extract into
+     * @return extracted files and directories
+     * @throws ZipException if an entry would end up outside <code>directory</code>
+     * @throws IOException  if unable to read the archive or write a file
+     */
+    @NonNull
+    public List<File> extractAll(@NonNull final File directory) throws IOException {
+        return extractAll(directory, 1);
+    }
+
+    /**
+     * Extract all entries on a temporary thread pool. See {@link #extractAll(File, Executor, int)}.
+     *
+     * @param directory   directory to extract into
+     * @param parallelism number of threads to extract with
+     * @return extracted files and directories
+     * @throws ZipException if an entry would end up outside <code>directory</code>
+     * @throws IOException  if unable to read the archive or write a file
+     */
+    @NonNull
+    public List<File> extractAll(@NonNull final File directory, final int parallelism) throws IOException {
+        return extractAll(directory, null, parallelism);
+    }
+
+    /**
+     * Extract all entries concurrently. Every entry's destination is checked before anything is written, so an
+     * archive with a malicious entry name leaves no files behind. Large entries are started first. The first failure
+     * stops the remaining work and is thrown.
+     *
+     * @param directory   directory to extract into
+     * @param executor    executor to extract on, or <code>null</code> to use a temporary pool
+     * @param parallelism maximum number of entries to extract at once
+     * @return extracted files and directories
+     * @throws ZipException if an entry would end up outside <code>directory</code>
+     * @throws IOException  if unable to read the archive or write a file
+     */
+    @NonNull
+    public List<File> extractAll(@NonNull final File directory, @Nullable final Executor executor,
+                                 final int parallelism) throws IOException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+
+        final File root = directory.getCanonicalFile();
+        final List<ZipEntry> entries = getEntries();
+        final Job[] jobs = new Job[entries.size()];
+
+        for (int i = 0; i < jobs.length; i++) {
+            final ZipEntry entry = entries.get(i);
+            jobs[i] = new Job(entry, resolve(root, entry));
+        }
+
+        final List<File> files = new ArrayList<>(jobs.length);
+
+        for (final Job job : jobs) {
+            files.add(job.target);
+        }
+
+        final LargestFirstQueue<Job> queue = new LargestFirstQueue<Job>(Arrays.asList(jobs)) {
+            @Override
+            long sizeOf(@NonNull final Job job) {
+                return job.entry.getSize();
+            }
+
+            @Override
+            void process(@NonNull final Job job) throws IOException {
+                extract(job.entry, job.target);
+            }
+        };
+
+        try {
+            queue.execute(executor, parallelism);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while extracting");
+        }
+
+        return files;
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+
+    private ZipEntry find(final String name) throws FileNotFoundException {
+        final ZipEntry entry = zip.getEntry(name);
+
+        if (null == entry) {
+            throw new FileNotFoundException("no entry named " + name + " in " + zip.getName());
+        }
+
+        return entry;
+    }
+
+    /**
+     * Map an entry to its destination, refusing names that escape the target directory
+     */
+    private static File resolve(final File root, final ZipEntry entry) throws IOException {
+        final File target = new File(root, entry.getName()).getCanonicalFile();
+        final String rootPath = root.getPath();
+
+        if (!target.getPath().startsWith(rootPath.endsWith(File.separator) ? rootPath : rootPath + File.separator)) {
+            throw new ZipException("entry " + entry.getName() + " is outside of the target directory");
+        }
+
+        return target;
+    }
+
+    private File extract(final ZipEntry entry, final File target) throws IOException {
+        if (entry.isDirectory()) {
+            mkdirs(target);
+            return target;
+        }
+
+        mkdirs(target.getParentFile());
+
+        final InputStream in = zip.getInputStream(entry);
+
+        try {
+            final OutputStream out = new FileOutputStream(target);
+
+            try {
+                final byte[] buffer = new byte[(int) Math.max(1, Math.min(BUFFER_SIZE, entry.getSize() < 0
+                        ? BUFFER_SIZE : entry.getSize()))];
+                int read;
+
+                while ((read = in.read(buffer)) >= 0) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+
+        if (entry.getTime() > 0) {
+            //noinspection ResultOfMethodCallIgnored
+            target.setLastModified(entry.getTime());
+        }
+
+        return target;
+    }
+
+    private static void mkdirs(final File directory) throws IOException {
+        // another worker may create it concurrently, so check the outcome rather than the return value
+        if (!directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("unable to create directory " + directory);
+        }
+    }
+
+    private static final class Job {
+        final ZipEntry entry;
+        final File target;
+
+        Job(final ZipEntry entry, final File target) {
+            this.entry = entry;
+            this.target = target;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a ZIP archive entry by entry, straight to its destination: no entry is ever held in memory as a whole.
+ * <p>
+ * Entries are either deflated or, for content that is already compressed (images, audio, video, archives),
+ * <i>stored</i> as is, which saves the time deflate would waste on them and lets readers copy them out without
+ * inflating. Stored entries need their CRC up front, so a stored file is read twice.
+ *
+ * @see ZipArchive
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess", "TryFinallyCanBeTryWithResources"})
+public final class ZipWriter implements Closeable {
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "jpg", "jpeg", "png", "gif", "webp", "mp3", "m4a", "aac", "ogg", "opus", "mp4", "m4v", "3gp", "webm",
+            "mkv", "zip", "gz", "tgz", "bz2", "xz", "7z", "apk", "jar"));
+
+    private final ZipOutputStream zos;
+    private final byte[] buffer;
+
+    /**
+     * Start an archive with default options
+     *
+     * @param out destination. Closed by {@link #close()}.
+     */
+    public ZipWriter(@NonNull final OutputStream out) {
+        this(out, GzipOptions.DEFAULT);
+    }
+
+    /**
+     * Start an archive
+     *
+     * @param out     destination. Closed by {@link #close()}.
+     * @param options compression options for deflated entries. Level and buffer size apply.
+     */
+    public ZipWriter(@NonNull final OutputStream out, @NonNull final GzipOptions options) {
+        zos = new ZipOutputStream(out);
+        zos.setLevel(options.getLevel());
+        buffer = new byte[options.getBufferSize()];
+    }
+
+    /**
+     * Add a file, storing it if its extension says it is already compressed and deflating it otherwise
+     *
+     * @param name entry name, e.g. <code>images/logo.png</code>
+     * @param file file to add
+     * @return this writer
+     * @throws IOException if unable to read the file or to write the archive
+     */
+    @NonNull
+    public ZipWriter add(@NonNull final String name, @NonNull final File file) throws IOException {
+        return isCompressed(file.getName()) ? addStored(name, file) : addDeflated(name, file);
+    }
+
+    /**
+     * Add a file, deflated
+     *
+     * @param name entry name
+     * @param file file to add
+     * @return this writer
+     * @throws IOException if unable to read the file or to write the archive
+     */
+    @NonNull
+    public ZipWriter addDeflated(@NonNull final String name, @NonNull final File file) throws IOException {
+        final InputStream in = new FileInputStream(file);
+
+        try {
+            final ZipEntry entry = new ZipEntry(name);
+            entry.setTime(file.lastModified());
+            write(entry, in);
+        } finally {
+            in.close();
+        }
+
+        return this;
+    }
+
+    /**
+     * Add a file as is, without compression
+     *
+     * @param name entry name
+     * @param file file to add
+     * @return this writer
+     * @throws IOException if unable to read the file or to write the archive
+     */
+    @NonNull
+    public ZipWriter addStored(@NonNull final String name, @NonNull final File file) throws IOException {
+        final CRC32 crc = new CRC32();
+        long size = 0;
+
+        InputStream in = new FileInputStream(file);
+
+        try {
+            int read;
+
+            while ((read = in.read(buffer)) >= 0) {
+                crc.update(buffer, 0, read);
+                size += read;
+            }
+        } finally {
+            in.close();
+        }
+
+        final ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc.getValue());
+        entry.setTime(file.lastModified());
+
+        in = new FileInputStream(file);
+
+        try {
+            write(entry, in);
+        } finally {
+            in.close();
+        }
+
+        return this;
+    }
+
+    /**
+     * Add the contents of a stream, deflated
+     *
+     * @param name entry name
+     * @param in   entry contents. Read to the end but not closed.
+     * @return this writer
+     * @throws IOException if unable to read the stream or to write the archive
+     */
+    @NonNull
+    public ZipWriter add(@NonNull final String name, @NonNull final InputStream in) throws IOException {
+        write(new ZipEntry(name), in);
+        return this;
+    }
+
+    /**
+     * Add bytes held in memory, stored or deflated
+     *
+     * @param name   entry name
+     * @param data   entry contents
+     * @param stored <code>true</code> to store the data as is
+     * @return this writer
+     * @throws IOException if unable to write the archive
+     */
+    @NonNull
+    public ZipWriter add(@NonNull final String name, @NonNull final byte[] data, final boolean stored)
+            throws IOException {
+        final ZipEntry entry = new ZipEntry(name);
+
+        if (stored) {
+            final CRC32 crc = new CRC32();
+            crc.update(data);
+
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(data.length);
+            entry.setCompressedSize(data.length);
+            entry.setCrc(crc.getValue());
+        }
+
+        zos.putNextEntry(entry);
+        zos.write(data);
+        zos.closeEntry();
+        return this;
+    }
+
+    /**
+     * Add a directory entry
+     *
+     * @param name directory name. A trailing <code>/</code> is added if missing.
+     * @return this writer
+     * @throws IOException if unable to write the archive
+     */
+    @NonNull
+    public ZipWriter addDirectory(@NonNull final String name) throws IOException {
+        zos.putNextEntry(new ZipEntry(name.endsWith("/") ? name : name + '/'));
+        zos.closeEntry();
+        return this;
+    }
+
+    /**
+     * Write the central directory without closing the destination
+     *
+     * @throws IOException if unable to write the archive
+     */
+    public void finish() throws IOException {
+        zos.finish();
+    }
+
+    /**
+     * Write the central directory and close the destination
+     *
+     * @throws IOException if unable to write the archive
+     */
+    @Override
+    public void close() throws IOException {
+        zos.close();
+    }
+
+    /**
+     * @param name file name
+     * @return <code>true</code> if the name's extension belongs to an already compressed format
+     */
+    public static boolean isCompressed(@NonNull final String name) {
+        final int dot = name.lastIndexOf('.');
+        return dot >= 0 && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ENGLISH));
+    }
+
+    private void write(final ZipEntry entry, final InputStream in) throws IOException {
+        zos.putNextEntry(entry);
+
+        int read;
+
+        while ((read = in.read(buffer)) >= 0) {
+            zos.write(buffer, 0, read);
+        }
+
+        zos.closeEntry();
+    }
+}
@@ -16,11 +16,12 @@
  * ***************************************************************************
  */
 
+
 package com.airg.android.io;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
+import android.support.annotation.NonNull;
+import android.support.annotation.RequiresApi;
+
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -28,21 +29,40 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
+import static android.os.Build.VERSION_CODES.KITKAT;
+
 /**
- * Compression and decompression methods via <code>gzip</code>
+ * Compression and decompression methods via <code>gzip</code>. Every method has a variant that takes
+ * {@link GzipOptions} to trade ratio for speed; the others use {@link GzipOptions#DEFAULT}. ZIP archives are covered
+ * by {@link #zip(File, File)} and {@link #unzip(File, File, int)}, and in more detail by {@link ZipArchive} and
+ * {@link ZipWriter}.
+ * <p>
+ * All methods block until done. Do not call them on the main thread with large inputs; submit a
+ * {@link CompressionService.Job} to a {@link CompressionService} instead.
  *
  * @author Mahram Z. Foadi
  */
 @SuppressWarnings({"UnusedDeclaration", "WeakerAccess", "TryFinallyCanBeTryWithResources"})
 @NoArgsConstructor(access = AccessLevel.PRIVATE) // no instance
 public final class Zipper {
-    private final static int BUFFER_SIZE = 1024;
     static final String UTF8 = "UTF8";
 
     /**
@@ -53,36 +73,265 @@ public final class Zipper {
      * @throws IOException If unable to find/read input file or unable to write output file
      */
     public static void gzip(final File original, final File compressed) throws IOException {
-        final InputStream orig = new FileInputStream(original);
-        final FileOutputStream comp = new FileOutputStream(compressed);
+        gzip(original, compressed, GzipOptions.DEFAULT);
+    }
 
-        gzip(orig, comp);
-        orig.close();
-        comp.flush();
-        comp.close();
+    /**
+     * Compress a given file into another. The file is read through its {@link FileChannel}, straight into the
+     * compressor's buffers.
+     *
+     * @param original   Input file (uncompressed)
+     * @param compressed Output file (compressed)
+     * @param options    Compression options
+     * @throws IOException If unable to find/read input file or unable to write output file
+     */
+    public static void gzip(final File original, final File compressed, @NonNull final GzipOptions options)
+            throws IOException {
+        final FileInputStream orig = new FileInputStream(original);
+
+        try {
+            final FileOutputStream comp = new FileOutputStream(compressed);
+
+            try {
+                gzip(orig.getChannel(), comp.getChannel(), options);
+            } finally {
+                comp.close();
+            }
+        } finally {
+            orig.close();
+        }
     }
 
     /**
-     * Compress the contents of a stream and write to another. This method <b>does not close</b> either stream.
+     * Compress the contents of a stream and write to another. This method does not close the input stream but, unlike
+     * {@link #gzip(InputStream, OutputStream, GzipOptions)}, it <b>does close</b> the output stream.
      *
      * @param in  Input stream (uncompressed)
      * @param out Output stream (compressed)
      * @throws IOException if unable to read/write either stream
      */
     public static void gzip(final InputStream in, final OutputStream out) throws IOException {
-        final byte[] buffer = new byte[BUFFER_SIZE];
+        gzip(in, out, GzipOptions.DEFAULT);
+        out.close();
+    }
+
+    /**
+     * Compress the contents of a stream and write to another. This method <b>does not close</b> either stream.
+     *
+     * @param in      Input stream (uncompressed)
+     * @param out     Output stream (compressed)
+     * @param options Compression options
+     * @throws IOException if unable to read/write either stream
+     */
+    public static void gzip(final InputStream in, final OutputStream out, @NonNull final GzipOptions options)
+            throws IOException {
+        // through the channel path, which ends its deflater, rather than a GZIPOutputStream that cannot be closed
+        // without closing out
+        gzip(Channels.newChannel(in), Channels.newChannel(out), options);
+        out.flush();
+    }
+
+    /**
+     * Compress everything readable from a channel and write it to another. This method <b>does not close</b> either
+     * channel.
+     *
+     * @param in  Blocking input channel (uncompressed)
+     * @param out Blocking output channel (compressed)
+     * @throws IOException if unable to read/write either channel
+     */
+    public static void gzip(final ReadableByteChannel in, final WritableByteChannel out) throws IOException {
+        gzip(in, out, GzipOptions.DEFAULT);
+    }
+
+    /**
+     * Compress everything readable from a channel and write it to another. Data goes from the input channel into the
+     * compressor and from the compressor into the output channel without intermediate streams. This method <b>does
+     * not close</b> either channel.
+     *
+     * @param in      Blocking input channel (uncompressed)
+     * @param out     Blocking output channel (compressed)
+     * @param options Compression options. Sync flush does not apply.
+     * @throws IOException if unable to read/write either channel
+     */
+    public static void gzip(final ReadableByteChannel in, final WritableByteChannel out,
+                            @NonNull final GzipOptions options) throws IOException {
+        final Deflater deflater = options.newDeflater(true);
+
+        try {
+            GzipDeflater.compress(in, out, options.getBufferSize(), deflater);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Compress the remaining contents of a buffer
+     *
+     * @param in Input buffer (uncompressed). May be direct. Its position is advanced to its limit.
+     * @return a new heap buffer holding the compressed data between its position and limit
+     * @throws IOException if unable to compress
+     */
+    public static ByteBuffer gzip(final ByteBuffer in) throws IOException {
+        return gzip(in, GzipOptions.DEFAULT);
+    }
+
+    /**
+     * Compress the remaining contents of a buffer
+     *
+     * @param in      Input buffer (uncompressed). May be direct. Its position is advanced to its limit.
+     * @param options Compression options. Sync flush does not apply.
+     * @return a new heap buffer holding the compressed data between its position and limit
+     * @throws IOException if unable to compress
+     */
+    public static ByteBuffer gzip(final ByteBuffer in, @NonNull final GzipOptions options) throws IOException {
+        final ByteBufferChannel out = new ByteBufferChannel(ByteBuffer.allocate(
+                GzipFormat.HEADER_SIZE + GzipFormat.TRAILER_SIZE + in.remaining() / 2));
+
+        gzip(new ByteBufferChannel(in), out, options.getBufferSize() > in.remaining()
+                ? options.toBuilder().bufferSize(Math.max(1, in.remaining())).build() : options);
+
+        final ByteBuffer compressed = out.buffer();
+        compressed.flip();
+        return compressed;
+    }
+
+    /**
+     * Wrap a stream so everything written to the wrapper is compressed. Closing the wrapper closes <code>out</code>.
+     * With {@link GzipOptions#isSyncFlush()}, flushing the wrapper makes all data written so far available to the
+     * reader, which suits streamed payloads.
+     *
+     * @param out     Output stream (compressed)
+     * @param options Compression options
+     * @return a compressing stream
+     * @throws IOException if unable to write the gzip header
+     */
+    @NonNull
+    public static GZIPOutputStream gzipStream(@NonNull final OutputStream out, @NonNull final GzipOptions options)
+            throws IOException {
+        return TunedGzipOutputStream.open(out, options);
+    }
+
+    /**
+     * Compress a file into another using several threads. See {@link #gzipParallel(InputStream, OutputStream,
+     * ExecutorService, int, GzipOptions)}.
+     *
+     * @param original   Input file (uncompressed)
+     * @param compressed Output file (compressed)
+     * @param threads    Number of threads to compress with
+     * @throws IOException If unable to find/read input file or unable to write output file
+     */
+    @RequiresApi(KITKAT)
+    public static void gzipParallel(final File original, final File compressed, final int threads)
+            throws IOException {
+        gzipParallel(original, compressed, threads, GzipOptions.DEFAULT);
+    }
 
-        final BufferedInputStream bis = new BufferedInputStream(in);
-        final GZIPOutputStream zos = new GZIPOutputStream(new BufferedOutputStream(out));
+    /**
+     * Compress a file into another using several threads. See {@link #gzipParallel(InputStream, OutputStream,
+     * ExecutorService, int, GzipOptions)}.
+     *
+     * @param original   Input file (uncompressed)
+     * @param compressed Output file (compressed)
+     * @param threads    Number of threads to compress with
+     * @param options    Compression options
+     * @throws IOException If unable to find/read input file or unable to write output file
+     */
+    @RequiresApi(KITKAT)
+    public static void gzipParallel(final File original, final File compressed, final int threads,
+                                    @NonNull final GzipOptions options) throws IOException {
+        final InputStream orig = new FileInputStream(original);
 
-        int read;
+        try {
+            final FileOutputStream comp = new FileOutputStream(compressed);
 
-        while ((read = bis.read(buffer)) > 0) {
-            zos.write(buffer, 0, read);
+            try {
+                gzipParallel(orig, comp, threads, options);
+            } finally {
+                comp.close();
+            }
+        } finally {
+            orig.close();
         }
+    }
 
-        zos.flush();
-        zos.close();
+    /**
+     * Compress the contents of a stream using several threads on a temporary pool. See
+     * {@link #gzipParallel(InputStream, OutputStream, ExecutorService, int, GzipOptions)}. This method <b>does not
+     * close</b> either stream.
+     *
+     * @param in      Input stream (uncompressed)
+     * @param out     Output stream (compressed)
+     * @param threads Number of threads to compress with
+     * @throws IOException if unable to read/write either stream
+     */
+    @RequiresApi(KITKAT)
+    public static void gzipParallel(final InputStream in, final OutputStream out, final int threads)
+            throws IOException {
+        gzipParallel(in, out, threads, GzipOptions.DEFAULT);
+    }
+
+    /**
+     * Compress the contents of a stream using several threads on a temporary pool. See
+     * {@link #gzipParallel(InputStream, OutputStream, ExecutorService, int, GzipOptions)}. This method <b>does not
+     * close</b> either stream.
+     *
+     * @param in      Input stream (uncompressed)
+     * @param out     Output stream (compressed)
+     * @param threads Number of threads to compress with
+     * @param options Compression options
+     * @throws IOException if unable to read/write either stream
+     */
+    @RequiresApi(KITKAT)
+    public static void gzipParallel(final InputStream in, final OutputStream out, final int threads,
+                                    @NonNull final GzipOptions options) throws IOException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("thread count must be positive: " + threads);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            gzipParallel(in, out, executor, threads, options);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Compress the contents of a stream on the given executor. See
+     * {@link #gzipParallel(InputStream, OutputStream, ExecutorService, int, GzipOptions)}. This method <b>does not
+     * close</b> either stream.
+     *
+     * @param in       Input stream (uncompressed)
+     * @param out      Output stream (compressed)
+     * @param executor Executor to compress blocks on
+     * @param threads  Number of threads <code>executor</code> can devote to this. Bounds buffered blocks.
+     * @throws IOException if unable to read/write either stream
+     */
+    @RequiresApi(KITKAT)
+    public static void gzipParallel(final InputStream in, final OutputStream out, final ExecutorService executor,
+                                    final int threads) throws IOException {
+        gzipParallel(in, out, executor, threads, GzipOptions.DEFAULT);
+    }
+
+    /**
+     * Compress the contents of a stream, deflating 128 KiB blocks concurrently on the given executor in the style of
+     * <code>pigz</code>. Each block is primed with the tail of the one before it, and the blocks are stitched into a
+     * single standard gzip member that any gunzip implementation can read. Output is usually within a fraction of a
+     * percent of {@link #gzip(InputStream, OutputStream)}, but not byte for byte identical to it. Level and strategy
+     * are taken from <code>options</code>; the block size is fixed. This method <b>does not close</b> either stream.
+     *
+     * @param in       Input stream (uncompressed)
+     * @param out      Output stream (compressed)
+     * @param executor Executor to compress blocks on
+     * @param threads  Number of threads <code>executor</code> can devote to this. Bounds buffered blocks.
+     * @param options  Compression options
+     * @throws IOException if unable to read/write either stream
+     */
+    @RequiresApi(KITKAT)
+    public static void gzipParallel(final InputStream in, final OutputStream out, final ExecutorService executor,
+                                    final int threads, @NonNull final GzipOptions options) throws IOException {
+        new ParallelGzip(executor, threads, options).compress(in, out);
     }
 
     /**
@@ -93,16 +342,157 @@ public final class Zipper {
      * @throws IOException if unable to write to compressed stream
      */
     public static byte[] gzip(final String string) throws IOException {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream(string.length());
-        GZIPOutputStream gos = new GZIPOutputStream(bos);
+        return gzip(string, GzipOptions.DEFAULT);
+    }
+
+    /**
+     * Compress a string
+     *
+     * @param string  Input string (uncompressed)
+     * @param options Compression options
+     * @return Compressed string bytes
+     * @throws IOException if unable to write to compressed stream
+     */
+    public static byte[] gzip(final String string, @NonNull final GzipOptions options) throws IOException {
+        final byte[] bytes = string.getBytes(UTF8);
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(32, bytes.length / 2));
+        final GZIPOutputStream gos = gzipStream(bos, options);
 
-        gos.write(string.getBytes(UTF8));
+        gos.write(bytes);
         gos.close();
-        bos.flush();
-        bos.close();
         return bos.toByteArray();
     }
 
+    /**
+     * Compress a file into block gzip (BGZF) format. See {@link #bgzip(File, File, GzipOptions)}.
+     *
+     * @param original   Input file (uncompressed)
+     * @param compressed Output file (compressed)
+     * @return index of the blocks written
+     * @throws IOException If unable to find/read input file or unable to write output file
+     */
+    public static BlockGzipIndex bgzip(final File original, final File compressed) throws IOException {
+        return bgzip(original, compressed, GzipOptions.DEFAULT);
+    }
+
+    /**
+     * Compress a file into block gzip (BGZF) format: independently compressed blocks of at most 64 KiB. The output
+     * can still be decompressed by {@link #gunzip(File, File)} or any gzip tool, but {@link BlockGzipReader} can also
+     * read any range of it without decompressing what comes before. Save the returned index (see
+     * {@link BlockGzipIndex#write(OutputStream)}) to skip rebuilding it when the file is opened.
+     *
+     * @param original   Input file (uncompressed)
+     * @param compressed Output file (compressed)
+     * @param options    Compression options. Level, strategy and buffer size apply.
+     * @return index of the blocks written
+     * @throws IOException If unable to find/read input file or unable to write output file
+     */
+    public static BlockGzipIndex bgzip(final File original, final File compressed, @NonNull final GzipOptions options)
+            throws IOException {
+        final InputStream orig = new FileInputStream(original);
+
+        try {
+            final BlockGzipOutputStream comp = new BlockGzipOutputStream(new FileOutputStream(compressed), options);
+
+            try {
+                final byte[] buffer = new byte[options.getBufferSize()];
+                int read;
+
+                while ((read = orig.read(buffer)) >= 0) {
+                    comp.write(buffer, 0, read);
+                }
+            } finally {
+                comp.close();
+            }
+
+            return comp.getIndex();
+        } finally {
+            orig.close();
+        }
+    }
+
+    /**
+     * Compress a short message with a preset dictionary. See {@link DeflateDictionary}.
+     *
+     * @param string     Input string (uncompressed)
+     * @param dictionary Preset dictionary
+     * @return zlib stream referencing the dictionary, to be decompressed by
+     * {@link #inflate(byte[], DeflateDictionary...)}
+     * @throws UnsupportedEncodingException if UTF-8 is not supported (never)
+     */
+    public static byte[] deflate(final String string, @NonNull final DeflateDictionary dictionary)
+            throws UnsupportedEncodingException {
+        return deflate(string.getBytes(UTF8), dictionary, GzipOptions.DEFAULT);
+    }
+
+    /**
+     * Compress a short message with a preset dictionary. See {@link DeflateDictionary}.
+     *
+     * @param data       Input bytes (uncompressed)
+     * @param dictionary Preset dictionary
+     * @return zlib stream referencing the dictionary, to be decompressed by
+     * {@link #inflate(byte[], DeflateDictionary...)}
+     */
+    public static byte[] deflate(final byte[] data, @NonNull final DeflateDictionary dictionary) {
+        return deflate(data, dictionary, GzipOptions.DEFAULT);
+    }
+
+    /**
+     * Compress a short message with a preset dictionary. See {@link DeflateDictionary}.
+     *
+     * @param data       Input bytes (uncompressed)
+     * @param dictionary Preset dictionary
+     * @param options    Compression options. Only level and strategy apply.
+     * @return zlib stream referencing the dictionary, to be decompressed by
+     * {@link #inflate(byte[], DeflateDictionary...)}
+     */
+    public static byte[] deflate(final byte[] data, @NonNull final DeflateDictionary dictionary,
+                                 @NonNull final GzipOptions options) {
+        final Deflater deflater = options.newDeflater(true);
+
+        try {
+            return dictionary.deflate(data, 0, data.length, deflater);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decompress a message compressed by {@link #deflate(byte[], DeflateDictionary)}. The dictionary it was
+     * compressed with is picked by id out of the given ones.
+     *
+     * @param compressed   zlib stream (compressed)
+     * @param dictionaries Candidate dictionaries
+     * @return decompressed bytes
+     * @throws IOException if the input is corrupt or references none of the given dictionaries
+     */
+    public static byte[] inflate(final byte[] compressed, @NonNull final DeflateDictionary... dictionaries)
+            throws IOException {
+        return inflate(compressed, GzipSource.UNLIMITED, dictionaries);
+    }
+
+    /**
+     * Decompress a message compressed by {@link #deflate(byte[], DeflateDictionary)}, refusing to produce more than
+     * the given number of bytes. The dictionary it was compressed with is picked by id out of the given ones.
+     *
+     * @param compressed    zlib stream (compressed)
+     * @param maxOutputSize maximum number of bytes to decompress
+     * @param dictionaries  Candidate dictionaries
+     * @return decompressed bytes
+     * @throws IOException if the input is corrupt, references none of the given dictionaries or decompresses to more
+     *                     than <code>maxOutputSize</code> bytes
+     */
+    public static byte[] inflate(final byte[] compressed, final long maxOutputSize,
+                                 @NonNull final DeflateDictionary... dictionaries) throws IOException {
+        final Inflater inflater = new Inflater(true);
+
+        try {
+            return DeflateDictionary.inflate(compressed, 0, compressed.length, maxOutputSize, inflater, dictionaries);
+        } finally {
+            inflater.end();
+        }
+    }
+
     /**
      * Decompress a file into another
      *
@@ -111,34 +501,147 @@ public final class Zipper {
      * @throws IOException if unable to read or write
      */
     public static void gunzip(final File compressed, final File output) throws IOException {
+        gunzip(compressed, output, GzipOptions.DEFAULT);
+    }
+
+    /**
+     * Decompress a file into another. Both files are accessed through their {@link FileChannel}.
+     *
+     * @param compressed input file (compressed)
+     * @param output     output file (decompressed)
+     * @param options    Decompression options. Only the buffer size applies.
+     * @throws IOException if unable to read or write
+     */
+    public static void gunzip(final File compressed, final File output, @NonNull final GzipOptions options)
+            throws IOException {
         final FileInputStream comp = new FileInputStream(compressed);
-        final FileOutputStream decomp = new FileOutputStream(output);
-        gunzip(comp, decomp);
-        comp.close();
-        decomp.close();
+
+        try {
+            final FileOutputStream decomp = new FileOutputStream(output);
+
+            try {
+                gunzip(comp.getChannel(), decomp.getChannel(), options);
+            } finally {
+                decomp.close();
+            }
+        } finally {
+            comp.close();
+        }
     }
 
     /**
-     * Decompress the contents of a stream and write to another. This method <b>does not close</b> either stream.
+     * Decompress the contents of a stream and write to another. This method does not close the input stream but,
+     * unlike {@link #gunzip(InputStream, OutputStream, GzipOptions)}, it <b>does close</b> the output stream.
      *
      * @param in  Input stream (compressed)
      * @param out Output stream (decompressed)
      * @throws IOException If unable to read/write
      */
     public static void gunzip(final InputStream in, final OutputStream out) throws IOException {
-        final byte[] buffer = new byte[BUFFER_SIZE];
+        gunzip(in, out, GzipOptions.DEFAULT);
+        out.close();
+    }
+
+    /**
+     * Decompress the contents of a stream and write to another. This method <b>does not close</b> either stream.
+     *
+     * @param in      Input stream (compressed)
+     * @param out     Output stream (decompressed)
+     * @param options Decompression options. Only the buffer size applies.
+     * @throws IOException If unable to read/write
+     */
+    public static void gunzip(final InputStream in, final OutputStream out, @NonNull final GzipOptions options)
+            throws IOException {
+        // through the channel path, which ends its inflater, rather than a GZIPInputStream that cannot be closed
+        // without closing in
+        gunzip(Channels.newChannel(in), Channels.newChannel(out), options);
+        out.flush();
+    }
 
-        final GZIPInputStream zis = new GZIPInputStream(new BufferedInputStream(in));
-        final BufferedOutputStream bos = new BufferedOutputStream(out);
+    /**
+     * Decompress everything readable from a channel and write it to another. This method <b>does not close</b> either
+     * channel.
+     *
+     * @param in  Blocking input channel (compressed)
+     * @param out Blocking output channel (decompressed)
+     * @throws IOException If unable to read/write or if the input is not valid gzip data
+     */
+    public static void gunzip(final ReadableByteChannel in, final WritableByteChannel out) throws IOException {
+        gunzip(in, out, GzipOptions.DEFAULT);
+    }
 
-        int read;
+    /**
+     * Decompress everything readable from a channel and write it to another. Concatenated gzip members are read as
+     * one stream. This method <b>does not close</b> either channel.
+     *
+     * @param in      Blocking input channel (compressed)
+     * @param out     Blocking output channel (decompressed)
+     * @param options Decompression options. Only the buffer size applies.
+     * @throws IOException If unable to read/write or if the input is not valid gzip data
+     */
+    public static void gunzip(final ReadableByteChannel in, final WritableByteChannel out,
+                              @NonNull final GzipOptions options) throws IOException {
+        final Inflater inflater = new Inflater(true);
+
+        try {
+            final GzipInflater gzip = new GzipInflater(in, options.getBufferSize(), inflater);
+            final ByteBuffer buffer = ByteBuffer.allocate(options.getBufferSize());
 
-        while ((read = zis.read(buffer)) > 0) {
-            bos.write(buffer, 0, read);
+            int read;
+
+            while ((read = gzip.inflate(buffer.array(), 0, buffer.capacity())) >= 0) {
+                buffer.limit(read);
+                GzipDeflater.writeFully(out, buffer);
+                buffer.clear();
+            }
+        } finally {
+            inflater.end();
         }
+    }
 
-        bos.flush();
-        bos.close();
+    /**
+     * Decompress the remaining contents of a buffer
+     *
+     * @param in Input buffer (compressed). May be direct. Its position is advanced to its limit.
+     * @return a new heap buffer holding the decompressed data between its position and limit
+     * @throws IOException If the input is not valid gzip data
+     */
+    public static ByteBuffer gunzip(final ByteBuffer in) throws IOException {
+        return gunzip(in, GzipOptions.DEFAULT);
+    }
+
+    /**
+     * Decompress the remaining contents of a buffer
+     *
+     * @param in      Input buffer (compressed). May be direct. Its position is advanced to its limit.
+     * @param options Decompression options. Only the buffer size applies.
+     * @return a new heap buffer holding the decompressed data between its position and limit
+     * @throws IOException If the input is not valid gzip data
+     */
+    public static ByteBuffer gunzip(final ByteBuffer in, @NonNull final GzipOptions options) throws IOException {
+        // sized from the trailer, bounded by the deflate ratio; the buffer grows if the trailer understates
+        final ByteBufferChannel out = new ByteBufferChannel(ByteBuffer.allocate(
+                Math.max(64, GzipFormat.sizeHint(in))));
+
+        gunzip(new ByteBufferChannel(in), out, options);
+
+        final ByteBuffer decompressed = out.buffer();
+        decompressed.flip();
+        return decompressed;
+    }
+
+    /**
+     * Wrap a stream so everything read from the wrapper is decompressed. Closing the wrapper closes <code>in</code>.
+     *
+     * @param in      Input stream (compressed)
+     * @param options Decompression options. Only the buffer size applies.
+     * @return a decompressing stream
+     * @throws IOException if unable to read or parse the gzip header
+     */
+    @NonNull
+    public static GZIPInputStream gunzipStream(@NonNull final InputStream in, @NonNull final GzipOptions options)
+            throws IOException {
+        return new GZIPInputStream(in, options.getBufferSize());
     }
 
     /**
@@ -149,23 +652,105 @@ public final class Zipper {
      * @throws IOException if unable to read/write
      */
     public static byte[] gunzip(final byte[] cmopressed) throws IOException {
-        final byte[] buffer = new byte[BUFFER_SIZE];
+        return gunzip(cmopressed, GzipOptions.DEFAULT);
+    }
 
-        final ByteArrayInputStream bis = new ByteArrayInputStream(cmopressed);
-        final GZIPInputStream zis = new GZIPInputStream(new BufferedInputStream(bis));
-        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    /**
+     * Unzip an array of compressed bytes
+     *
+     * @param compressed byte array input (compressed)
+     * @param options    Decompression options. None apply: the input is read in place.
+     * @return decompressed byte array
+     * @throws IOException if unable to read/write
+     */
+    public static byte[] gunzip(final byte[] compressed, @NonNull final GzipOptions options) throws IOException {
+        return gunzip(compressed, GzipSource.UNLIMITED);
+    }
+
+    /**
+     * Unzip an array of compressed bytes, refusing to produce more than the given number of bytes. The output is
+     * allocated once, sized from the length recorded in the gzip trailer. See {@link GzipSource}.
+     *
+     * @param compressed    byte array input (compressed)
+     * @param maxOutputSize maximum number of bytes to decompress
+     * @return decompressed byte array
+     * @throws IOException if the input is corrupt or decompresses to more than <code>maxOutputSize</code> bytes
+     */
+    public static byte[] gunzip(final byte[] compressed, final long maxOutputSize) throws IOException {
+        final GzipSource source = new GzipSource(compressed, 0, compressed.length, maxOutputSize, false);
+
+        try {
+            return source.readFully();
+        } finally {
+            source.close();
+        }
+    }
 
-        int read;
+    /**
+     * Archive the contents of a directory, recursively. Files in already compressed formats are stored rather than
+     * deflated; see {@link ZipWriter#add(String, File)}.
+     *
+     * @param directory directory to archive. Entry names are relative to it.
+     * @param archive   ZIP file to write
+     * @throws IOException if unable to read a file or to write the archive
+     */
+    public static void zip(@NonNull final File directory, @NonNull final File archive) throws IOException {
+        if (!directory.isDirectory()) {
+            throw new IOException(directory + " is not a directory");
+        }
+
+        final ZipWriter writer = new ZipWriter(new FileOutputStream(archive));
+
+        try {
+            final List<File> pending = new ArrayList<>();
+            final List<String> names = new ArrayList<>();
+            pending.add(directory);
+            names.add("");
+
+            while (!pending.isEmpty()) {
+                final File current = pending.remove(pending.size() - 1);
+                final String prefix = names.remove(names.size() - 1);
+                final File[] children = current.listFiles();
 
-        while ((read = zis.read(buffer)) > 0) {
-            bos.write(buffer, 0, read);
+                if (null == children) {
+                    continue; // unreadable or vanished
+                }
+
+                for (final File child : children) {
+                    final String name = prefix + child.getName();
+
+                    if (child.isDirectory()) {
+                        writer.addDirectory(name);
+                        pending.add(child);
+                        names.add(name + '/');
+                    } else if (child.isFile()) {
+                        writer.add(name, child);
+                    }
+                }
+            }
+        } finally {
+            writer.close();
         }
+    }
 
-        zis.close();
-        bis.close();
+    /**
+     * Extract all entries of a ZIP archive. See {@link ZipArchive#extractAll(File, int)}.
+     *
+     * @param archive     ZIP file
+     * @param directory   directory to extract into
+     * @param parallelism number of entries to extract at once
+     * @return extracted files and directories
+     * @throws IOException if unable to read the archive or write a file, or if an entry would end up outside
+     *                     <code>directory</code>
+     */
+    public static List<File> unzip(@NonNull final File archive, @NonNull final File directory, final int parallelism)
+            throws IOException {
+        final ZipArchive zip = new ZipArchive(archive);
 
-        final byte[] bytes = bos.toByteArray();
-        bos.close();
-        return bytes;
+        try {
+            return zip.extractAll(directory, parallelism);
+        } finally {
+            zip.close();
+        }
     }
 }
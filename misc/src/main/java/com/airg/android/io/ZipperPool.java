@@ -0,0 +1,346 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.io;
+
+import android.support.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayDeque;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * gzip compression and decompression of in-memory payloads with reusable {@link Deflater} and {@link Inflater}
+ * engines. Each {@link Zipper#gzip(String)} or {@link Zipper#gunzip(byte[])} call allocates a native zlib context
+ * that is only released once the garbage collector finalizes it; with thousands of small messages a second that churn
+ * adds up. A pool keeps a few engines around, resets them between uses and writes the gzip header and trailer itself.
+ * <p>
+ * Output is standard gzip and interoperates with {@link Zipper} and any other gzip implementation. Pools are thread
+ * safe. {@link #close()} a pool when done with it to release native memory right away: idle engines are ended
+ * immediately, engines in use as soon as they are returned.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class ZipperPool implements Closeable {
+    private final GzipOptions options;
+    private final int maxIdle;
+
+    private final ArrayDeque<Deflater> deflaters;
+    private final ArrayDeque<Inflater> inflaters;
+    private boolean closed;
+
+    /**
+     * Create a pool with default options, keeping up to one idle engine of each kind per processor
+     */
+    public ZipperPool() {
+        this(GzipOptions.DEFAULT);
+    }
+
+    /**
+     * Create a pool keeping up to one idle engine of each kind per processor
+     *
+     * @param options compression options. Only level and strategy apply.
+     */
+    public ZipperPool(@NonNull final GzipOptions options) {
+        this(options, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param options compression options. Only level and strategy apply.
+     * @param maxIdle maximum number of idle engines of each kind to keep. Engines returned beyond that are ended.
+     */
+    public ZipperPool(@NonNull final GzipOptions options, final int maxIdle) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("max idle count cannot be negative: " + maxIdle);
+        }
+
+        this.options = options;
+        this.maxIdle = maxIdle;
+        deflaters = new ArrayDeque<>(maxIdle);
+        inflaters = new ArrayDeque<>(maxIdle);
+    }
+
+    /**
+     * Compress a string
+     *
+     * @param string Input string (uncompressed)
+     * @return Compressed string bytes
+     * @throws UnsupportedEncodingException if UTF-8 is not supported (never)
+     */
+    public byte[] gzip(@NonNull final String string) throws UnsupportedEncodingException {
+        final byte[] bytes = string.getBytes(Zipper.UTF8);
+        return gzip(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Compress an array of bytes
+     *
+     * @param data Input bytes (uncompressed)
+     * @return Compressed bytes
+     */
+    public byte[] gzip(@NonNull final byte[] data) {
+        return gzip(data, 0, data.length);
+    }
+
+    /**
+     * Compress a range of an array
+     *
+     * @param data   Input bytes (uncompressed)
+     * @param offset Offset of the first byte to compress
+     * @param length Number of bytes to compress
+     * @return Compressed bytes
+     */
+    public byte[] gzip(@NonNull final byte[] data, final int offset, final int length) {
+        checkRange(data, offset, length);
+
+        final Deflater deflater = acquireDeflater();
+
+        try {
+            return GzipDeflater.compress(data, offset, length, deflater);
+        } finally {
+            release(deflater);
+        }
+    }
+
+    /**
+     * Decompress an array of compressed bytes. Concatenated gzip members are decompressed as one.
+     *
+     * @param compressed Input bytes (compressed)
+     * @return Decompressed bytes
+     * @throws IOException if the input is not valid gzip data
+     */
+    public byte[] gunzip(@NonNull final byte[] compressed) throws IOException {
+        return gunzip(compressed, 0, compressed.length);
+    }
+
+    /**
+     * Decompress a range of an array. Concatenated gzip members are decompressed as one.
+     *
+     * @param compressed Input bytes (compressed)
+     * @param offset     Offset of the compressed data
+     * @param length     Length of the compressed data
+     * @return Decompressed bytes
+     * @throws IOException if the input is not valid gzip data
+     */
+    public byte[] gunzip(@NonNull final byte[] compressed, final int offset, final int length) throws IOException {
+        checkRange(compressed, offset, length);
+
+        final Inflater inflater = acquireInflater();
+
+        try {
+            return new GzipInflater(compressed, offset, length, inflater)
+                    .inflateAll(GzipFormat.sizeHint(compressed, offset, length));
+        } finally {
+            release(inflater);
+        }
+    }
+
+    /**
+     * Compress a short message with a preset dictionary. See {@link Zipper#deflate(byte[], DeflateDictionary)}.
+     *
+     * @param string     Input string (uncompressed)
+     * @param dictionary Preset dictionary
+     * @return zlib stream referencing the dictionary
+     * @throws UnsupportedEncodingException if UTF-8 is not supported (never)
+     */
+    public byte[] deflate(@NonNull final String string, @NonNull final DeflateDictionary dictionary)
+            throws UnsupportedEncodingException {
+        final byte[] bytes = string.getBytes(Zipper.UTF8);
+        return deflate(bytes, 0, bytes.length, dictionary);
+    }
+
+    /**
+     * Compress a range of an array with a preset dictionary. See {@link Zipper#deflate(byte[], DeflateDictionary)}.
+     *
+     * @param data       Input bytes (uncompressed)
+     * @param offset     Offset of the first byte to compress
+     * @param length     Number of bytes to compress
+     * @param dictionary Preset dictionary
+     * @return zlib stream referencing the dictionary
+     */
+    public byte[] deflate(@NonNull final byte[] data, final int offset, final int length,
+                          @NonNull final DeflateDictionary dictionary) {
+        checkRange(data, offset, length);
+
+        final Deflater deflater = acquireDeflater();
+
+        try {
+            return dictionary.deflate(data, offset, length, deflater);
+        } finally {
+            release(deflater);
+        }
+    }
+
+    /**
+     * Decompress a message compressed with a preset dictionary. See
+     * {@link Zipper#inflate(byte[], DeflateDictionary...)}.
+     *
+     * @param compressed   zlib stream (compressed)
+     * @param dictionaries Candidate dictionaries
+     * @return Decompressed bytes
+     * @throws IOException if the input is corrupt or references none of the given dictionaries
+     */
+    public byte[] inflate(@NonNull final byte[] compressed, @NonNull final DeflateDictionary... dictionaries)
+            throws IOException {
+        return inflate(compressed, 0, compressed.length, dictionaries);
+    }
+
+    /**
+     * Decompress a range of an array compressed with a preset dictionary. See
+     * {@link Zipper#inflate(byte[], DeflateDictionary...)}.
+     *
+     * @param compressed   zlib stream (compressed)
+     * @param offset       Offset of the zlib stream
+     * @param length       Length of the zlib stream
+     * @param dictionaries Candidate dictionaries
+     * @return Decompressed bytes
+     * @throws IOException if the input is corrupt or references none of the given dictionaries
+     */
+    public byte[] inflate(@NonNull final byte[] compressed, final int offset, final int length,
+                          @NonNull final DeflateDictionary... dictionaries) throws IOException {
+        return inflate(compressed, offset, length, GzipSource.UNLIMITED, dictionaries);
+    }
+
+    /**
+     * Decompress a range of an array compressed with a preset dictionary, refusing to produce more than the given
+     * number of bytes. See {@link Zipper#inflate(byte[], long, DeflateDictionary...)}.
+     *
+     * @param compressed    zlib stream (compressed)
+     * @param offset        Offset of the zlib stream
+     * @param length        Length of the zlib stream
+     * @param maxOutputSize Maximum number of bytes to decompress
+     * @param dictionaries  Candidate dictionaries
+     * @return Decompressed bytes
+     * @throws IOException if the input is corrupt, references none of the given dictionaries or decompresses to more
+     *                     than <code>maxOutputSize</code> bytes
+     */
+    public byte[] inflate(@NonNull final byte[] compressed, final int offset, final int length,
+                          final long maxOutputSize, @NonNull final DeflateDictionary... dictionaries)
+            throws IOException {
+        checkRange(compressed, offset, length);
+
+        final Inflater inflater = acquireInflater();
+
+        try {
+            return DeflateDictionary.inflate(compressed, offset, length, maxOutputSize, inflater, dictionaries);
+        } finally {
+            release(inflater);
+        }
+    }
+
+    /**
+     * @return the number of idle engines currently held, of both kinds
+     */
+    public synchronized int idleCount() {
+        return deflaters.size() + inflaters.size();
+    }
+
+    /**
+     * Release all idle engines. Engines in use are released when returned. The pool cannot be used afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        for (final Deflater deflater : deflaters) {
+            deflater.end();
+        }
+
+        for (final Inflater inflater : inflaters) {
+            inflater.end();
+        }
+
+        deflaters.clear();
+        inflaters.clear();
+    }
+
+    private Deflater acquireDeflater() {
+        synchronized (this) {
+            ensureOpen();
+
+            final Deflater deflater = deflaters.pollFirst();
+
+            if (null != deflater) {
+                return deflater;
+            }
+        }
+
+        // don't hold the lock while allocating native memory
+        return options.newDeflater(true);
+    }
+
+    private Inflater acquireInflater() {
+        synchronized (this) {
+            ensureOpen();
+
+            final Inflater inflater = inflaters.pollFirst();
+
+            if (null != inflater) {
+                return inflater;
+            }
+        }
+
+        return new Inflater(true);
+    }
+
+    private void release(final Deflater deflater) {
+        deflater.reset();
+
+        synchronized (this) {
+            if (!closed && deflaters.size() < maxIdle) {
+                deflaters.addFirst(deflater);
+                return;
+            }
+        }
+
+        deflater.end();
+    }
+
+    private void release(final Inflater inflater) {
+        inflater.reset();
+
+        synchronized (this) {
+            if (!closed && inflaters.size() < maxIdle) {
+                inflaters.addFirst(inflater);
+                return;
+            }
+        }
+
+        inflater.end();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("pool is closed");
+        }
+    }
+
+    private static void checkRange(final byte[] data, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new ArrayIndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length "
+                    + data.length);
+        }
+    }
+}
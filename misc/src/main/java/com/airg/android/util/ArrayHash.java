@@ -18,13 +18,34 @@
 
 package com.airg.android.util;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.util.AbstractSet;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * An extension of the {@link HashMap} that also preservers the insertion order. This implementation allows for fast
- * random access to the data as well as sequential access via an internal {@link java.util.ArrayList}.
+ * random access to the data as well as sequential access in order. The order is kept in an internal doubly linked
+ * list, so adding or removing at either end and removing by key take constant time regardless of size. Positional
+ * access walks the list from the nearest known position, which makes sequential walks by index cheap.
+ * <p>
+ * For heavy positional use (e.g. backing a long list with inserts in the middle) create an instance with
+ * {@link #indexed()} instead: it keeps the order in an order statistic tree, making {@link #getAtIndex(int)},
+ * {@link #keyAtIndex(int)}, {@link #putAtIndex(int, Object, Object)}, {@link #removeAtIndex(int)} and
+ * {@link #indexOf(Object)} O(log n), at the price of O(log n) for the operations at either end as well.
+ * <p>
+ * {@link #removeValue(Object)} and {@link #keyOf(Object)} scan all pairs unless {@link #enableValueIndex()} was
+ * called, which keeps a reverse index from each value instance to its key at the cost of one more map entry per pair.
+ * The index follows every change of a value, including {@link #replace(Object, Object)}, {@link #replaceAll},
+ * <code>compute</code>, <code>merge</code> and {@link Map.Entry#setValue(Object)} on the {@link #entrySet()}.
  * As this structure is based on a {@link HashMap}, it only keeps unique data values.
  *
  * @param <KEY>   key type
@@ -37,7 +58,18 @@ public final class ArrayHash<KEY, VALUE> extends HashMap<KEY, VALUE> {
      * default generated serial
      */
     private static final long serialVersionUID = 1L;
-    private List<KEY> orderedKeys;
+
+    /**
+     * Serialized form: the keys in order as a {@link List}, readable by and from earlier versions
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("orderedKeys", List.class),
+            new ObjectStreamField("indexed", boolean.class),
+            new ObjectStreamField("valueIndexed", boolean.class)
+    };
+
+    private transient KeyOrder<KEY> orderedKeys;
+    private transient ValueIndex<KEY, VALUE> valueIndex;
 
     /**
      * *********************************************************************
@@ -45,32 +77,70 @@ public final class ArrayHash<KEY, VALUE> extends HashMap<KEY, VALUE> {
      */
     public ArrayHash() {
         super();
-        orderedKeys = new ArrayList<>();
+        orderedKeys = new LinkedKeyOrder<>(16);
     }
 
     public ArrayHash(final int capacity, final float loadFactor) {
         super(capacity, loadFactor);
-        orderedKeys = new ArrayList<>(capacity);
+        orderedKeys = new LinkedKeyOrder<>(capacity);
     }
 
     public ArrayHash(final int capacity) {
         super(capacity);
-        orderedKeys = new ArrayList<>(capacity);
+        orderedKeys = new LinkedKeyOrder<>(capacity);
+    }
+
+    private ArrayHash(final int capacity, final KeyOrder<KEY> orderedKeys) {
+        super(capacity);
+        this.orderedKeys = orderedKeys;
     }
 
     /**
      * *********************************************************************
-     * Copy constructor
+     * Create an ArrayHash whose positional operations all take O(log n) time
+     *
+     * @param <KEY>   key type
+     * @param <VALUE> value type
+     * @return an empty, indexed ArrayHash
+     */
+    public static <KEY, VALUE> ArrayHash<KEY, VALUE> indexed() {
+        return indexed(16);
+    }
+
+    /**
+     * *********************************************************************
+     * Create an ArrayHash whose positional operations all take O(log n) time
+     *
+     * @param capacity initial capacity
+     * @param <KEY>    key type
+     * @param <VALUE>  value type
+     * @return an empty, indexed ArrayHash
+     */
+    public static <KEY, VALUE> ArrayHash<KEY, VALUE> indexed(final int capacity) {
+        return new ArrayHash<>(capacity, new IndexedKeyOrder<KEY>(capacity));
+    }
+
+    /**
+     * *********************************************************************
+     * Copy constructor. The copy is {@link #indexed()} if the original is.
      *
      * @param original Original ArrayHash object to copy
      */
     public ArrayHash(final ArrayHash<KEY, VALUE> original) {
-        super(original);
+        super(original == null ? 16 : Math.max(16, (int) (original.size() / 0.75f) + 1));
 
         if (original == null) {
-            orderedKeys = new ArrayList<>();
+            orderedKeys = new LinkedKeyOrder<>(16);
         } else {
-            orderedKeys = new ArrayList<>(original.orderedKeys);
+            orderedKeys = original.orderedKeys.copy();
+
+            for (final Map.Entry<KEY, VALUE> entry : original.entrySet()) {
+                super.put(entry.getKey(), entry.getValue());
+            }
+
+            if (original.isValueIndexed()) {
+                enableValueIndex();
+            }
         }
     }
 
@@ -121,19 +191,172 @@ public final class ArrayHash<KEY, VALUE> extends HashMap<KEY, VALUE> {
             throw new NullPointerException("value");
         }
 
-        if (containsKey(key)) {
-            orderedKeys.remove(key);
-            remove(key);
+        if (orderedKeys.remove(key)) {
+            removeMapping(key);
         }
 
-        super.put(key, value);
+        putMapping(key, value);
 
         if (head) {
-            orderedKeys.add(0, key);
+            orderedKeys.addFirst(key);
         } else {
-            final int size = orderedKeys.size();
-            orderedKeys.add(size, key);
+            orderedKeys.addLast(key);
+        }
+    }
+
+    /**
+     * Put all pairs of a map at the end of this data structure, in the map's iteration order
+     *
+     * @param map pairs to put
+     * @throws NullPointerException if any key or value is null
+     */
+    @Override
+    public void putAll(final Map<? extends KEY, ? extends VALUE> map) {
+        for (final Map.Entry<? extends KEY, ? extends VALUE> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Put a pair at the end of this data structure unless the key is already present
+     *
+     * @param key   Key
+     * @param value Value
+     * @return the current value of the key, or <code>null</code> if the pair was added
+     * @throws NullPointerException if the key or value is null
+     */
+    @Override
+    public VALUE putIfAbsent(final KEY key, final VALUE value) {
+        final VALUE current = get(key);
+
+        if (null == current) {
+            put(key, value);
+        }
+
+        return current;
+    }
+
+    /**
+     * Replace the value of a key, keeping its position
+     *
+     * @param key   Key
+     * @param value New value
+     * @return the previous value or <code>null</code> if the key is not present, in which case nothing changes
+     * @throws NullPointerException if the value is null
+     */
+    @Override
+    public VALUE replace(final KEY key, final VALUE value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+
+        return containsKey(key) ? replaceMapping(key, value) : null;
+    }
+
+    /**
+     * Replace the value of a key if it currently holds an equal value, keeping its position
+     *
+     * @param key      Key
+     * @param oldValue Expected value
+     * @param newValue New value
+     * @return <code>true</code> if the value was replaced
+     * @throws NullPointerException if the new value is null
+     */
+    @Override
+    public boolean replace(final KEY key, final VALUE oldValue, final VALUE newValue) {
+        if (newValue == null) {
+            throw new NullPointerException("value");
+        }
+
+        final VALUE current = get(key);
+
+        if (null == current || !current.equals(oldValue)) {
+            return false;
+        }
+
+        replaceMapping(key, newValue);
+        return true;
+    }
+
+    /**
+     * Replace every value, in order, keeping the order
+     *
+     * @param function Function of a key and its value to the new value
+     * @throws NullPointerException if the function returns null
+     */
+    @Override
+    public void replaceAll(final BiFunction<? super KEY, ? super VALUE, ? extends VALUE> function) {
+        for (int i = 0; i < orderedKeys.size(); i++) {
+            final KEY key = orderedKeys.get(i);
+            final VALUE value = function.apply(key, get(key));
+
+            if (value == null) {
+                throw new NullPointerException("value");
+            }
+
+            replaceMapping(key, value);
+        }
+    }
+
+    /**
+     * Compute a new value for a key. A new key goes at the end; an existing one keeps its position, or is removed if
+     * the function returns <code>null</code>.
+     *
+     * @param key      Key
+     * @param function Function of the key and its current value, or <code>null</code>, to the new value
+     * @return the new value or <code>null</code> if there is none
+     */
+    @Override
+    public VALUE compute(final KEY key, final BiFunction<? super KEY, ? super VALUE, ? extends VALUE> function) {
+        return update(key, function.apply(key, get(key)));
+    }
+
+    /**
+     * Compute a value for a key that is not present, adding it at the end. See {@link #compute(Object, BiFunction)}.
+     *
+     * @param key      Key
+     * @param function Function of the key to its value
+     * @return the current or the new value, or <code>null</code> if there is none
+     */
+    @Override
+    public VALUE computeIfAbsent(final KEY key, final Function<? super KEY, ? extends VALUE> function) {
+        final VALUE current = get(key);
+        return null != current ? current : update(key, function.apply(key));
+    }
+
+    /**
+     * Compute a new value for a key that is present. See {@link #compute(Object, BiFunction)}.
+     *
+     * @param key      Key
+     * @param function Function of the key and its current value to the new value
+     * @return the new value or <code>null</code> if there is none
+     */
+    @Override
+    public VALUE computeIfPresent(final KEY key,
+                                  final BiFunction<? super KEY, ? super VALUE, ? extends VALUE> function) {
+        final VALUE current = get(key);
+        return null == current ? null : update(key, function.apply(key, current));
+    }
+
+    /**
+     * Add a value for a key that is not present, or combine it with the current one. See
+     * {@link #compute(Object, BiFunction)}.
+     *
+     * @param key      Key
+     * @param value    Value to add or to combine with the current one
+     * @param function Function of the current value and <code>value</code> to the new value
+     * @return the new value or <code>null</code> if there is none
+     * @throws NullPointerException if the value is null
+     */
+    @Override
+    public VALUE merge(final KEY key, final VALUE value,
+                       final BiFunction<? super VALUE, ? super VALUE, ? extends VALUE> function) {
+        if (value == null) {
+            throw new NullPointerException("value");
         }
+
+        final VALUE current = get(key);
+        return update(key, null == current ? value : function.apply(current, value));
     }
 
     /**
@@ -158,12 +381,17 @@ public final class ArrayHash<KEY, VALUE> extends HashMap<KEY, VALUE> {
         }
 
         if (containsKey(key)) {
+            if (idx == size()) {
+                throw new IndexOutOfBoundsException("Index " + idx + " is beyond the bounds of this array once " +
+                        key + " moves. Size: " + size());
+            }
+
             orderedKeys.remove(key);
-            remove(key);
+            removeMapping(key);
         }
 
-        super.put(key, value);
         orderedKeys.add(idx, key);
+        putMapping(key, value);
     }
 
     /**
@@ -190,10 +418,10 @@ public final class ArrayHash<KEY, VALUE> extends HashMap<KEY, VALUE> {
      */
     @Override
     public VALUE remove(final Object key) {
-        if (containsKey(key)) {
-            VALUE value = super.remove(key);
-            orderedKeys.remove(key);
-            return value;
+        if (orderedKeys.remove(key)) {
+            @SuppressWarnings("unchecked")
+            final KEY present = (KEY) key;
+            return removeMapping(present);
         }
 
         return null;
@@ -202,28 +430,39 @@ public final class ArrayHash<KEY, VALUE> extends HashMap<KEY, VALUE> {
     /**
      * ***************************************************************************
      * Remove a value. All (key, value) pairs for this value will be removed.
+     * With {@link #enableValueIndex()} a pair holding this very instance is found in constant time, and values are
+     * compared by identity only: an equal but distinct value is not found.
      *
      * @param value value to remove
      * @return The removed value
      */
     public boolean removeValue(final VALUE value) {
-        if (!containsValue(value)) {
-            return false;
+        if (null != valueIndex) {
+            final KEY key = valueIndex.keyOf(value);
+
+            if (null == key) {
+                return false;
+            }
+
+            remove(key);
+            return true;
         }
 
-        KEY removeKey = null;
+        boolean found = false;
 
-        for (final KEY key : keySet()) {
-            if (get(key) == value) {
-                removeKey = key;
-                break;
+        // a single pass: the first pair holding this very instance goes, but an equal value is enough to report true
+        for (final Map.Entry<KEY, VALUE> entry : entrySet()) {
+            final VALUE candidate = entry.getValue();
+
+            if (candidate == value) {
+                remove(entry.getKey());
+                return true;
             }
-        }
 
-        super.remove(removeKey);
-        orderedKeys.remove(removeKey);
+            found = found || (null != candidate && candidate.equals(value));
+        }
 
-        return true;
+        return found;
     }
 
     /**
@@ -234,7 +473,7 @@ public final class ArrayHash<KEY, VALUE> extends HashMap<KEY, VALUE> {
      */
     public VALUE removeHead() {
         if (orderedKeys.size() > 0) {
-            return super.remove(orderedKeys.remove(0));
+            return removeMapping(orderedKeys.removeFirst());
         }
 
         return null;
@@ -249,7 +488,7 @@ public final class ArrayHash<KEY, VALUE> extends HashMap<KEY, VALUE> {
      */
     public VALUE removeAtIndex(final int position) {
         if ((position >= 0) && (position < orderedKeys.size())) {
-            return super.remove(orderedKeys.remove(position));
+            return removeMapping(orderedKeys.remove(position));
         }
 
         return null;
@@ -262,6 +501,10 @@ public final class ArrayHash<KEY, VALUE> extends HashMap<KEY, VALUE> {
     public void clear() {
         super.clear();
         orderedKeys.clear();
+
+        if (null != valueIndex) {
+            valueIndex.clear();
+        }
     }
 
     /**
@@ -288,11 +531,259 @@ public final class ArrayHash<KEY, VALUE> extends HashMap<KEY, VALUE> {
         return orderedKeys.indexOf(key);
     }
 
+    /**
+     * ******************************************************************************
+     * Find the key of a value instance. Values are compared by identity, not by
+     * {@link Object#equals(Object)}.
+     *
+     * @param value value to look for
+     * @return a key holding this very instance or <code>null</code> if none does. Constant time with
+     * {@link #enableValueIndex()}, a scan of all pairs otherwise.
+     */
+    public KEY keyOf(final VALUE value) {
+        if (null != valueIndex) {
+            return valueIndex.keyOf(value);
+        }
+
+        for (final Map.Entry<KEY, VALUE> entry : entrySet()) {
+            if (entry.getValue() == value) {
+                return entry.getKey();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * ******************************************************************************
+     * Keep a reverse index from value instances to keys, so {@link #keyOf(Object)} and
+     * {@link #removeValue(Object)} no longer scan all pairs. From then on {@link #removeValue(Object)} compares
+     * values by identity, like {@link #keyOf(Object)}. The index is kept for the lifetime of this ArrayHash and
+     * carried over to copies.
+     */
+    public void enableValueIndex() {
+        if (null != valueIndex) {
+            return;
+        }
+
+        valueIndex = new ValueIndex<>(Math.max(16, size()));
+
+        for (final Map.Entry<KEY, VALUE> entry : entrySet()) {
+            valueIndex.add(entry.getValue(), entry.getKey());
+        }
+    }
+
+    /**
+     * @return <code>true</code> if {@link #enableValueIndex()} was called
+     */
+    public boolean isValueIndexed() {
+        return null != valueIndex;
+    }
+
+    /**
+     * @return <code>true</code> if this ArrayHash was created by {@link #indexed()}
+     */
+    public boolean isIndexed() {
+        return orderedKeys instanceof IndexedKeyOrder;
+    }
+
     public KEY keyAtIndex(final int index) {
         return orderedKeys.get(index);
     }
 
     public List<KEY> getOrderedKeys() {
-        return new ArrayList<>(orderedKeys);
+        return orderedKeys.toList();
+    }
+
+    /**
+     * ******************************************************************************
+     * Shallow copy: keys and values are not cloned, but the copy keeps its own order
+     *
+     * @return a copy of this ArrayHash
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public ArrayHash<KEY, VALUE> clone() {
+        final ArrayHash<KEY, VALUE> copy = (ArrayHash<KEY, VALUE>) super.clone();
+        copy.orderedKeys = orderedKeys.copy();
+
+        if (null != valueIndex) {
+            copy.valueIndex = null;
+            copy.enableValueIndex();
+        }
+
+        return copy;
+    }
+
+    /**
+     * With {@link #enableValueIndex()}, setting the value of an entry or removing one through the iterator keeps the
+     * index in sync
+     */
+    @Override
+    public Set<Map.Entry<KEY, VALUE>> entrySet() {
+        final Set<Map.Entry<KEY, VALUE>> entries = super.entrySet();
+        return null == valueIndex ? entries : new IndexedEntrySet(entries);
+    }
+
+    private void putMapping(final KEY key, final VALUE value) {
+        super.put(key, value);
+
+        if (null != valueIndex) {
+            valueIndex.add(value, key);
+        }
+    }
+
+    private VALUE replaceMapping(final KEY key, final VALUE value) {
+        final VALUE previous = super.put(key, value);
+
+        if (null != valueIndex) {
+            valueIndex.remove(previous, key);
+            valueIndex.add(value, key);
+        }
+
+        return previous;
+    }
+
+    /**
+     * Set, add or (for a <code>null</code> value) remove the value of a key, keeping the position of an existing key
+     */
+    private VALUE update(final KEY key, final VALUE value) {
+        if (null == value) {
+            remove(key);
+        } else if (containsKey(key)) {
+            replaceMapping(key, value);
+        } else {
+            put(key, value);
+        }
+
+        return value;
+    }
+
+    private VALUE removeMapping(final KEY key) {
+        final VALUE value = super.remove(key);
+
+        if (null != valueIndex) {
+            valueIndex.remove(value, key);
+        }
+
+        return value;
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        final ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("orderedKeys", orderedKeys.toList());
+        fields.put("indexed", orderedKeys instanceof IndexedKeyOrder);
+        fields.put("valueIndexed", null != valueIndex);
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        final ObjectInputStream.GetField fields = in.readFields();
+        final List<KEY> keys = (List<KEY>) fields.get("orderedKeys", null);
+        final int capacity = null == keys ? 16 : keys.size();
+
+        orderedKeys = fields.get("indexed", false) ? new IndexedKeyOrder<KEY>(capacity)
+                : new LinkedKeyOrder<KEY>(capacity);
+
+        if (null != keys) {
+            for (final KEY key : keys) {
+                orderedKeys.addLast(key);
+            }
+        }
+
+        if (fields.get("valueIndexed", false)) {
+            enableValueIndex();
+        }
+    }
+
+    private final class IndexedEntrySet extends AbstractSet<Map.Entry<KEY, VALUE>> {
+        private final Set<Map.Entry<KEY, VALUE>> entries;
+
+        IndexedEntrySet(final Set<Map.Entry<KEY, VALUE>> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return entries.contains(o);
+        }
+
+        @Override
+        public Iterator<Map.Entry<KEY, VALUE>> iterator() {
+            final Iterator<Map.Entry<KEY, VALUE>> iterator = entries.iterator();
+
+            return new Iterator<Map.Entry<KEY, VALUE>>() {
+                private Map.Entry<KEY, VALUE> current;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Map.Entry<KEY, VALUE> next() {
+                    current = iterator.next();
+                    return new IndexedEntry(current);
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                    orderedKeys.remove(current.getKey());
+                    valueIndex.remove(current.getValue(), current.getKey());
+                }
+            };
+        }
+    }
+
+    private final class IndexedEntry implements Map.Entry<KEY, VALUE> {
+        private final Map.Entry<KEY, VALUE> entry;
+
+        IndexedEntry(final Map.Entry<KEY, VALUE> entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public KEY getKey() {
+            return entry.getKey();
+        }
+
+        @Override
+        public VALUE getValue() {
+            return entry.getValue();
+        }
+
+        @Override
+        public VALUE setValue(final VALUE value) {
+            if (value == null) {
+                throw new NullPointerException("value");
+            }
+
+            final VALUE previous = entry.setValue(value);
+            valueIndex.remove(previous, entry.getKey());
+            valueIndex.add(value, entry.getKey());
+            return previous;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return entry.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return entry.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return entry.toString();
+        }
     }
 }
@@ -0,0 +1,566 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.util;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A bounded cache kept in {@link ArrayHash} order. Once there are more entries than the maximum size, or their total
+ * weight exceeds the maximum weight, the coldest entries are evicted and handed to an optional
+ * {@link EvictionListener}. Every operation takes constant time.
+ * <ul>
+ * <li>{@link Policy#LRU}: a {@link #get(Object)} or {@link #put(Object, Object)} moves the entry to the end of a
+ * single ArrayHash, and eviction takes its head: the least recently used entry goes first.</li>
+ * <li>{@link Policy#LFU}: entries are grouped in one ArrayHash per use count, each ordered by recency, and using an
+ * entry moves it to the next group. The least frequently used entry goes first, the least recently used one among
+ * equals.</li>
+ * </ul>
+ * Hits, misses and evictions are counted. Caches are thread safe; listeners are called after the lock is released.
+ * <pre>
+ * final ArrayHashCache&lt;String, Bitmap&gt; thumbnails = ArrayHashCache.&lt;String, Bitmap&gt;builder()
+ *         .maxWeight(4 * 1024 * 1024, bitmapWeigher)
+ *         .build();
+ * </pre>
+ *
+ * @param <KEY>   key type
+ * @param <VALUE> value type
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class ArrayHashCache<KEY, VALUE> {
+    private final Policy policy;
+    private final int maxSize;
+    private final long maxWeight;
+    private final Weigher<? super KEY, ? super VALUE> weigher;
+    private final EvictionListener<? super KEY, ? super VALUE> listener;
+
+    // entries by key, only needed to find an entry's group with LFU; with LRU the single group is looked up directly
+    private final HashMap<KEY, Entry<KEY, VALUE>> entries;
+
+    // groups by ascending use count; the coldest is the first. With LRU there is exactly one, never unlinked.
+    private Group<KEY, VALUE> coldest;
+
+    private int size;
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Eviction policy
+     */
+    public enum Policy {
+        /**
+         * Evict the least recently used entry
+         */
+        LRU,
+
+        /**
+         * Evict the least frequently used entry, the least recently used one among equally used entries
+         */
+        LFU
+    }
+
+    /**
+     * Computes the weight of an entry, e.g. its size in bytes. The weight of an entry is taken when it is put.
+     */
+    public interface Weigher<KEY, VALUE> {
+        /**
+         * @param key   key
+         * @param value value
+         * @return weight, not negative
+         */
+        int weigh(@NonNull KEY key, @NonNull VALUE value);
+    }
+
+    /**
+     * Receives entries evicted to respect the bounds. Entries removed or replaced explicitly are not reported.
+     */
+    public interface EvictionListener<KEY, VALUE> {
+        /**
+         * @param key   key of the evicted entry
+         * @param value value of the evicted entry
+         */
+        void onEvicted(@NonNull KEY key, @NonNull VALUE value);
+    }
+
+    /**
+     * Create a least recently used cache bounded by entry count
+     *
+     * @param maxSize maximum number of entries
+     */
+    public ArrayHashCache(final int maxSize) {
+        this(ArrayHashCache.<KEY, VALUE>builder().maxSize(maxSize));
+    }
+
+    private ArrayHashCache(final Builder<KEY, VALUE> builder) {
+        policy = builder.policy;
+        maxSize = builder.maxSize;
+        maxWeight = builder.maxWeight;
+        weigher = builder.weigher;
+        listener = builder.listener;
+        entries = policy == Policy.LFU ? new HashMap<KEY, Entry<KEY, VALUE>>() : null;
+        coldest = policy == Policy.LFU ? null : new Group<KEY, VALUE>(1);
+    }
+
+    /**
+     * @param <KEY>   key type
+     * @param <VALUE> value type
+     * @return a new builder
+     */
+    @NonNull
+    public static <KEY, VALUE> Builder<KEY, VALUE> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Get a value and count the use of its entry
+     *
+     * @param key key
+     * @return value or <code>null</code> if absent
+     */
+    public synchronized VALUE get(final KEY key) {
+        final Entry<KEY, VALUE> entry = find(key);
+
+        if (null == entry) {
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        touch(key, entry);
+        return entry.value;
+    }
+
+    /**
+     * Get a value without counting a use, a hit or a miss
+     *
+     * @param key key
+     * @return value or <code>null</code> if absent
+     */
+    public synchronized VALUE peek(final KEY key) {
+        final Entry<KEY, VALUE> entry = find(key);
+        return null == entry ? null : entry.value;
+    }
+
+    /**
+     * @param key key
+     * @return <code>true</code> if the key is cached
+     */
+    public synchronized boolean containsKey(final KEY key) {
+        return null != find(key);
+    }
+
+    /**
+     * Put a value, counting a use of the key if it is already cached. A new entry first evicts as many entries as
+     * needed to fit; it is never chosen for eviction itself. A value heavier than the maximum weight on its own is not
+     * stored: any cached value of the key is removed, the new one is reported as evicted right away and the other
+     * entries stay.
+     *
+     * @param key   key
+     * @param value value
+     * @return previous value or <code>null</code> if none
+     * @throws NullPointerException if the key or value is null
+     */
+    public VALUE put(final KEY key, final VALUE value) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+
+        final VALUE previous;
+        final List<Object> evicted;
+
+        synchronized (this) {
+            final int entryWeight = weigh(key, value);
+            final Entry<KEY, VALUE> entry = find(key);
+
+            if (entryWeight > maxWeight) {
+                // too heavy to ever fit: evicting the rest of the cache for it would be pointless
+                if (null == entry) {
+                    previous = null;
+                } else {
+                    previous = entry.value;
+                    unlink(key, entry);
+                }
+
+                evictionCount++;
+                evicted = null == listener ? null : Arrays.<Object>asList(key, value);
+            } else if (null == entry) {
+                // make room first: with LFU the newcomer would otherwise be the coldest entry
+                final List<Object> room = trim(1, entryWeight, null);
+                add(key, new Entry<KEY, VALUE>(value, entryWeight));
+                evicted = trim(0, 0, room);
+                previous = null;
+            } else {
+                previous = entry.value;
+                weight += entryWeight - entry.weight;
+                entry.value = value;
+                entry.weight = entryWeight;
+                touch(key, entry);
+                evicted = trim(0, 0, null);
+            }
+        }
+
+        notifyEvicted(evicted);
+        return previous;
+    }
+
+    /**
+     * Remove an entry. The eviction listener is not called.
+     *
+     * @param key key
+     * @return removed value or <code>null</code> if absent
+     */
+    public synchronized VALUE remove(final KEY key) {
+        final Entry<KEY, VALUE> entry = find(key);
+
+        if (null == entry) {
+            return null;
+        }
+
+        unlink(key, entry);
+        return entry.value;
+    }
+
+    /**
+     * Remove all entries. The eviction listener is not called and the counters are kept.
+     */
+    public synchronized void clear() {
+        if (null == entries) {
+            coldest.entries.clear();
+        } else {
+            entries.clear();
+            coldest = null;
+        }
+
+        size = 0;
+        weight = 0;
+    }
+
+    /**
+     * @return keys in eviction order, the coldest first
+     */
+    public synchronized List<KEY> keys() {
+        final List<KEY> keys = new ArrayList<>(size);
+
+        for (Group<KEY, VALUE> group = coldest; null != group; group = group.next) {
+            keys.addAll(group.entries.getOrderedKeys());
+        }
+
+        return keys;
+    }
+
+    /**
+     * @return eviction policy
+     */
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return number of entries
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return total weight of all entries, or the number of entries if there is no weigher
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return number of {@link #get(Object)} calls that found a value
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of {@link #get(Object)} calls that did not find a value
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of entries evicted to respect the bounds
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        final long gets = hitCount + missCount;
+        return "ArrayHashCache[" + policy + ", size=" + size + "/" + maxSize + ", weight=" + weight + "/" + maxWeight
+                + ", hits=" + hitCount + ", misses=" + missCount + ", hitRate=" + (gets == 0 ? 0 : 100 * hitCount
+                / gets) + "%, evictions=" + evictionCount + "]";
+    }
+
+    private Entry<KEY, VALUE> find(final KEY key) {
+        return null == entries ? coldest.entries.get(key) : entries.get(key);
+    }
+
+    private int weigh(final KEY key, final VALUE value) {
+        if (null == weigher) {
+            return 1;
+        }
+
+        final int entryWeight = weigher.weigh(key, value);
+
+        if (entryWeight < 0) {
+            throw new IllegalStateException("negative weight " + entryWeight + " for " + key);
+        }
+
+        return entryWeight;
+    }
+
+    private void add(final KEY key, final Entry<KEY, VALUE> entry) {
+        if (null != entries) {
+            entries.put(key, entry);
+
+            if (null == coldest || coldest.count != 1) {
+                final Group<KEY, VALUE> first = new Group<>(1);
+                first.next = coldest;
+
+                if (null != coldest) {
+                    coldest.prev = first;
+                }
+
+                coldest = first;
+            }
+        }
+
+        entry.group = coldest;
+        coldest.entries.put(key, entry);
+        size++;
+        weight += entry.weight;
+    }
+
+    /**
+     * Count a use of an entry: move it to the end of its group (LRU) or to the end of the next group (LFU)
+     */
+    private void touch(final KEY key, final Entry<KEY, VALUE> entry) {
+        final Group<KEY, VALUE> from = entry.group;
+
+        if (null == entries) {
+            from.entries.put(key, entry);
+            return;
+        }
+
+        Group<KEY, VALUE> to = from.next;
+
+        if (null == to || to.count != from.count + 1) {
+            to = new Group<>(from.count + 1);
+            to.prev = from;
+            to.next = from.next;
+
+            if (null != from.next) {
+                from.next.prev = to;
+            }
+
+            from.next = to;
+        }
+
+        from.entries.remove(key);
+        to.entries.put(key, entry);
+        entry.group = to;
+        unlinkIfEmpty(from);
+    }
+
+    private void unlink(final KEY key, final Entry<KEY, VALUE> entry) {
+        entry.group.entries.remove(key);
+
+        if (null != entries) {
+            entries.remove(key);
+            unlinkIfEmpty(entry.group);
+        }
+
+        size--;
+        weight -= entry.weight;
+    }
+
+    private void unlinkIfEmpty(final Group<KEY, VALUE> group) {
+        if (!group.entries.isEmpty()) {
+            return;
+        }
+
+        if (null == group.prev) {
+            coldest = group.next;
+        } else {
+            group.prev.next = group.next;
+        }
+
+        if (null != group.next) {
+            group.next.prev = group.prev;
+        }
+    }
+
+    /**
+     * Evict the coldest entries until within bounds
+     *
+     * @param extraSize   number of entries to make room for
+     * @param extraWeight weight to make room for
+     * @param evicted     list to add evicted entries to or <code>null</code>
+     * @return evicted keys and values, alternating, or <code>null</code> if none
+     */
+    private List<Object> trim(final int extraSize, final long extraWeight, List<Object> evicted) {
+        while (size > 0 && (size + extraSize > maxSize || weight + extraWeight > maxWeight)) {
+            final Group<KEY, VALUE> group = coldest;
+            final KEY key = group.entries.keyAtIndex(0);
+            final Entry<KEY, VALUE> entry = group.entries.getAtIndex(0);
+
+            unlink(key, entry);
+            evictionCount++;
+
+            if (null != listener) {
+                if (null == evicted) {
+                    evicted = new ArrayList<>();
+                }
+
+                evicted.add(key);
+                evicted.add(entry.value);
+            }
+        }
+
+        return evicted;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void notifyEvicted(final List<Object> evicted) {
+        if (null == evicted) {
+            return;
+        }
+
+        for (int i = 0; i < evicted.size(); i += 2) {
+            listener.onEvicted((KEY) evicted.get(i), (VALUE) evicted.get(i + 1));
+        }
+    }
+
+    /**
+     * Builds caches. At least one bound is required.
+     */
+    public static final class Builder<KEY, VALUE> {
+        private Policy policy = Policy.LRU;
+        private int maxSize = Integer.MAX_VALUE;
+        private long maxWeight = Long.MAX_VALUE;
+        private Weigher<? super KEY, ? super VALUE> weigher;
+        private EvictionListener<? super KEY, ? super VALUE> listener;
+
+        private Builder() {
+        }
+
+        /**
+         * @param policy eviction policy, {@link Policy#LRU} by default
+         * @return this builder
+         */
+        @NonNull
+        public Builder<KEY, VALUE> policy(@NonNull final Policy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        /**
+         * @param maxSize maximum number of entries
+         * @return this builder
+         */
+        @NonNull
+        public Builder<KEY, VALUE> maxSize(final int maxSize) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException("max size must be positive: " + maxSize);
+            }
+
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * @param maxWeight maximum total weight of all entries
+         * @param weigher   computes the weight of each entry
+         * @return this builder
+         */
+        @NonNull
+        public Builder<KEY, VALUE> maxWeight(final long maxWeight,
+                                             @NonNull final Weigher<? super KEY, ? super VALUE> weigher) {
+            if (maxWeight < 0) {
+                throw new IllegalArgumentException("max weight cannot be negative: " + maxWeight);
+            }
+
+            this.maxWeight = maxWeight;
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * @param listener receives evicted entries
+         * @return this builder
+         */
+        @NonNull
+        public Builder<KEY, VALUE> listener(@NonNull final EvictionListener<? super KEY, ? super VALUE> listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * @return a new, empty cache
+         * @throws IllegalStateException if neither a maximum size nor a maximum weight was set
+         */
+        @NonNull
+        public ArrayHashCache<KEY, VALUE> build() {
+            if (maxSize == Integer.MAX_VALUE && null == weigher) {
+                throw new IllegalStateException("cache needs a max size or a max weight");
+            }
+
+            return new ArrayHashCache<>(this);
+        }
+    }
+
+    private static final class Group<KEY, VALUE> {
+        final long count;
+        final ArrayHash<KEY, Entry<KEY, VALUE>> entries = new ArrayHash<>();
+        Group<KEY, VALUE> prev;
+        Group<KEY, VALUE> next;
+
+        Group(final long count) {
+            this.count = count;
+        }
+    }
+
+    private static final class Entry<KEY, VALUE> {
+        VALUE value;
+        int weight;
+        Group<KEY, VALUE> group;
+
+        Entry(final VALUE value, final int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
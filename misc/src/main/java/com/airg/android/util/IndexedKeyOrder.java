@@ -0,0 +1,298 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * {@link KeyOrder} on an order statistic tree: a treap ordered by position, with subtree sizes, and nodes found by key
+ * through a hash map. Every operation, positional or not, takes O(log n) expected time. {@link #indexOf(Object)}
+ * finds the node by key and sums subtree sizes on the way up to the root.
+ *
+ * @param <KEY> key type
+ */
+final class IndexedKeyOrder<KEY> implements KeyOrder<KEY> {
+    private final HashMap<KEY, Node<KEY>> nodes;
+    private Node<KEY> root;
+    private int seed = 0x2545f491;
+
+    // results of split()
+    private Node<KEY> splitLeft;
+    private Node<KEY> splitRight;
+
+    IndexedKeyOrder(final int capacity) {
+        nodes = new HashMap<>(capacity);
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public void addFirst(final KEY key) {
+        add(0, key);
+    }
+
+    @Override
+    public void addLast(final KEY key) {
+        add(size(), key);
+    }
+
+    @Override
+    public void add(final int index, final KEY key) {
+        final int size = size();
+
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        final Node<KEY> node = new Node<>(key, nextPriority());
+        nodes.put(key, node);
+
+        split(root, index);
+        final Node<KEY> right = splitRight;
+        root = merge(merge(splitLeft, node), right);
+        root.parent = null;
+    }
+
+    @Override
+    public boolean remove(final Object key) {
+        final Node<KEY> node = nodes.remove(key);
+
+        if (null == node) {
+            return false;
+        }
+
+        unlink(node);
+        return true;
+    }
+
+    @Override
+    public KEY removeFirst() {
+        return null == root ? null : remove(0);
+    }
+
+    @Override
+    public KEY remove(final int index) {
+        final Node<KEY> node = node(index);
+        nodes.remove(node.key);
+        unlink(node);
+        return node.key;
+    }
+
+    @Override
+    public KEY get(final int index) {
+        return node(index).key;
+    }
+
+    @Override
+    public int indexOf(final Object key) {
+        Node<KEY> node = nodes.get(key);
+
+        if (null == node) {
+            return -1;
+        }
+
+        int index = size(node.left);
+
+        for (; null != node.parent; node = node.parent) {
+            if (node == node.parent.right) {
+                index += size(node.parent.left) + 1;
+            }
+        }
+
+        return index;
+    }
+
+    @Override
+    public void clear() {
+        nodes.clear();
+        root = null;
+    }
+
+    @Override
+    public List<KEY> toList() {
+        final List<KEY> keys = new ArrayList<>(size());
+        final ArrayDeque<Node<KEY>> stack = new ArrayDeque<>();
+        Node<KEY> node = root;
+
+        while (null != node || !stack.isEmpty()) {
+            for (; null != node; node = node.left) {
+                stack.push(node);
+            }
+
+            node = stack.pop();
+            keys.add(node.key);
+            node = node.right;
+        }
+
+        return keys;
+    }
+
+    @Override
+    public KeyOrder<KEY> copy() {
+        final IndexedKeyOrder<KEY> copy = new IndexedKeyOrder<>(size());
+
+        for (final KEY key : toList()) {
+            copy.addLast(key);
+        }
+
+        return copy;
+    }
+
+    private Node<KEY> node(final int index) {
+        final int size = size();
+
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        Node<KEY> node = root;
+        int position = index;
+
+        while (true) {
+            final int left = size(node.left);
+
+            if (position < left) {
+                node = node.left;
+            } else if (position == left) {
+                return node;
+            } else {
+                position -= left + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Take a node out of the tree: its children take its place and every ancestor shrinks by one
+     */
+    private void unlink(final Node<KEY> node) {
+        final Node<KEY> replacement = merge(node.left, node.right);
+        Node<KEY> parent = node.parent;
+
+        if (null != replacement) {
+            replacement.parent = parent;
+        }
+
+        if (null == parent) {
+            root = replacement;
+        } else if (parent.left == node) {
+            parent.left = replacement;
+        } else {
+            parent.right = replacement;
+        }
+
+        for (; null != parent; parent = parent.parent) {
+            parent.size--;
+        }
+
+        node.left = node.right = node.parent = null;
+    }
+
+    /**
+     * Split a subtree into its first <code>count</code> nodes ({@link #splitLeft}) and the rest ({@link #splitRight})
+     */
+    private void split(final Node<KEY> tree, final int count) {
+        if (null == tree) {
+            splitLeft = splitRight = null;
+            return;
+        }
+
+        if (size(tree.left) >= count) {
+            split(tree.left, count);
+            tree.left = splitRight;
+            setParent(tree.left, tree);
+            update(tree);
+            splitRight = tree;
+        } else {
+            split(tree.right, count - size(tree.left) - 1);
+            tree.right = splitLeft;
+            setParent(tree.right, tree);
+            update(tree);
+            splitLeft = tree;
+        }
+    }
+
+    /**
+     * Join two subtrees, all of <code>left</code> coming before all of <code>right</code>
+     */
+    private Node<KEY> merge(final Node<KEY> left, final Node<KEY> right) {
+        if (null == left) {
+            return right;
+        }
+
+        if (null == right) {
+            return left;
+        }
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.right.parent = left;
+            update(left);
+            return left;
+        }
+
+        right.left = merge(left, right.left);
+        right.left.parent = right;
+        update(right);
+        return right;
+    }
+
+    private int nextPriority() {
+        // xorshift: cheap and good enough to keep the tree balanced
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    private static void update(final Node<?> node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private static <KEY> void setParent(final Node<KEY> node, final Node<KEY> parent) {
+        if (null != node) {
+            node.parent = parent;
+        }
+    }
+
+    private static int size(final Node<?> node) {
+        return null == node ? 0 : node.size;
+    }
+
+    private static final class Node<KEY> {
+        final KEY key;
+        final int priority;
+        int size = 1;
+        Node<KEY> left;
+        Node<KEY> right;
+        Node<KEY> parent;
+
+        Node(final KEY key, final int priority) {
+            this.key = key;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,628 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * An {@link ArrayHash}-like map for <code>int</code> keys. It is not a {@link java.util.Map}. Keys are stored unboxed
+ * in an open addressing hash table, and the order is kept in parallel arrays of links between entries, so each entry
+ * costs a few array slots instead of a boxed key, a map node and a list node, and lookups never box. Like
+ * {@link ArrayHash}, adding or removing at either end and removing by key take constant time; positional access walks
+ * the order from the nearest known position.
+ * <p>
+ * Null values are not allowed; {@link #get(int)} returns <code>null</code> for a missing key.
+ *
+ * @param <VALUE> value type
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class IntArrayHash<VALUE> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int NONE = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // entries: key, value and links to the previous and next entry in order. Free entries are chained through next.
+    private transient int[] keys;
+    private transient Object[] values;
+    private transient int[] prev;
+    private transient int[] next;
+    private transient int used;
+    private transient int free;
+    private transient int head;
+    private transient int tail;
+    private transient int size;
+
+    // hash table of entry index + 1, 0 for an empty slot; linear probing
+    private transient int[] table;
+    private transient int mask;
+
+    // last position accessed; dropped whenever positions may have shifted
+    private transient int cursor;
+    private transient int cursorIndex;
+
+    public IntArrayHash() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of entries to make room for
+     */
+    public IntArrayHash(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity cannot be negative: " + capacity);
+        }
+
+        init(capacity);
+    }
+
+    /**
+     * Copy constructor
+     *
+     * @param original original to copy
+     */
+    public IntArrayHash(final IntArrayHash<VALUE> original) {
+        init(original.size);
+
+        for (int entry = original.head; entry != NONE; entry = original.next[entry]) {
+            put(original.keys[entry], original.value(entry));
+        }
+    }
+
+    /**
+     * Put a key value pair at the end. An existing key moves to the end.
+     *
+     * @param key   key
+     * @param value value
+     * @return value
+     * @throws NullPointerException if the value is null
+     */
+    public VALUE put(final int key, final VALUE value) throws NullPointerException {
+        link(insert(key, value), NONE);
+        return value;
+    }
+
+    /**
+     * Put a key value pair as the first item. An existing key moves to the front.
+     *
+     * @param key   key
+     * @param value value
+     * @return value
+     * @throws NullPointerException if the value is null
+     */
+    public VALUE putHead(final int key, final VALUE value) throws NullPointerException {
+        final int entry = insert(key, value);
+        cursor = NONE;
+        link(entry, head);
+        return value;
+    }
+
+    /**
+     * Insert a key value pair at the given index
+     *
+     * @param idx   index to insert at
+     * @param key   key
+     * @param value value
+     * @throws IndexOutOfBoundsException if the index is negative or beyond the size of the array
+     */
+    public void putAtIndex(final int idx, final int key, final VALUE value) throws IndexOutOfBoundsException {
+        if (idx < 0 || idx > size) {
+            throw new IndexOutOfBoundsException("Index " + idx + " is beyond the bounds of this array. Size: " + size);
+        }
+
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+
+        final int existing = find(key);
+
+        if (existing >= 0) {
+            if (idx == size) {
+                throw new IndexOutOfBoundsException("Index " + idx + " is beyond the bounds of this array once " +
+                        key + " moves. Size: " + size);
+            }
+
+            delete(existing);
+        }
+
+        final int successor = idx == size ? NONE : entry(idx);
+        final int entry = insert(key, value);
+        cursor = NONE;
+        link(entry, successor);
+    }
+
+    /**
+     * @param key key
+     * @return value of key or <code>null</code> if absent
+     */
+    public VALUE get(final int key) {
+        final int slot = find(key);
+        return slot < 0 ? null : value(table[slot] - 1);
+    }
+
+    /**
+     * @param key key
+     * @return <code>true</code> if the key is present
+     */
+    public boolean containsKey(final int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @param value value
+     * @return <code>true</code> if any key has an equal value
+     */
+    public boolean containsValue(final VALUE value) {
+        for (int entry = head; entry != NONE; entry = next[entry]) {
+            if (values[entry].equals(value)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get a value by an index
+     *
+     * @param index position of the value
+     * @return value at the given index or <code>null</code> if out of range
+     */
+    public VALUE getAtIndex(final int index) {
+        return index >= 0 && index < size ? value(entry(index)) : null;
+    }
+
+    /**
+     * @param index position of the key
+     * @return key at the given index
+     * @throws IndexOutOfBoundsException if out of range
+     */
+    public int keyAtIndex(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        return keys[entry(index)];
+    }
+
+    /**
+     * Find the index of the given key
+     *
+     * @param key key to search for
+     * @return index of key or -1 if not found
+     */
+    public int indexOf(final int key) {
+        final int slot = find(key);
+
+        if (slot < 0) {
+            return -1;
+        }
+
+        final int target = table[slot] - 1;
+        int index = 0;
+
+        for (int entry = head; entry != target; entry = next[entry]) {
+            index++;
+        }
+
+        return index;
+    }
+
+    /**
+     * Remove a value based on the given key
+     *
+     * @param key key
+     * @return removed value or <code>null</code> if absent
+     */
+    public VALUE remove(final int key) {
+        final int slot = find(key);
+        return slot < 0 ? null : delete(slot);
+    }
+
+    /**
+     * Remove a value. The first pair, in order, holding this very instance is removed.
+     *
+     * @param value value to remove
+     * @return <code>true</code> if any key has this or an equal value
+     */
+    public boolean removeValue(final VALUE value) {
+        boolean found = false;
+
+        for (int entry = head; entry != NONE; entry = next[entry]) {
+            if (values[entry] == value) {
+                delete(find(keys[entry]));
+                return true;
+            }
+
+            found = found || values[entry].equals(value);
+        }
+
+        return found;
+    }
+
+    /**
+     * Remove the head element, i.e. the element at position 0
+     *
+     * @return the removed element, null if none
+     */
+    public VALUE removeHead() {
+        return size == 0 ? null : delete(find(keys[head]));
+    }
+
+    /**
+     * Remove a value from the given position
+     *
+     * @param position position
+     * @return removed value or <code>null</code> if out of range
+     */
+    public VALUE removeAtIndex(final int position) {
+        return position >= 0 && position < size ? delete(find(keys[entry(position)])) : null;
+    }
+
+    /**
+     * Clear all data
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        Arrays.fill(values, 0, used, null);
+        used = size = 0;
+        free = head = tail = cursor = NONE;
+    }
+
+    /**
+     * @return number of pairs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return <code>true</code> if there are no pairs
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return a copy of the keys in order
+     */
+    public int[] getOrderedKeys() {
+        final int[] ordered = new int[size];
+        int index = 0;
+
+        for (int entry = head; entry != NONE; entry = next[entry]) {
+            ordered[index++] = keys[entry];
+        }
+
+        return ordered;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(size * 16 + 2).append('{');
+
+        for (int entry = head; entry != NONE; entry = next[entry]) {
+            if (entry != head) {
+                builder.append(", ");
+            }
+
+            builder.append(keys[entry]).append('=').append(values[entry]);
+        }
+
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Compare the pairs of two maps, like {@link java.util.Map#equals(Object)}: the order does not matter
+     */
+    @Override
+    public boolean equals(final Object o) {
+        if (o == this) {
+            return true;
+        }
+
+        if (!(o instanceof IntArrayHash)) {
+            return false;
+        }
+
+        final IntArrayHash<?> other = (IntArrayHash<?>) o;
+
+        if (other.size != size) {
+            return false;
+        }
+
+        for (int entry = head; entry != NONE; entry = next[entry]) {
+            if (!values[entry].equals(other.get(keys[entry]))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the hash code of a {@link java.util.Map} holding the same pairs
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+
+        for (int entry = head; entry != NONE; entry = next[entry]) {
+            hash += keys[entry] ^ values[entry].hashCode();
+        }
+
+        return hash;
+    }
+
+    private void init(final int capacity) {
+        keys = new int[Math.max(capacity, 4)];
+        values = new Object[keys.length];
+        prev = new int[keys.length];
+        next = new int[keys.length];
+        table = new int[tableSize(keys.length)];
+        mask = table.length - 1;
+        free = head = tail = cursor = NONE;
+    }
+
+    @SuppressWarnings("unchecked")
+    private VALUE value(final int entry) {
+        return (VALUE) values[entry];
+    }
+
+    /**
+     * Store a pair in a fresh entry, removing any previous entry of the key. The entry is not yet linked into the
+     * order.
+     */
+    private int insert(final int key, final VALUE value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+
+        final int existing = find(key);
+
+        if (existing >= 0) {
+            delete(existing);
+        }
+
+        final int entry = allocate();
+        keys[entry] = key;
+        values[entry] = value;
+
+        if ((size + 1) * 4L > table.length * 3L) {
+            rehash(table.length * 2);
+        }
+
+        int slot = hash(key) & mask;
+
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+
+        table[slot] = entry + 1;
+        size++;
+        return entry;
+    }
+
+    /**
+     * @return table slot of the key or <code>-1</code> if absent
+     */
+    private int find(final int key) {
+        int slot = hash(key) & mask;
+        int entry;
+
+        while ((entry = table[slot]) != 0) {
+            if (keys[entry - 1] == key) {
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Remove the entry in a table slot from the table and the order
+     *
+     * @return the entry's value
+     */
+    private VALUE delete(final int slot) {
+        final int entry = table[slot] - 1;
+        final VALUE value = value(entry);
+
+        // backward shift: pull later entries of the probe sequence into the hole so lookups need no tombstones
+        int hole = slot;
+        int probe = (hole + 1) & mask;
+
+        while (table[probe] != 0) {
+            final int ideal = hash(keys[table[probe] - 1]) & mask;
+
+            if (((probe - ideal) & mask) >= ((probe - hole) & mask)) {
+                table[hole] = table[probe];
+                hole = probe;
+            }
+
+            probe = (probe + 1) & mask;
+        }
+
+        table[hole] = 0;
+
+        unlink(entry);
+        values[entry] = null;
+        next[entry] = free;
+        free = entry;
+        size--;
+        return value;
+    }
+
+    private int allocate() {
+        if (free != NONE) {
+            final int entry = free;
+            free = next[entry];
+            return entry;
+        }
+
+        if (used == keys.length) {
+            final int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+
+        return used++;
+    }
+
+    private void rehash(final int tableSize) {
+        table = new int[tableSize];
+        mask = tableSize - 1;
+
+        for (int entry = head; entry != NONE; entry = next[entry]) {
+            int slot = hash(keys[entry]) & mask;
+
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            table[slot] = entry + 1;
+        }
+    }
+
+    /**
+     * Link an entry into the order before another
+     *
+     * @param entry     entry to link
+     * @param successor entry to link before or {@link #NONE} to append
+     */
+    private void link(final int entry, final int successor) {
+        final int predecessor = successor == NONE ? tail : prev[successor];
+
+        prev[entry] = predecessor;
+        next[entry] = successor;
+
+        if (predecessor == NONE) {
+            head = entry;
+        } else {
+            next[predecessor] = entry;
+        }
+
+        if (successor == NONE) {
+            tail = entry;
+        } else {
+            prev[successor] = entry;
+        }
+    }
+
+    private void unlink(final int entry) {
+        if (prev[entry] == NONE) {
+            head = next[entry];
+        } else {
+            next[prev[entry]] = next[entry];
+        }
+
+        if (next[entry] == NONE) {
+            tail = prev[entry];
+        } else {
+            prev[next[entry]] = prev[entry];
+        }
+
+        cursor = NONE;
+    }
+
+    /**
+     * @return entry at a position, which must be in range
+     */
+    private int entry(final int index) {
+        // start from whichever known position is closest
+        int entry = head;
+        int position = 0;
+
+        if (size - 1 - index < index) {
+            entry = tail;
+            position = size - 1;
+        }
+
+        if (cursor != NONE && Math.abs(cursorIndex - index) < Math.abs(position - index)) {
+            entry = cursor;
+            position = cursorIndex;
+        }
+
+        for (; position < index; position++) {
+            entry = next[entry];
+        }
+
+        for (; position > index; position--) {
+            entry = prev[entry];
+        }
+
+        cursor = entry;
+        cursorIndex = index;
+        return entry;
+    }
+
+    private static int tableSize(final int capacity) {
+        // keep the load factor at or under 3/4
+        int size = 8;
+
+        while (size * 3L < capacity * 4L) {
+            size <<= 1;
+        }
+
+        return size;
+    }
+
+    private static int hash(final int key) {
+        // spread the bits so sequential ids do not cluster under linear probing
+        final int h = key * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+
+        for (int entry = head; entry != NONE; entry = next[entry]) {
+            out.writeInt(keys[entry]);
+            out.writeObject(values[entry]);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        final int count = in.readInt();
+
+        if (count < 0) {
+            throw new InvalidObjectException("negative size: " + count);
+        }
+
+        init(count);
+
+        for (int i = 0; i < count; i++) {
+            put(in.readInt(), (VALUE) in.readObject());
+        }
+    }
+}
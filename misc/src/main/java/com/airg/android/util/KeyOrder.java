@@ -0,0 +1,78 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.util;
+
+import java.util.List;
+
+/**
+ * Keeps the order of the keys of an {@link ArrayHash}. Keys are unique: callers only add keys that are not already
+ * present.
+ *
+ * @param <KEY> key type
+ */
+interface KeyOrder<KEY> {
+    int size();
+
+    void addFirst(KEY key);
+
+    void addLast(KEY key);
+
+    /**
+     * @throws IndexOutOfBoundsException if <code>index</code> is negative or greater than the size
+     */
+    void add(int index, KEY key);
+
+    /**
+     * @return <code>true</code> if the key was present
+     */
+    boolean remove(Object key);
+
+    /**
+     * @return the removed first key or <code>null</code> if empty
+     */
+    KEY removeFirst();
+
+    /**
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range
+     */
+    KEY remove(int index);
+
+    /**
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range
+     */
+    KEY get(int index);
+
+    /**
+     * @return position of the key or <code>-1</code> if absent
+     */
+    int indexOf(Object key);
+
+    void clear();
+
+    /**
+     * @return a snapshot of the keys in order
+     */
+    List<KEY> toList();
+
+    /**
+     * @return an independent copy
+     */
+    KeyOrder<KEY> copy();
+}
@@ -0,0 +1,249 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * {@link KeyOrder} on a doubly linked list of nodes, found by key through a hash map, so adding and removing at either
+ * end and removing by key are O(1). Positional access walks from the nearest of the head, the tail and the last
+ * position accessed, so sequential walks by index (as a list adapter does) cost O(1) per step.
+ *
+ * @param <KEY> key type
+ */
+final class LinkedKeyOrder<KEY> implements KeyOrder<KEY> {
+    private final HashMap<KEY, Node<KEY>> nodes;
+    private Node<KEY> head;
+    private Node<KEY> tail;
+
+    // last position accessed; dropped whenever positions may have shifted
+    private Node<KEY> cursor;
+    private int cursorIndex;
+
+    LinkedKeyOrder(final int capacity) {
+        nodes = new HashMap<>(capacity);
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public void addFirst(final KEY key) {
+        final Node<KEY> node = newNode(key);
+        cursor = null;
+        linkBefore(node, head);
+    }
+
+    @Override
+    public void addLast(final KEY key) {
+        linkBefore(newNode(key), null); // positions of existing keys do not change
+    }
+
+    @Override
+    public void add(final int index, final KEY key) {
+        final int size = size();
+
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        final Node<KEY> successor = index == size ? null : node(index);
+        cursor = null;
+        linkBefore(newNode(key), successor);
+    }
+
+    @Override
+    public boolean remove(final Object key) {
+        final Node<KEY> node = nodes.remove(key);
+
+        if (null == node) {
+            return false;
+        }
+
+        unlink(node);
+        return true;
+    }
+
+    @Override
+    public KEY removeFirst() {
+        if (null == head) {
+            return null;
+        }
+
+        final Node<KEY> node = head;
+        nodes.remove(node.key);
+        unlink(node);
+        return node.key;
+    }
+
+    @Override
+    public KEY remove(final int index) {
+        final Node<KEY> node = node(index);
+        nodes.remove(node.key);
+        unlink(node);
+        return node.key;
+    }
+
+    @Override
+    public KEY get(final int index) {
+        return node(index).key;
+    }
+
+    @Override
+    public int indexOf(final Object key) {
+        final Node<KEY> target = nodes.get(key);
+
+        if (null == target) {
+            return -1;
+        }
+
+        int index = 0;
+
+        for (Node<KEY> node = head; node != target; node = node.next) {
+            index++;
+        }
+
+        return index;
+    }
+
+    @Override
+    public void clear() {
+        nodes.clear();
+        head = tail = cursor = null;
+    }
+
+    @Override
+    public List<KEY> toList() {
+        final List<KEY> keys = new ArrayList<>(size());
+
+        for (Node<KEY> node = head; null != node; node = node.next) {
+            keys.add(node.key);
+        }
+
+        return keys;
+    }
+
+    @Override
+    public KeyOrder<KEY> copy() {
+        final LinkedKeyOrder<KEY> copy = new LinkedKeyOrder<>(size());
+
+        for (Node<KEY> node = head; null != node; node = node.next) {
+            copy.addLast(node.key);
+        }
+
+        return copy;
+    }
+
+    private Node<KEY> newNode(final KEY key) {
+        final Node<KEY> node = new Node<>(key);
+        nodes.put(key, node);
+        return node;
+    }
+
+    /**
+     * Insert a node before another
+     *
+     * @param node      node to insert
+     * @param successor node to insert before or <code>null</code> to append
+     */
+    private void linkBefore(final Node<KEY> node, final Node<KEY> successor) {
+        final Node<KEY> predecessor = null == successor ? tail : successor.prev;
+
+        node.prev = predecessor;
+        node.next = successor;
+
+        if (null == predecessor) {
+            head = node;
+        } else {
+            predecessor.next = node;
+        }
+
+        if (null == successor) {
+            tail = node;
+        } else {
+            successor.prev = node;
+        }
+    }
+
+    private void unlink(final Node<KEY> node) {
+        if (null == node.prev) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+
+        if (null == node.next) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+
+        node.prev = node.next = null;
+        cursor = null;
+    }
+
+    private Node<KEY> node(final int index) {
+        final int size = size();
+
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        // start from whichever known position is closest
+        Node<KEY> node = head;
+        int position = 0;
+
+        if (size - 1 - index < index) {
+            node = tail;
+            position = size - 1;
+        }
+
+        if (null != cursor && Math.abs(cursorIndex - index) < Math.abs(position - index)) {
+            node = cursor;
+            position = cursorIndex;
+        }
+
+        for (; position < index; position++) {
+            node = node.next;
+        }
+
+        for (; position > index; position--) {
+            node = node.prev;
+        }
+
+        cursor = node;
+        cursorIndex = index;
+        return node;
+    }
+
+    private static final class Node<KEY> {
+        final KEY key;
+        Node<KEY> prev;
+        Node<KEY> next;
+
+        Node(final KEY key) {
+            this.key = key;
+        }
+    }
+}
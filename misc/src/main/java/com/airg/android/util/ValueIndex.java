@@ -0,0 +1,95 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+
+package com.airg.android.util;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * Reverse index of an {@link ArrayHash}: from each value instance (by identity, not equality) to the key holding it.
+ * An instance held under a single key, the usual case, costs one map entry; one held under several keys also keeps a
+ * small list of them.
+ *
+ * @param <KEY>   key type
+ * @param <VALUE> value type
+ */
+final class ValueIndex<KEY, VALUE> {
+    private final IdentityHashMap<VALUE, Object> keys;
+
+    ValueIndex(final int capacity) {
+        keys = new IdentityHashMap<>(capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    void add(final VALUE value, final KEY key) {
+        final Object current = keys.put(value, key);
+
+        if (null == current) {
+            return;
+        }
+
+        // shared instance: keep all keys, the first one added first
+        final Shared<KEY> shared;
+
+        if (current instanceof Shared) {
+            shared = (Shared<KEY>) current;
+        } else {
+            shared = new Shared<>();
+            shared.keys.add((KEY) current);
+        }
+
+        shared.keys.add(key);
+        keys.put(value, shared);
+    }
+
+    @SuppressWarnings("unchecked")
+    void remove(final VALUE value, final KEY key) {
+        final Object current = keys.get(value);
+
+        if (!(current instanceof Shared)) {
+            keys.remove(value);
+            return;
+        }
+
+        final ArrayList<KEY> shared = ((Shared<KEY>) current).keys;
+        shared.remove(key);
+
+        if (shared.size() == 1) {
+            keys.put(value, shared.get(0));
+        }
+    }
+
+    /**
+     * @return a key holding the value instance or <code>null</code> if none does
+     */
+    @SuppressWarnings("unchecked")
+    KEY keyOf(final Object value) {
+        final Object key = keys.get(value);
+        return key instanceof Shared ? ((Shared<KEY>) key).keys.get(0) : (KEY) key;
+    }
+
+    void clear() {
+        keys.clear();
+    }
+
+    private static final class Shared<KEY> {
+        final ArrayList<KEY> keys = new ArrayList<>(2);
+    }
+}